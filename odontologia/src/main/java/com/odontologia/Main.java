@@ -1,6 +1,7 @@
 package com.odontologia;
 
 import javax.swing.SwingUtilities;
+import model.Database;
 import view.InicioView;
 import view.MenuPrincipalView;
 
@@ -14,6 +15,16 @@ public class Main {
             InicioView inicio = new InicioView();
             inicio.setVisible(true);
 
+            // Cargar los datos en segundo plano mientras se muestra la ventana
+            Database.iniciarCarga(inicio::mostrarProgreso).whenComplete((db, error) ->
+                    SwingUtilities.invokeLater(() -> {
+                        if (error == null) {
+                            inicio.cargaTerminada();
+                        } else {
+                            inicio.cargaFallida(error);
+                        }
+                    }));
+
             // Evento del botón iniciar
             inicio.getBtnIniciar().addActionListener(e -> {
 
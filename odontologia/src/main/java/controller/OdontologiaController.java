@@ -33,14 +33,13 @@ public class OdontologiaController {
     /**
      * Obtiene todos los odontólogos registrados en el sistema
      * 
-     * @return Lista de todos los odontólogos
+     * @return Lista inmutable de todos los odontólogos, ordenada por ID
      */
     public List<Odontologo> obtenerTodosLosOdontologos() {
-        // Recargar datos desde archivos para asegurar sincronización
-        db.recargarDesdeArchivos();
+        // Solo se releen los archivos modificados por otro proceso
+        db.recargarCambiosExternos();
         
-        // Convertir el mapa a lista
-        return new ArrayList<>(db.getOdontologos().values());
+        return db.getInstantaneaOdontologos();
     }
     
     /**
@@ -99,7 +98,7 @@ public class OdontologiaController {
         Odontologo nuevoOdontologo = new Odontologo();
         
         // Generar ID automático
-        int nuevoId = generarNuevoIdOdontologo();
+        int nuevoId = db.generarProximoIdOdontologo();
         nuevoOdontologo.setId(nuevoId);
         
         // Asignar datos
@@ -136,30 +135,45 @@ public class OdontologiaController {
      * @param telefono Nuevo teléfono
      * @param especialidad Nueva especialidad
      * @param numeroColegiado Nuevo número de colegiado
-     * @return true si se actualizó exitosamente, false si hay error
+     * @param versionEsperada Versión del odontólogo cuando se leyeron los datos que se editaron
+     * @return true si se actualizó exitosamente, false si hay error o si otro
+     *         usuario lo modificó después de esa versión
      */
     public boolean actualizarOdontologo(int id, String nombre, int telefono, 
-                                       String especialidad, int numeroColegiado) {
+                                       String especialidad, int numeroColegiado, int versionEsperada) {
         
-        // Verificar que el odontólogo existe
-        Odontologo odontologo = db.getOdontologos().get(id);
-        if (odontologo == null) {
-            System.err.println("Error: No existe odontólogo con ID " + id);
-            return false;
-        }
+        // Comprobar y modificar con todo bloqueado y los cambios de otros procesos
+        // ya recargados (la recarga reemplaza las instancias: se busca adentro)
+        String error = db.conDatosAlDia(() -> {
+            // Verificar que el odontólogo existe
+            Odontologo odontologo = db.getOdontologos().get(id);
+            if (odontologo == null) {
+                return "Error: No existe odontólogo con ID " + id;
+            }
+            
+            // Validar que el número de colegiado no esté duplicado (excepto si es el mismo)
+            if (existeNumeroColegiado(numeroColegiado, id)) {
+                return "Error: El número de colegiado " + numeroColegiado + " ya está en uso";
+            }
+            
+            // Rechazar la escritura si alguien lo modificó después de leerlo
+            if (!odontologo.reclamarVersion(versionEsperada)) {
+                return "Error: El odontólogo " + id + " fue modificado por otro usuario";
+            }
+            
+            // Actualizar datos
+            odontologo.setNombre(nombre);
+            odontologo.setTelefono(telefono);
+            odontologo.setEspecialidad(especialidad);
+            odontologo.setNumeroColegiado(numeroColegiado);
+            return null;
+        });
         
-        // Validar que el número de colegiado no esté duplicado (excepto si es el mismo)
-        if (existeNumeroColegiado(numeroColegiado, id)) {
-            System.err.println("Error: El número de colegiado " + numeroColegiado + " ya está en uso");
+        if (error != null) {
+            System.err.println(error);
             return false;
         }
         
-        // Actualizar datos
-        odontologo.setNombre(nombre);
-        odontologo.setTelefono(telefono);
-        odontologo.setEspecialidad(especialidad);
-        odontologo.setNumeroColegiado(numeroColegiado);
-        
         // Persistir cambios en JSON
         db.guardarDatos();
         
@@ -179,9 +193,10 @@ public class OdontologiaController {
      * @param nombre Nuevo nombre
      * @param telefono Nuevo teléfono
      * @param numeroColegiadoStr Número de colegiado como String
+     * @param versionEsperada Versión del odontólogo cuando se leyeron los datos que se editaron
      * @return true si se actualizó exitosamente
      */
-    public boolean actualizarOdontologo(int id, String nombre, int telefono, String numeroColegiadoStr) {
+    public boolean actualizarOdontologo(int id, String nombre, int telefono, String numeroColegiadoStr, int versionEsperada) {
         try {
             int numeroColegiado = Integer.parseInt(numeroColegiadoStr);
             
@@ -195,7 +210,7 @@ public class OdontologiaController {
             String especialidadActual = odontologoActual.getEspecialidad();
             
             // Llamar al método completo manteniendo la especialidad actual
-            return actualizarOdontologo(id, nombre, telefono, especialidadActual, numeroColegiado);
+            return actualizarOdontologo(id, nombre, telefono, especialidadActual, numeroColegiado, versionEsperada);
             
         } catch (NumberFormatException e) {
             System.err.println("Error: El número de colegiado debe ser un número válido");
@@ -221,9 +236,8 @@ public class OdontologiaController {
             return false;
         }
         
-        // Verificar que no tenga citas asignadas
-        boolean tieneCitas = db.getCitas().values().stream()
-                .anyMatch(cita -> cita.getOdontologo().getId() == id);
+        // Verificar que no tenga citas asignadas (también en meses anteriores)
+        boolean tieneCitas = db.odontologoTieneCitas(id);
         
         if (tieneCitas) {
             System.err.println("Error: No se puede eliminar el odontólogo porque tiene citas asignadas");
@@ -231,13 +245,13 @@ public class OdontologiaController {
         }
         
         // Verificar que no tenga horarios asignados
-        boolean tieneHorarios = db.getHorarios().values().stream()
-                .anyMatch(horario -> horario.getOdontologo().getId() == id);
+        List<Horario> horariosOdontologo = db.getHorariosPorOdontologo(id);
         
-        if (tieneHorarios) {
+        if (!horariosOdontologo.isEmpty()) {
             // Eliminar horarios asociados
-            db.getHorarios().entrySet()
-                    .removeIf(entry -> entry.getValue().getOdontologo().getId() == id);
+            for (Horario horario : horariosOdontologo) {
+                db.getHorarios().remove(horario.getId());
+            }
             System.out.println("Horarios del odontólogo eliminados");
         }
         
@@ -261,7 +275,7 @@ public class OdontologiaController {
     public List<Odontologo> buscarPorEspecialidad(String especialidad) {
         List<Odontologo> resultado = new ArrayList<>();
         
-        for (Odontologo o : db.getOdontologos().values()) {
+        for (Odontologo o : db.getInstantaneaOdontologos()) {
             if (o.getEspecialidad() != null && 
                 o.getEspecialidad().toLowerCase().contains(especialidad.toLowerCase())) {
                 resultado.add(o);
@@ -274,20 +288,12 @@ public class OdontologiaController {
     /**
      * Busca odontólogos por nombre
      * 
-     * @param nombre Nombre a buscar (puede ser parcial)
-     * @return Lista de odontólogos que coinciden con el nombre
+     * @param nombre Nombre a buscar (prefijo de cada palabra, sin distinguir
+     *               acentos y tolerando un error de tipeo)
+     * @return Lista de odontólogos que coinciden con el nombre, los más parecidos primero
      */
     public List<Odontologo> buscarPorNombre(String nombre) {
-        List<Odontologo> resultado = new ArrayList<>();
-        
-        for (Odontologo o : db.getOdontologos().values()) {
-            if (o.getNombre() != null && 
-                o.getNombre().toLowerCase().contains(nombre.toLowerCase())) {
-                resultado.add(o);
-            }
-        }
-        
-        return resultado;
+        return db.buscarOdontologosPorNombre(nombre, Integer.MAX_VALUE);
     }
     
     /**
@@ -307,7 +313,7 @@ public class OdontologiaController {
     public List<String> obtenerEspecialidades() {
         List<String> especialidades = new ArrayList<>();
         
-        for (Odontologo o : db.getOdontologos().values()) {
+        for (Odontologo o : db.getInstantaneaOdontologos()) {
             String esp = o.getEspecialidad();
             if (esp != null && !esp.trim().isEmpty() && !especialidades.contains(esp)) {
                 especialidades.add(esp);
@@ -336,25 +342,6 @@ public class OdontologiaController {
         return false;
     }
     
-    /**
-     * Genera un nuevo ID único para un odontólogo
-     * Busca el ID más alto y le suma 1
-     * 
-     * @return Nuevo ID disponible
-     */
-    private int generarNuevoIdOdontologo() {
-        if (db.getOdontologos().isEmpty()) {
-            return 1;
-        }
-        
-        // Encontrar el ID máximo actual
-        int maxId = db.getOdontologos().keySet().stream()
-                .mapToInt(Integer::intValue)
-                .max()
-                .orElse(0);
-        
-        return maxId + 1;
-    }
     
     /**
      * Recarga los datos desde los archivos JSON
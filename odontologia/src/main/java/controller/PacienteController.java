@@ -26,41 +26,47 @@ public class PacienteController {
      * @return true si se agregó exitosamente, false si ya existe el expediente
      */
     public boolean agregarPaciente(String nombre, int telefono, String numeroExpediente) {
-        // Validar que no exista un paciente con el mismo número de expediente
-        //Busca a los pacientes desde un map (getPacientes) y rescata solo su numero de expediente
-        boolean expedienteExiste = db.getPacientes().values().stream()  
-                
-                .anyMatch(p -> p.getNumeroExpediente().equalsIgnoreCase(numeroExpediente));
-        
-        if (expedienteExiste) {
+        // Validar el expediente y agregarlo con la tabla bloqueada, así otro hilo
+        // no puede registrar el mismo expediente entre la comprobación y el alta
+        Paciente agregado = db.conPacientesBloqueados(() -> {
+            // Validar que no exista un paciente con el mismo número de expediente
+            //Consulta el índice de expedientes (sin distinguir mayúsculas)
+            if (db.expedienteEnUso(numeroExpediente, -1)) {
+                return null;
+            }
+            
+            // Crear el nuevo paciente
+            Paciente nuevoPaciente = new Paciente();
+            nuevoPaciente.setId(db.generarProximoIdPaciente());
+            nuevoPaciente.setNombre(nombre);
+            nuevoPaciente.setTelefono(telefono);
+            nuevoPaciente.setNumeroExpediente(numeroExpediente);
+            
+            // Agregar al mapa de pacientes
+            db.getPacientes().put(nuevoPaciente.getId(), nuevoPaciente);
+            return nuevoPaciente;
+        });
+        
+        if (agregado == null) {
             System.err.println("Ya existe un paciente con el expediente: " + numeroExpediente);
             return false;
         }
         
-        // Crear el nuevo paciente
-        Paciente nuevoPaciente = new Paciente();
-        nuevoPaciente.setId(db.generarProximoIdPaciente());
-        nuevoPaciente.setNombre(nombre);
-        nuevoPaciente.setTelefono(telefono);
-        nuevoPaciente.setNumeroExpediente(numeroExpediente);
-        
-        // Agregar al mapa de pacientes
-        db.getPacientes().put(nuevoPaciente.getId(), nuevoPaciente);
-        
         // Guardar automáticamente
         db.guardarDatos();
         
-        System.out.println("Paciente agregado: " + nombre + " (ID: " + nuevoPaciente.getId() + ")");
+        System.out.println("Paciente agregado: " + nombre + " (ID: " + agregado.getId() + ")");
         return true;
     }
     
     /**
      * Obtiene todos los pacientes registrados
-     * @return Lista de todos los pacientes
+     * @return Lista inmutable de todos los pacientes, ordenada por ID
      */
     public List<Paciente> obtenerTodosLosPacientes() {
-        db.recargarDesdeArchivos();
-        return List.copyOf(db.getPacientes().values());
+        // Solo se releen los archivos modificados por otro proceso
+        db.recargarCambiosExternos();
+        return db.getInstantaneaPacientes();
     }
     
     /**
@@ -78,10 +84,7 @@ public class PacienteController {
      * @return Paciente encontrado o null
      */
     public Paciente obtenerPacientePorExpediente(String numeroExpediente) {
-        return db.getPacientes().values().stream()
-                .filter(p -> p.getNumeroExpediente().equalsIgnoreCase(numeroExpediente))
-                .findFirst()
-                .orElse(null);
+        return db.getPacientePorExpediente(numeroExpediente);
     }
     
     /**
@@ -90,32 +93,43 @@ public class PacienteController {
      * @param nombre Nuevo nombre
      * @param telefono Nuevo teléfono
      * @param numeroExpediente Nuevo número de expediente
-     * @return true si se actualizó exitosamente
+     * @param versionEsperada Versión del paciente cuando se leyeron los datos que se editaron
+     * @return true si se actualizó exitosamente; false también si otro usuario
+     *         lo modificó después de esa versión
      */
-    public boolean actualizarPaciente(int id, String nombre, int telefono, String numeroExpediente) {
-        Paciente paciente = db.getPacientes().get(id);
-        
-        if (paciente == null) {
-            System.err.println("Paciente no encontrado: ID " + id);
+    public boolean actualizarPaciente(int id, String nombre, int telefono, String numeroExpediente, int versionEsperada) {
+        // Comprobar y modificar con todo bloqueado y los cambios de otros procesos
+        // ya recargados: entre la validación del expediente, la versión y los
+        // cambios no puede colarse otra escritura, de esta ni de otra aplicación
+        String error = db.conDatosAlDia(() -> {
+            Paciente paciente = db.getPacientes().get(id);
+            if (paciente == null) {
+                return "Paciente no encontrado: ID " + id;
+            }
+            
+            // Verificar que el nuevo expediente no esté en uso por otro paciente
+            //Consulta el índice de expedientes (sin distinguir mayúsculas)
+            if (db.expedienteEnUso(numeroExpediente, id)) {
+                return "El expediente " + numeroExpediente + " ya está en uso";
+            }
+            
+            // Rechazar la escritura si alguien lo modificó después de leerlo
+            if (!paciente.reclamarVersion(versionEsperada)) {
+                return "El paciente " + id + " fue modificado por otro usuario";
+            }
+            
+            // Actualizar datos
+            paciente.setNombre(nombre);
+            paciente.setTelefono(telefono);
+            paciente.setNumeroExpediente(numeroExpediente);
+            return null;
+        });
+        
+        if (error != null) {
+            System.err.println(error);
             return false;
         }
         
-        // Verificar que el nuevo expediente no esté en uso por otro paciente
-        //Busca a los pacientes desde un map (getPacientes) y rescata solo su numero de expediente
-        boolean expedienteEnUso = db.getPacientes().values().stream()
-                .anyMatch(p -> p.getId() != id && 
-                          p.getNumeroExpediente().equalsIgnoreCase(numeroExpediente));
-        
-        if (expedienteEnUso) {
-            System.err.println("El expediente " + numeroExpediente + " ya está en uso");
-            return false;
-        }
-        
-        // Actualizar datos
-        paciente.setNombre(nombre);
-        paciente.setTelefono(telefono);
-        paciente.setNumeroExpediente(numeroExpediente);
-        
         // Guardar automáticamente
         db.guardarDatos();
         
@@ -138,9 +152,8 @@ public class PacienteController {
         }
         
         // Verificar si tiene citas programadas
-        //Obtiene las citas desde un map (getCitas) y extrae los datos para procesarlos
-        boolean tieneCitas = db.getCitas().values().stream()
-                .anyMatch(c -> c.getPaciente() != null && c.getPaciente().getId() == id);
+        //Consulta el índice de citas por paciente y, para los meses sin cargar, su resumen
+        boolean tieneCitas = db.pacienteTieneCitas(id);
         
         if (tieneCitas) {
             System.err.println("No se puede eliminar. El paciente tiene citas registradas");
@@ -166,18 +179,22 @@ public class PacienteController {
     }
     
     /**
-     * Busca pacientes por nombre (búsqueda parcial)
+     * Busca pacientes por nombre (prefijo de cada palabra, sin distinguir acentos
+     * y tolerando un error de tipeo)
      * @param nombreBusqueda Texto a buscar en el nombre
-     * @return Lista de pacientes que coinciden
+     * @return Lista de pacientes que coinciden, los más parecidos primero
      */
     public List<Paciente> buscarPacientesPorNombre(String nombreBusqueda) {
-        //Busca a los pacientes y luego filtra junto con el nombreBusqueda 
-        return db.getPacientes().values().stream()
-                .filter(p -> p.getNombre().toLowerCase()
-                        .contains(nombreBusqueda.toLowerCase()))
-                .toList();
+        return db.buscarPacientesPorNombre(nombreBusqueda, Integer.MAX_VALUE);
     }
-}
-
     
-
+    /**
+     * Busca pacientes por teléfono a medida que se escribe: coinciden los que
+     * terminan en los dígitos ingresados (se ignoran espacios y guiones)
+     * @param digitos Últimos dígitos del teléfono de quien llama
+     * @return Lista de pacientes que coinciden (vacía si no se escribió ningún dígito)
+     */
+    public List<Paciente> buscarPacientesPorTelefono(String digitos) {
+        return db.buscarPacientesPorFinTelefono(digitos, Integer.MAX_VALUE);
+    }
+}
@@ -4,6 +4,7 @@ import model.Recepcion;
 import model.*;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.YearMonth;
 import java.util.List;
 
 /**
@@ -31,25 +32,19 @@ public class RecepcionController {
             return false;
         }
         
-        boolean exito = recepcion.crearCita(paciente, odontologo, fecha, hora, motivo);
+        // La cita recién creada (otra recepción puede estar creando citas a la vez)
+        Cita citaCreada = recepcion.registrarCita(paciente, odontologo, fecha, hora, motivo);
         
-        if (exito) {
-            // Obtener la cita recién creada (En el Map)
-            Cita citaCreada = db.getCitas().values().stream()
-                .reduce((primera, segunda) -> segunda) // Obtener la última
-                .orElse(null);
-            
-            if (citaCreada != null) {
-                // Crear factura con monto inicial de 0.0
-                crearFacturaParaCita(citaCreada, paciente, 0.0);
-                System.out.println("Cita " + citaCreada.getId() + " creada con factura asociada");
-            }
+        if (citaCreada != null) {
+            // Crear factura con monto inicial de 0.0
+            crearFacturaParaCita(citaCreada, paciente, 0.0);
+            System.out.println("Cita " + citaCreada.getId() + " creada con factura asociada");
             
             db.guardarDatos(); // GUARDAR AUTOMÁTICAMENTE
             System.out.println("Datos guardados correctamente");
         }
         
-        return exito;
+        return citaCreada != null;
     }
     
     /**
@@ -65,25 +60,18 @@ public class RecepcionController {
             return false;
         }
         
-        boolean exito = recepcion.crearCita(paciente, odontologo, fecha, hora, motivo);
+        Cita citaCreada = recepcion.registrarCita(paciente, odontologo, fecha, hora, motivo);
         
-        if (exito) {
-            // Obtener la cita recién creada
-            Cita citaCreada = db.getCitas().values().stream()
-                .reduce((primera, segunda) -> segunda)
-                .orElse(null);
-            
-            if (citaCreada != null) {
-                // Crear factura con el monto especificado
-                crearFacturaParaCita(citaCreada, paciente, monto);
-                System.out.println("Cita " + citaCreada.getId() + " creada con monto $" + monto);
-            }
+        if (citaCreada != null) {
+            // Crear factura con el monto especificado
+            crearFacturaParaCita(citaCreada, paciente, monto);
+            System.out.println("Cita " + citaCreada.getId() + " creada con monto $" + monto);
             
             db.guardarDatos();
             System.out.println("Datos guardados correctamente");
         }
         
-        return exito;
+        return citaCreada != null;
     }
     
     public boolean actualizarMontoFactura(int idCita, double nuevoMonto) {
@@ -137,23 +125,17 @@ public class RecepcionController {
             return false;
         }
         
-        boolean exito = recepcion.crearCita(paciente, odontologo, horario);
+        Cita citaCreada = recepcion.registrarCita(paciente, odontologo, horario);
         
-        if (exito) {
-            Cita citaCreada = db.getCitas().values().stream()
-                .reduce((primera, segunda) -> segunda)
-                .orElse(null);
-            
-            if (citaCreada != null) {
-                crearFacturaParaCita(citaCreada, paciente, 0.0);
-                System.out.println("Cita " + citaCreada.getId() + " creada con horario " + idHorario);
-            }
+        if (citaCreada != null) {
+            crearFacturaParaCita(citaCreada, paciente, 0.0);
+            System.out.println("Cita " + citaCreada.getId() + " creada con horario " + idHorario);
             
             db.guardarDatos();
             System.out.println("Datos guardados correctamente");
         }
         
-        return exito;
+        return citaCreada != null;
     }
     
     /**
@@ -176,15 +158,11 @@ public class RecepcionController {
     private void liberarHorarioAsociado(Cita cita) {
         if (cita == null || cita.getOdontologo() == null) return;
         
-        db.getHorarios().values().stream()
-                .filter(h -> h.getFecha().equals(cita.getFecha()) 
-                        && h.getHora().equals(cita.getHora())
-                        && h.getOdontologo().getId() == cita.getOdontologo().getId())
-                .findFirst()
-                .ifPresent(horario -> {
-                    horario.marcarDisponible();
-                    System.out.println("Horario liberado: " + cita.getFecha() + " " + cita.getHora());
-                });
+        Horario horario = db.buscarHorario(cita.getOdontologo().getId(), cita.getFecha(), cita.getHora());
+        if (horario != null) {
+            horario.liberar();
+            System.out.println("Horario liberado: " + cita.getFecha() + " " + cita.getHora());
+        }
     }
     
     /**
@@ -201,9 +179,7 @@ public class RecepcionController {
         System.out.println("Eliminando cita " + idCita);
         
         // 1. Eliminar factura asociada si existe
-        Factura factura = obtenerFacturaPorCita(idCita);
-        if (factura != null) {
-            db.getFacturas().remove(factura.getId());
+        for (Factura factura : db.eliminarFacturaPorCita(idCita)) {
             System.out.println("Factura " + factura.getId() + " eliminada");
         }
         
@@ -214,10 +190,7 @@ public class RecepcionController {
         boolean eliminada = db.getCitas().remove(idCita) != null;
         
         if (eliminada) {
-            // 4. RECALCULAR EL CONTADOR DE CITAS
-            db.recalcularNextCitaId();
-            
-            // 5. Guardar los cambios
+            // 4. Guardar los cambios (el ID de la cita no se reutiliza)
             db.guardarDatos();
             System.out.println("Cita " + idCita + " eliminada completamente");
             System.out.println("NextCitaId ahora es: " + db.getNextCitaId());
@@ -228,8 +201,10 @@ public class RecepcionController {
     
     /**
      * Reprograma una cita existente
+     * @param versionEsperada Versión de la cita cuando se abrió la edición; si otro
+     *                        usuario la modificó después, no se reprograma
      */
-    public boolean reprogramarCita(int idCita, LocalDate nuevaFecha, LocalTime nuevaHora) {
+    public boolean reprogramarCita(int idCita, LocalDate nuevaFecha, LocalTime nuevaHora, int versionEsperada) {
         Cita cita = db.getCitas().get(idCita);
         
         if (cita == null || cita.getEstado() == EstadoCita.CANCELADA) {
@@ -245,19 +220,28 @@ public class RecepcionController {
             return false;
         }
         
-        boolean ocupado = db.getCitas().values().stream()
-                .filter(c -> c.getId() != idCita)
-                .filter(c -> c.getEstado() != EstadoCita.CANCELADA)
-                .anyMatch(c -> c.getFecha().equals(nuevaFecha) 
-                        && c.getHora().equals(nuevaHora)
-                        && c.getOdontologo().getId() == cita.getOdontologo().getId());
+        // Comprobar el turno y moverla con todo bloqueado y los cambios de otros
+        // procesos ya recargados (la recarga reemplaza la cita: se busca adentro)
+        String error = db.conDatosAlDia(() -> {
+            Cita actual = db.getCitas().get(idCita);
+            if (actual == null) {
+                return "No se puede reprogramar la cita " + idCita;
+            }
+            if (db.turnoOcupado(actual.getOdontologo().getId(), nuevaFecha, nuevaHora, idCita)) {
+                return "Horario ya ocupado";
+            }
+            if (!actual.reclamarVersion(versionEsperada)) {
+                return "La cita " + idCita + " fue modificada por otro usuario";
+            }
+            actual.reprogramar(nuevaFecha, nuevaHora);
+            return null;
+        });
         
-        if (ocupado) {
-            System.err.println("Horario ya ocupado");
+        if (error != null) {
+            System.err.println(error);
             return false;
         }
         
-        cita.reprogramar(nuevaFecha, nuevaHora);
         db.guardarDatos();
         System.out.println("Cita " + idCita + " reprogramada y guardada");
         return true;
@@ -313,15 +297,50 @@ public class RecepcionController {
         return recepcion.buscarDisponibilidad(odontologo);
     }
     
+    /**
+     * Página de horarios disponibles del odontólogo desde hoy
+     */
+    public List<Horario> buscarDisponibilidad(int idOdontologo, int omitir, int limite) {
+        Odontologo odontologo = db.getOdontologos().get(idOdontologo);
+        
+        if (odontologo == null) {
+            System.err.println("Odontólogo " + idOdontologo + " no encontrado");
+            return List.of();
+        }
+        
+        return recepcion.buscarDisponibilidad(odontologo, omitir, limite);
+    }
+    
+    /**
+     * Primera hora libre del odontólogo en la fecha (entre desde y hasta) en la que
+     * no empieza ninguna cita durante los minutos indicados
+     */
+    public LocalTime buscarPrimerHueco(int idOdontologo, LocalDate fecha, LocalTime desde,
+                                       LocalTime hasta, int minutos) {
+        return db.buscarPrimerHueco(idOdontologo, fecha, desde, hasta, minutos);
+    }
+    
     public List<Horario> buscarDisponibilidad(LocalDate fecha, int idOdontologo) {
         return recepcion.buscarDisponibilidad(fecha, idOdontologo);
     }
     
     /**
-     * OPTIMIZADO: Obtiene todas las citas (sin recarga innecesaria)
+     * Citas del mes actual en adelante (y las sin fecha): las que se cargan al
+     * iniciar, sin leer el historial de disco
+     * @return lista inmutable ordenada por ID
      */
     public List<Cita> obtenerTodasLasCitas() {
-        return List.copyOf(db.getCitas().values());
+        return db.getCitasVigentes();
+    }
+    
+    /**
+     * Todas las citas, incluido el historial de meses anteriores (lo lee de disco
+     * la primera vez que se pide)
+     * @return lista inmutable ordenada por ID; no se copia mientras no haya altas o bajas
+     */
+    public List<Cita> obtenerHistorialCitas() {
+        db.cargarHistorialCitas();
+        return db.getInstantaneaCitas();
     }
     
     
@@ -329,6 +348,28 @@ public class RecepcionController {
         return recepcion.obtenerCitasPendientesConfirmacion();
     }
     
+    /**
+     * Obtiene las citas en un estado, ordenadas por fecha y hora (sin recorrer todas las citas)
+     * Incluye el historial: lee los meses anteriores que tienen citas en ese estado.
+     */
+    public List<Cita> obtenerCitasPorEstado(EstadoCita estado) {
+        return db.getCitasPorEstado(estado);
+    }
+    
+    /**
+     * Citas en un estado del mes actual en adelante, ordenadas por fecha y hora
+     */
+    public List<Cita> obtenerCitasVigentesPorEstado(EstadoCita estado) {
+        return db.getCitasPorEstado(estado, YearMonth.now().atDay(1));
+    }
+    
+    /**
+     * Cantidad de citas en un estado
+     */
+    public int contarCitasPorEstado(EstadoCita estado) {
+        return db.contarCitasPorEstado(estado);
+    }
+    
     /**
      * NUEVO: Obtiene una cita específica por su ID
      */
@@ -337,15 +378,11 @@ public class RecepcionController {
     }
     
     public List<Cita> obtenerCitasPorPaciente(int idPaciente) {
-        return db.getCitas().values().stream()
-                .filter(c -> c.getPaciente() != null && c.getPaciente().getId() == idPaciente)
-                .toList();
+        return db.getCitasPorPaciente(idPaciente);
     }
     
     public List<Cita> obtenerCitasPorOdontologo(int idOdontologo) {
-        return db.getCitas().values().stream()
-                .filter(c -> c.getOdontologo() != null && c.getOdontologo().getId() == idOdontologo)
-                .toList();
+        return db.getCitasPorOdontologo(idOdontologo);
     }
    
     }
@@ -0,0 +1,64 @@
+package model;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Bloqueos por odontólogo para las operaciones "comprobar y reservar" de su agenda
+ * Se usa un número fijo de bloqueos (franjas) y cada odontólogo se asigna a uno
+ * según su ID: las reservas para un mismo odontólogo se hacen de a una, y las de
+ * odontólogos distintos avanzan en paralelo salvo que compartan franja.
+ */
+public class BloqueoAgendas {
+
+    private final ReentrantLock[] franjas;
+
+    /**
+     * @param cantidad número de franjas (se redondea a la potencia de 2 siguiente)
+     */
+    public BloqueoAgendas(int cantidad) {
+        int tamano = Integer.highestOneBit(Math.max(1, cantidad - 1)) << 1;
+        franjas = new ReentrantLock[tamano];
+        for (int i = 0; i < tamano; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Ejecuta la operación con la agenda del odontólogo bloqueada
+     */
+    public <T> T conAgenda(int idOdontologo, Supplier<T> operacion) {
+        ReentrantLock bloqueo = franjaDe(idOdontologo);
+        bloqueo.lock();
+        try {
+            return operacion.get();
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * Ejecuta la operación con todas las agendas bloqueadas (por ejemplo, al
+     * recargar los datos); las franjas se toman siempre en el mismo orden
+     */
+    public <T> T conTodas(Supplier<T> operacion) {
+        int tomadas = 0;
+        try {
+            for (ReentrantLock franja : franjas) {
+                franja.lock();
+                tomadas++;
+            }
+            return operacion.get();
+        } finally {
+            for (int i = tomadas - 1; i >= 0; i--) {
+                franjas[i].unlock();
+            }
+        }
+    }
+
+    private ReentrantLock franjaDe(int idOdontologo) {
+        // Mezcla los bits del ID para que IDs consecutivos no caigan en la misma franja
+        int h = idOdontologo * 0x9E3779B9;
+        return franjas[(h ^ (h >>> 16)) & (franjas.length - 1)];
+    }
+}
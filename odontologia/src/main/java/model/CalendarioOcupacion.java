@@ -0,0 +1,151 @@
+package model;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Calendario de ocupación de cada odontólogo: un mapa de bits por día con un
+ * bit por minuto (1440 bits), encendido en el minuto de inicio de cada cita
+ * activa (no cancelada)
+ *
+ * Comprobar si un turno está ocupado es leer un bit, y buscar el primer hueco
+ * libre de N minutos se hace saltando de bit en bit con nextSetBit/nextClearBit.
+ * Se usa la granularidad de un minuto para conservar la regla de conflicto de
+ * las citas (misma fecha, hora y odontólogo), en la que dos citas a las 9:00 y
+ * 9:05 no chocan. Si dos citas activas comparten el mismo minuto (datos
+ * anteriores a esta validación), el bit sigue encendido hasta que se liberan ambas.
+ */
+public class CalendarioOcupacion implements IndiceTabla<Cita> {
+
+    private static final int MINUTOS_DIA = 24 * 60;
+
+    private record Dia(int idOdontologo, LocalDate fecha) {
+    }
+
+    private record Turno(Dia dia, int minuto) {
+    }
+
+    private final Map<Dia, BitSet> dias = new HashMap<>();
+    private final Map<Integer, Turno> turnoPorCita = new HashMap<>();
+    // Citas activas adicionales en un turno ya ocupado
+    private final Map<Turno, Integer> coincidencias = new HashMap<>();
+
+    // ========== CONSULTAS ==========
+
+    /**
+     * @return true si el odontólogo tiene una cita activa que empieza en esa fecha y hora
+     */
+    public boolean estaOcupado(int idOdontologo, LocalDate fecha, LocalTime hora) {
+        return estaOcupado(idOdontologo, fecha, hora, -1);
+    }
+
+    /**
+     * Igual que {@link #estaOcupado(int, LocalDate, LocalTime)}, sin contar la cita
+     * indicada (al reprogramarla, su propio turno no es un conflicto)
+     */
+    public boolean estaOcupado(int idOdontologo, LocalDate fecha, LocalTime hora, int idCitaIgnorada) {
+        if (fecha == null || hora == null) {
+            return false;
+        }
+        Turno turno = new Turno(new Dia(idOdontologo, fecha), minutoDe(hora));
+        BitSet bits = dias.get(turno.dia());
+        if (bits == null || !bits.get(turno.minuto())) {
+            return false;
+        }
+        // Si el turno es de la cita ignorada, está ocupado solo si otra cita lo comparte
+        return !turno.equals(turnoPorCita.get(idCitaIgnorada)) || coincidencias.containsKey(turno);
+    }
+
+    /**
+     * Primer minuto libre en [desde, hasta) a partir del cual hay al menos
+     * {@code minutos} sin inicios de cita
+     * @return la hora encontrada, o null si no hay hueco en el rango
+     */
+    public LocalTime primerHueco(int idOdontologo, LocalDate fecha, LocalTime desde, LocalTime hasta, int minutos) {
+        int limite = hasta != null ? minutoDe(hasta) : MINUTOS_DIA;
+        BitSet bits = dias.get(new Dia(idOdontologo, fecha));
+        int inicio = desde != null ? minutoDe(desde) : 0;
+        while (inicio + minutos <= limite) {
+            if (bits == null) {
+                return horaDe(inicio);
+            }
+            inicio = bits.nextClearBit(inicio);
+            int siguiente = bits.nextSetBit(inicio);
+            if (inicio + minutos > limite) {
+                return null;
+            }
+            if (siguiente < 0 || siguiente - inicio >= minutos) {
+                return horaDe(inicio);
+            }
+            inicio = siguiente;
+        }
+        return null;
+    }
+
+    // ========== SINCRONIZACIÓN CON LA TABLA ==========
+
+    @Override
+    public void agregar(Cita cita) {
+        Turno turno = turnoDe(cita);
+        if (turno == null) {
+            return;
+        }
+        BitSet bits = dias.computeIfAbsent(turno.dia(), d -> new BitSet(MINUTOS_DIA));
+        if (bits.get(turno.minuto())) {
+            coincidencias.merge(turno, 1, Integer::sum);
+        } else {
+            bits.set(turno.minuto());
+        }
+        turnoPorCita.put(cita.getId(), turno);
+    }
+
+    @Override
+    public void eliminar(Cita cita) {
+        Turno turno = turnoPorCita.remove(cita.getId());
+        if (turno == null) {
+            return;
+        }
+        Integer otras = coincidencias.get(turno);
+        if (otras != null) {
+            if (otras == 1) {
+                coincidencias.remove(turno);
+            } else {
+                coincidencias.put(turno, otras - 1);
+            }
+            return;
+        }
+        BitSet bits = dias.get(turno.dia());
+        bits.clear(turno.minuto());
+        if (bits.isEmpty()) {
+            dias.remove(turno.dia());
+        }
+    }
+
+    @Override
+    public void actualizar(Cita cita) {
+        // Reprogramar mueve el bit; cancelar lo libera
+        if (!Objects.equals(turnoDe(cita), turnoPorCita.get(cita.getId()))) {
+            eliminar(cita);
+            agregar(cita);
+        }
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private static Turno turnoDe(Cita cita) {
+        if (cita.getEstado() == EstadoCita.CANCELADA || cita.getOdontologo() == null
+                || cita.getFecha() == null || cita.getHora() == null) {
+            return null;
+        }
+        return new Turno(new Dia(cita.getOdontologo().getId(), cita.getFecha()), minutoDe(cita.getHora()));
+    }
+
+    private static int minutoDe(LocalTime hora) {
+        return hora.getHour() * 60 + hora.getMinute();
+    }
+
+    private static LocalTime horaDe(int minuto) {
+        return LocalTime.of(minuto / 60, minuto % 60);
+    }
+}
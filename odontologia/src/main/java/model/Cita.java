@@ -6,7 +6,7 @@ import java.time.LocalTime;
 /**
  * Modelo que representa una cita odontológica
  */
-public class Cita {
+public class Cita extends Entidad {
 
     private int id;
     private LocalDate fecha;
@@ -47,6 +47,7 @@ public class Cita {
 
     public void setId(int id) {
         this.id = id;
+        notificarCambio();
     }
 
     public Paciente getPaciente() {
@@ -55,6 +56,7 @@ public class Cita {
 
     public void setPaciente(Paciente paciente) {
         this.paciente = paciente;
+        notificarCambio();
     }
 
     public Odontologo getOdontologo() {
@@ -63,6 +65,7 @@ public class Cita {
 
     public void setOdontologo(Odontologo odontologo) {
         this.odontologo = odontologo;
+        notificarCambio();
     }
 
     public LocalDate getFecha() {
@@ -71,6 +74,7 @@ public class Cita {
 
     public void setFecha(LocalDate fecha) {
         this.fecha = fecha;
+        notificarCambio();
     }
 
     public LocalTime getHora() {
@@ -79,6 +83,7 @@ public class Cita {
 
     public void setHora(LocalTime hora) {
         this.hora = hora;
+        notificarCambio();
     }
 
     public String getMotivo() {
@@ -87,6 +92,7 @@ public class Cita {
 
     public void setMotivo(String motivo) {
         this.motivo = motivo;
+        notificarCambio();
     }
 
     public EstadoCita getEstado() {
@@ -95,6 +101,7 @@ public class Cita {
 
     public void setEstado(EstadoCita estado) {
         this.estado = estado;
+        notificarCambio();
     }
 
 
@@ -109,6 +116,7 @@ public class Cita {
             return false; // No se puede confirmar una cita cancelada
         }
         this.estado = EstadoCita.CONFIRMADA;
+        notificarCambio();
         return true;
     }
 
@@ -117,10 +125,12 @@ public class Cita {
      */
     public void cancelar() {
        this.estado = EstadoCita.CANCELADA;
+       notificarCambio();
     }
     
     public void finalizar() {
         this.estado = EstadoCita.FINALIZADO;
+        notificarCambio();
     }
 
     /**
@@ -135,6 +145,7 @@ public class Cita {
         this.fecha = nuevaFecha;
         this.hora = nuevaHora;
         this.estado = EstadoCita.PENDIENTE;
+        notificarCambio();
         }
         
     }
@@ -1,31 +1,115 @@
 package model;
 
+import com.google.gson.Gson;
+import util.CitaSerializer;
+import util.Coleccion;
+import util.Configuracion;
+import util.DataJournal;
 import util.DataPersistence;
+import util.EscritorAsincrono;
+import util.LoteCambios;
+import util.ProgresoCarga;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class Database {
     //Reiteracion de si misma para usarse como atributo del cual a traves de este pasaran los datos del constructor privado al metodo getInstance() 
-    private static Database instance;
-    private Map<Integer, Paciente> pacientes = new HashMap<>();
-    private Map<Integer, Odontologo> odontologos = new HashMap<>();
-    private Map<Integer, Cita> citas = new HashMap<>();
-    private Map<Integer, Factura> facturas = new HashMap<>();
-    private Map<Integer, Horario> horarios = new HashMap<>();
-    private int nextPacienteId = 103; 
-    private int nextCitaId = 1;
-    private int nextFacturaId = 1;
-    private int nextHorarioId = 1;
+    private static volatile Database instance;
+    private static final ReentrantLock bloqueoInstancia = new ReentrantLock();
+    // Avance de la carga inicial: contadores, una colección por archivo y el journal
+    private static final int PASOS_CARGA = Coleccion.values().length + 2;
+    private static volatile ProgresoCarga progresoCarga = ProgresoCarga.NINGUNO;
+    // Las tablas admiten varios hilos; cargar y recargar desde disco cambian su
+    // contenido, nunca la tabla (así nadie escribe en una tabla ya descartada)
+    private final TablaEntidades<Paciente> pacientes = new TablaEntidades<>();
+    private final TablaEntidades<Odontologo> odontologos = new TablaEntidades<>();
+    // Citas y horarios se guardan por mes; al iniciar solo se cargan los meses vigentes
+    private final TablaParticionada<Cita> citas = new TablaParticionada<>(Cita::getFecha, this::leerParticionCitas);
+    private final TablaEntidades<Factura> facturas = new TablaEntidades<>();
+    private final TablaParticionada<Horario> horarios = new TablaParticionada<>(Horario::getFecha, this::leerParticionHorarios);
+    // Índices secundarios; la tabla correspondiente los mantiene sincronizados
+    // (se consultan dentro de tabla.leer(), con el bloqueo de lectura de la tabla)
+    private volatile IndiceUnico<ClaveHorario, Horario> horariosPorTurno;
+    private volatile IndiceUnico<String, Paciente> pacientesPorExpediente;
+    private volatile IndiceNombres<Paciente> pacientesPorNombre;
+    private volatile IndiceNombres<Odontologo> odontologosPorNombre;
+    private volatile IndiceTelefonos<Paciente> pacientesPorTelefono;
+    private volatile IndiceTelefonos<Odontologo> odontologosPorTelefono;
+    // Agenda de cada odontólogo por fecha y hora: todos sus horarios y, aparte, los libres
+    private volatile IndiceMultiple<Integer, LocalDateTime, Horario> horariosPorOdontologo;
+    private volatile IndiceMultiple<Integer, LocalDateTime, Horario> horariosLibresPorOdontologo;
+    private volatile IndiceMultiple<Integer, Integer, Factura> facturasPorCita;
+    private volatile IndiceMultiple<Integer, LocalDateTime, Cita> citasPorPaciente;
+    private volatile IndiceMultiple<Integer, LocalDateTime, Cita> citasPorOdontologo;
+    private volatile IndiceMultiple<EstadoCita, LocalDateTime, Cita> citasPorEstado;
+    private volatile CalendarioOcupacion calendarioCitas;
+    // Resumen en disco de cada mes de citas; se consulta para los meses sin cargar
+    private volatile Map<String, ResumenMes> resumenCitas = Map.of();
+    // Serializa las reservas de turnos de un mismo odontólogo (comprobar y agregar)
+    private final BloqueoAgendas agendas = new BloqueoAgendas(64);
+    // Indica si algún contador cambió desde el último guardado
+    private volatile boolean contadoresModificados = false;
+    // Un generador de IDs por tipo de entidad; reservan bloques y solo avanzan
+    private final Map<Coleccion, GeneradorIds> generadores = crearGeneradores();
+    // Hilo de fondo que escribe en disco los cambios capturados por guardarDatos()
+    private final EscritorAsincrono escritor = new EscritorAsincrono(
+            DataPersistence::persistir,
+            Configuracion.getRetardoGuardadoMs(),
+            Configuracion.getMaxLoteGuardado());
 
     //Constructor privado donde almacenara los todo los datos
     private Database() {
+        for (Coleccion coleccion : Coleccion.values()) {
+            indexar(coleccion);
+        }
         cargarDatos();
     }
     //Metodo para crear un Database unico y del cual no se puedan crear otros 
-    public static synchronized Database getInstance() {
-        if (instance == null) instance = new Database();
-        return instance;
+    public static Database getInstance() {
+        Database db = instance;
+        if (db == null) {
+            // ReentrantLock en lugar de synchronized: un hilo virtual que espera aquí
+            // (o que carga los datos en paralelo) no bloquea su hilo portador
+            bloqueoInstancia.lock();
+            try {
+                if (instance == null) instance = new Database();
+                db = instance;
+            } finally {
+                bloqueoInstancia.unlock();
+            }
+        }
+        return db;
+    }
+    
+    /**
+     * Crea la instancia y carga los datos en un hilo virtual, sin bloquear la
+     * interfaz; quien llame a getInstance() mientras tanto espera a que termine
+     * @param progreso recibe el avance de la carga (archivo por archivo)
+     * @return futuro que se completa con la instancia ya cargada
+     */
+    public static CompletableFuture<Database> iniciarCarga(ProgresoCarga progreso) {
+        progresoCarga = progreso;
+        CompletableFuture<Database> resultado = new CompletableFuture<>();
+        Thread.ofVirtual().name("carga-datos").start(() -> {
+            try {
+                resultado.complete(getInstance());
+            } catch (Throwable e) {
+                resultado.completeExceptionally(e);
+            } finally {
+                progresoCarga = ProgresoCarga.NINGUNO;
+            }
+        });
+        return resultado;
     }
     
     /**
@@ -35,18 +119,7 @@ public class Database {
     if (DataPersistence.existenDatosGuardados()) {
         // Cargar desde archivos
         System.out.println("Cargando datos guardados...");
-        pacientes = DataPersistence.cargarPacientes();
-        odontologos = DataPersistence.cargarOdontologos();
-        citas = DataPersistence.cargarCitas();
-        facturas = DataPersistence.cargarFacturas();
-        horarios = DataPersistence.cargarHorarios();
-        
-        // Cargar contadores
-        Map<String, Integer> counters = DataPersistence.cargarContadores();
-        nextCitaId = counters.getOrDefault("nextCitaId", 1);
-        nextFacturaId = counters.getOrDefault("nextFacturaId", 1);
-        nextHorarioId = counters.getOrDefault("nextHorarioId", 1);
-        nextPacienteId = counters.getOrDefault("nextPacienteId", 103); // AGREGAR ESTA LÍNEA
+        cargarDesdeArchivos();
         
         System.out.println("Datos cargados exitosamente");
         System.out.println("   - Pacientes: " + pacientes.size());
@@ -57,19 +130,295 @@ public class Database {
         // Primera ejecución - generar datos de prueba
         System.out.println("Primera ejecución - generando datos de prueba...");
         poblarDatosFalsos();
-        guardarDatos(); // Guardar los datos iniciales
+        // Los datos iniciales siempre se escriben como instantáneas completas
+        DataPersistence.guardarTodo(this);
         System.out.println("Datos de prueba generados y guardados");
+        progresoCarga.avance(PASOS_CARGA, PASOS_CARGA, "datos de prueba");
     }
 }
 
 
     
     /**
-     * Guarda todos los datos en archivos JSON
+     * Guarda los cambios pendientes: en modo journal solo anexa las entidades
+     * modificadas, en otro caso reescribe únicamente los archivos que cambiaron.
+     * Los cambios se capturan aquí y se escriben en el hilo de persistencia,
+     * agrupando los guardados cercanos en una sola escritura.
      */
     public void guardarDatos() {
-        DataPersistence.guardarTodo(this);
+        boolean journal = Configuracion.usarJournal();
+        boolean completo = journal && DataJournal.requiereCompactacion();
+        LoteCambios lote = LoteCambios.capturar(this, !journal, completo);
+        if (lote.estaVacio()) {
+            return;
+        }
+        
+        CompletableFuture<Boolean> resultado = escritor.encolar(lote);
+        if (!Configuracion.guardadoAsincrono()) {
+            resultado.join();
+        }
+    }
+    
+    /**
+     * Escribe de inmediato los cambios pendientes sin esperar el retardo de agrupación
+     * @return futuro que se completa (true si tuvo éxito) cuando los datos están en disco
+     */
+    public CompletableFuture<Boolean> forzarGuardado() {
+        guardarDatos();
+        return escritor.vaciar();
+    }
+    
+    /**
+     * Bloquea hasta que todos los cambios guardados hasta ahora sean durables en disco
+     * @return true si todas las escrituras tuvieron éxito
+     */
+    public boolean esperarGuardado() {
+        guardarDatos();
+        return escritor.esperarDurabilidad();
+    }
+    
+    /**
+     * Lee las instantáneas (todas las colecciones en paralelo), reproduce el
+     * journal (si existe) y reconstruye las referencias entre entidades
+     */
+    @SuppressWarnings("unchecked")
+    private void cargarDesdeArchivos() {
+        ProgresoCarga progreso = progresoCarga;
+        
+        // Los contadores indican la versión y el formato (JSON o binario) de las instantáneas
+        long inicio = System.nanoTime();
+        Map<String, Integer> counters = DataPersistence.cargarContadores();
+        aplicarContadores(counters);
+        boolean migrar = DataPersistence.requiereMigracion(counters);
+        progreso.avance(1, PASOS_CARGA, "contadores");
+        
+        Map<Coleccion, Map<Integer, String>> indices = new ConcurrentHashMap<>();
+        resumenCitas = vacioSiNulo(DataPersistence.cargarResumenCitas());
+        Map<Coleccion, Map<Integer, ?>> datos = DataPersistence.cargarColecciones(
+                progreso, 1, PASOS_CARGA, Database::esParticionVigente, indices);
+        pacientes.recargar((Map<Integer, Paciente>) datos.get(Coleccion.PACIENTES));
+        odontologos.recargar((Map<Integer, Odontologo>) datos.get(Coleccion.ODONTOLOGOS));
+        facturas.recargar((Map<Integer, Factura>) datos.get(Coleccion.FACTURAS));
+        citas.recargar((Map<Integer, Cita>) datos.get(Coleccion.CITAS),
+                indices.get(Coleccion.CITAS), DataPersistence.listarParticiones(Coleccion.CITAS),
+                Database::esParticionVigente);
+        horarios.recargar((Map<Integer, Horario>) datos.get(Coleccion.HORARIOS),
+                indices.get(Coleccion.HORARIOS), DataPersistence.listarParticiones(Coleccion.HORARIOS),
+                Database::esParticionVigente);
+        
+        // Aplicar los cambios pendientes del journal sobre las instantáneas
+        int reproducidos = DataJournal.reproducir(this);
+        // Ningún contador puede quedar por debajo de un ID ya usado (datos anteriores a los bloques)
+        for (Coleccion coleccion : Coleccion.values()) {
+            avanzarContadorSobreIds(coleccion);
+        }
+        
+        enlazarReferencias();
+        limpiarCambios();
+        progreso.avance(PASOS_CARGA, PASOS_CARGA, "journal y referencias");
+        System.out.println("Carga completa en " + (System.nanoTime() - inicio) / 1_000_000 + " ms");
+        
+        if (migrar) {
+            System.out.println("Migrando archivos de datos al formato v" + DataPersistence.FORMATO_VERSION
+                    + " (" + Configuracion.getAlmacenamiento().name().toLowerCase() + ")...");
+            // Se reescribe todo en el nuevo formato, incluido el historial
+            citas.cargarTodas();
+            horarios.cargarTodas();
+        }
+        if (migrar || reproducidos > 0) {
+            // Reescribe las instantáneas completas (la versión anterior queda en los .bak)
+            DataJournal.compactar(LoteCambios.capturar(this, true, true));
+        }
+    }
+    
+    /**
+     * Los archivos guardan las entidades relacionadas por ID (o como copias embebidas
+     * en el formato v1); aquí se reemplazan por las instancias de los mapas principales,
+     * de modo que una edición en un paciente o una cita se refleje en todas sus
+     * referencias y cada colección pueda guardarse por separado
+     */
+    private void enlazarReferencias() {
+        for (Cita cita : citas.values()) {
+            if (cita.getPaciente() != null && pacientes.containsKey(cita.getPaciente().getId())) {
+                cita.setPaciente(pacientes.get(cita.getPaciente().getId()));
+            }
+            if (cita.getOdontologo() != null && odontologos.containsKey(cita.getOdontologo().getId())) {
+                cita.setOdontologo(odontologos.get(cita.getOdontologo().getId()));
+            }
+        }
+        for (Horario horario : horarios.values()) {
+            if (horario.getOdontologo() != null && odontologos.containsKey(horario.getOdontologo().getId())) {
+                horario.setOdontologo(odontologos.get(horario.getOdontologo().getId()));
+            }
+        }
+        for (Factura factura : facturas.values()) {
+            // Las citas de meses sin cargar se enlazan al leer su partición
+            if (factura.getCita() != null && citas.getCargada(factura.getCita().getId()) != null) {
+                factura.setCita(citas.getCargada(factura.getCita().getId()));
+            }
+            if (factura.getPaciente() != null && pacientes.containsKey(factura.getPaciente().getId())) {
+                factura.setPaciente(pacientes.get(factura.getPaciente().getId()));
+            }
+        }
+    }
+    
+    // ========== ÍNDICES ==========
+    
+    /**
+     * Clave del índice de horarios: un turno por odontólogo, fecha y hora
+     */
+    private record ClaveHorario(int idOdontologo, LocalDate fecha, LocalTime hora) {
+        
+        static ClaveHorario de(Horario horario) {
+            if (horario.getOdontologo() == null || horario.getFecha() == null || horario.getHora() == null) {
+                return null;
+            }
+            return new ClaveHorario(horario.getOdontologo().getId(), horario.getFecha(), horario.getHora());
+        }
+    }
+    
+    /**
+     * Orden de citas y horarios en los índices: fecha y hora
+     */
+    private static LocalDateTime momento(LocalDate fecha, LocalTime hora) {
+        if (fecha == null) {
+            return null;
+        }
+        return hora != null ? fecha.atTime(hora) : fecha.atStartOfDay();
+    }
+    
+    /**
+     * Clave del índice de expedientes: sin espacios al inicio o final y sin
+     * distinguir mayúsculas (como la comparación con equalsIgnoreCase)
+     */
+    private static String normalizarExpediente(String expediente) {
+        if (expediente == null || expediente.isBlank()) {
+            return null;
+        }
+        return expediente.strip().toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+    
+    private static Integer odontologoDe(Horario horario) {
+        return horario.getOdontologo() != null ? horario.getOdontologo().getId() : null;
+    }
+    
+    /**
+     * Crea los índices de la colección sobre su tabla (una sola vez: al recargar,
+     * la tabla los actualiza junto con su contenido)
+     */
+    private void indexar(Coleccion coleccion) {
+        switch (coleccion) {
+            case PACIENTES -> {
+                // Estricto: no se puede agregar un paciente con un expediente ya usado
+                pacientesPorExpediente = new IndiceUnico<>(
+                        p -> normalizarExpediente(p.getNumeroExpediente()), true);
+                pacientesPorNombre = new IndiceNombres<>();
+                pacientesPorTelefono = new IndiceTelefonos<>();
+                pacientes.agregarIndice(pacientesPorExpediente);
+                pacientes.agregarIndice(pacientesPorNombre);
+                pacientes.agregarIndice(pacientesPorTelefono);
+            }
+            case ODONTOLOGOS -> {
+                odontologosPorNombre = new IndiceNombres<>();
+                odontologosPorTelefono = new IndiceTelefonos<>();
+                odontologos.agregarIndice(odontologosPorNombre);
+                odontologos.agregarIndice(odontologosPorTelefono);
+            }
+            case HORARIOS -> {
+                horariosPorTurno = new IndiceUnico<>(ClaveHorario::de);
+                horariosPorOdontologo = new IndiceMultiple<>(Database::odontologoDe,
+                        h -> momento(h.getFecha(), h.getHora()));
+                horariosLibresPorOdontologo = new IndiceMultiple<>(Database::odontologoDe,
+                        h -> momento(h.getFecha(), h.getHora()), Horario::isDisponible);
+                horarios.agregarIndice(horariosPorTurno);
+                horarios.agregarIndice(horariosPorOdontologo);
+                horarios.agregarIndice(horariosLibresPorOdontologo);
+            }
+            case CITAS -> {
+                citasPorPaciente = new IndiceMultiple<>(
+                        c -> c.getPaciente() != null ? c.getPaciente().getId() : null,
+                        c -> momento(c.getFecha(), c.getHora()));
+                citasPorOdontologo = new IndiceMultiple<>(
+                        c -> c.getOdontologo() != null ? c.getOdontologo().getId() : null,
+                        c -> momento(c.getFecha(), c.getHora()));
+                citasPorEstado = IndiceMultiple.porEnum(EstadoCita.class, Cita::getEstado,
+                        c -> momento(c.getFecha(), c.getHora()));
+                calendarioCitas = new CalendarioOcupacion();
+                citas.agregarIndice(citasPorPaciente);
+                citas.agregarIndice(citasPorOdontologo);
+                citas.agregarIndice(citasPorEstado);
+                citas.agregarIndice(calendarioCitas);
+            }
+            case FACTURAS -> {
+                facturasPorCita = new IndiceMultiple<>(
+                        f -> f.getCita() != null ? f.getCita().getId() : null, Factura::getId);
+                facturas.agregarIndice(facturasPorCita);
+            }
+            default -> {
+            }
+        }
     }
+    
+    // ========== PARTICIONES MENSUALES ==========
+    
+    /**
+     * Particiones que se cargan al iniciar: el mes actual, los siguientes y las sin fecha
+     */
+    private static boolean esParticionVigente(String particion) {
+        return particion.equals(TablaParticionada.SIN_FECHA)
+                || particion.compareTo(YearMonth.now().toString()) >= 0;
+    }
+    
+    /**
+     * Lee una partición de citas de un mes anterior y enlaza sus referencias
+     */
+    private Map<Integer, Cita> leerParticionCitas(String particion) {
+        Map<Integer, Cita> leidas = DataPersistence.cargarParticion(Coleccion.CITAS, particion);
+        if (leidas == null) {
+            return null;
+        }
+        for (Cita cita : leidas.values()) {
+            if (cita.getPaciente() != null && pacientes.containsKey(cita.getPaciente().getId())) {
+                cita.setPaciente(pacientes.get(cita.getPaciente().getId()));
+            }
+            if (cita.getOdontologo() != null && odontologos.containsKey(cita.getOdontologo().getId())) {
+                cita.setOdontologo(odontologos.get(cita.getOdontologo().getId()));
+            }
+        }
+        for (Factura factura : facturas.values()) {
+            Cita cita = factura.getCita() != null ? leidas.get(factura.getCita().getId()) : null;
+            if (cita != null && particion.equals(citas.getIndice().get(cita.getId()))) {
+                // Solo se reemplaza la referencia provisional: la factura no cambia en disco
+                ObservadorEntidad observador = factura.getObservador();
+                factura.setObservador(null);
+                factura.setCita(cita);
+                factura.setObservador(observador);
+            }
+        }
+        return leidas;
+    }
+    
+    private Map<Integer, Horario> leerParticionHorarios(String particion) {
+        Map<Integer, Horario> leidos = DataPersistence.cargarParticion(Coleccion.HORARIOS, particion);
+        if (leidos == null) {
+            return null;
+        }
+        for (Horario horario : leidos.values()) {
+            if (horario.getOdontologo() != null && odontologos.containsKey(horario.getOdontologo().getId())) {
+                horario.setOdontologo(odontologos.get(horario.getOdontologo().getId()));
+            }
+        }
+        return leidos;
+    }
+    
+    /**
+     * Carga todas las citas de meses anteriores (para consultas sobre el historial completo)
+     */
+    public void cargarHistorialCitas() {
+        citas.cargarTodas();
+    }
+    
+    
 
     private void poblarDatosFalsos() {
         // 1. Crear Odontólogos
@@ -140,7 +489,7 @@ public class Database {
         // 4. Crear Citas (algunas ocupan horarios)
         // Cita 1
         Cita c1 = new Cita();
-        c1.setId(nextCitaId++);
+        c1.setId(generarProximoIdCita());
         c1.setPaciente(p1);
         c1.setOdontologo(o1);
         c1.setFecha(hoy.plusDays(1));
@@ -153,7 +502,7 @@ public class Database {
         
         // Cita 2
         Cita c2 = new Cita();
-        c2.setId(nextCitaId++);
+        c2.setId(generarProximoIdCita());
         c2.setPaciente(p2);
         c2.setOdontologo(o1);
         c2.setFecha(hoy.plusDays(1));
@@ -166,7 +515,7 @@ public class Database {
         
         // Cita 3
         Cita c3 = new Cita();
-        c3.setId(nextCitaId++);
+        c3.setId(generarProximoIdCita());
         c3.setPaciente(p1);
         c3.setOdontologo(o2);
         c3.setFecha(hoy.plusDays(2));
@@ -180,7 +529,7 @@ public class Database {
         // 5. Crear Facturas
         // Factura 1 para Cita 1
         Factura f1 = new Factura();
-        f1.setId(nextFacturaId++);
+        f1.setId(generarProximoIdFactura());
         f1.setMonto(150.00);
         f1.setCita(c1);
         f1.setPaciente(p1);
@@ -188,7 +537,7 @@ public class Database {
         
         // Factura 2 para Cita 2
         Factura f2 = new Factura();
-        f2.setId(nextFacturaId++);
+        f2.setId(generarProximoIdFactura());
         f2.setMonto(200.00);
         f2.setCita(c2);
         f2.setPaciente(p2);
@@ -196,42 +545,163 @@ public class Database {
         
         // Factura 3 para Cita 3
         Factura f3 = new Factura();
-        f3.setId(nextFacturaId++);
+        f3.setId(generarProximoIdFactura());
         f3.setMonto(300.00);
         f3.setCita(c3);
         f3.setPaciente(p1);
         facturas.put(f3.getId(), f3);
-          nextPacienteId = 103;
+        // Los pacientes y odontólogos de prueba tienen IDs fijos
+        avanzarContadorSobreIds(Coleccion.PACIENTES);
+        avanzarContadorSobreIds(Coleccion.ODONTOLOGOS);
     }
 
-    public void recargarDesdeArchivos() {
-    if (DataPersistence.existenDatosGuardados()) {
-        pacientes = DataPersistence.cargarPacientes();
-        odontologos = DataPersistence.cargarOdontologos();
-        citas = DataPersistence.cargarCitas();
-        facturas = DataPersistence.cargarFacturas();
-        horarios = DataPersistence.cargarHorarios();
-
-        Map<String, Integer> counters = DataPersistence.cargarContadores();
-        nextCitaId = counters.getOrDefault("nextCitaId", nextCitaId);
-        nextFacturaId = counters.getOrDefault("nextFacturaId", nextFacturaId);
-        nextHorarioId = counters.getOrDefault("nextHorarioId", nextHorarioId);
-        nextPacienteId = counters.getOrDefault("nextPacienteId", nextPacienteId); // AGREGAR ESTA LÍNEA
+    /**
+     * Recarga solo las colecciones cuyos archivos fueron modificados por otro proceso
+     * Si nada cambió no lee ningún archivo; las colecciones sin cambios conservan
+     * sus instancias y solo se vuelven a enlazar las referencias hacia las recargadas.
+     * @return true si se recargó alguna colección o los contadores
+     */
+    public boolean recargarCambiosExternos() {
+        if (!DataPersistence.hayCambiosExternos()) {
+            return false;
+        }
+        return conTodoBloqueado(this::recargarModificados);
+    }
+    
+    private boolean recargarModificados() {
+        // Un guardado en curso también cambia los archivos: al terminar registra sus marcas
+        esperarGuardado();
+        
+        Set<Coleccion> colecciones = EnumSet.noneOf(Coleccion.class);
+        boolean contadores = false;
+        boolean journal = false;
+        for (Path archivo : DataPersistence.tomarArchivosModificados()) {
+            Coleccion coleccion = DataPersistence.coleccionDe(archivo);
+            if (DataJournal.esJournal(archivo)) {
+                journal = true;
+            } else if (coleccion != null) {
+                colecciones.add(coleccion);
+            } else {
+                contadores = true;
+            }
+        }
+        if (colecciones.isEmpty() && !contadores && !journal) {
+            return false;
+        }
+        
+        if (journal) {
+            // Los registros de otro proceso pueden tocar cualquier colección: se
+            // releen las instantáneas y se reproduce el journal completo
+            Map<Coleccion, List<? extends Entidad>> anteriores = capturarEntidades(EnumSet.allOf(Coleccion.class));
+            cargarDesdeArchivos();
+            heredarVersiones(anteriores);
+            System.out.println("✓ Recargados por cambios externos: journal");
+            return true;
+        }
+        if (contadores) {
+            aplicarContadores(DataPersistence.cargarContadores());
+        }
+        Map<Coleccion, List<? extends Entidad>> anteriores = capturarEntidades(colecciones);
+        for (Coleccion coleccion : colecciones) {
+            recargarColeccion(coleccion);
+            avanzarContadorSobreIds(coleccion);
+        }
+        enlazarReferencias();
+        heredarVersiones(anteriores);
+        limpiarCambios();
+        System.out.println("✓ Recargados por cambios externos: "
+                + (colecciones.isEmpty() ? "contadores" : colecciones));
+        return true;
     }
+    
+    private void recargarColeccion(Coleccion coleccion) {
+        switch (coleccion) {
+            case PACIENTES -> pacientes.recargar(vacioSiNulo(DataPersistence.cargarPacientes()));
+            case ODONTOLOGOS -> odontologos.recargar(vacioSiNulo(DataPersistence.cargarOdontologos()));
+            case FACTURAS -> facturas.recargar(vacioSiNulo(DataPersistence.cargarFacturas()));
+            case CITAS -> {
+                resumenCitas = vacioSiNulo(DataPersistence.cargarResumenCitas());
+                recargarParticionada(coleccion, citas, DataPersistence::cargarCitas);
+            }
+            case HORARIOS -> recargarParticionada(coleccion, horarios, DataPersistence::cargarHorarios);
+        }
+    }
+    
+    /**
+     * Vuelve a leer el índice y las particiones que estaban en memoria
+     * (o el archivo completo si la colección aún no está particionada)
+     */
+    private <V extends Entidad> void recargarParticionada(Coleccion coleccion, TablaParticionada<V> tabla,
+            Supplier<Map<Integer, V>> sinParticionar) {
+        Map<Integer, String> indice = DataPersistence.cargarIndice(coleccion);
+        Set<String> cargadas = new HashSet<>(tabla.getParticionesCargadas());
+        Predicate<String> enMemoria = p -> cargadas.contains(p) || esParticionVigente(p);
+        Map<Integer, V> datos = indice != null
+                ? DataPersistence.cargarParticiones(coleccion, indice, enMemoria)
+                : sinParticionar.get();
+        tabla.recargar(vacioSiNulo(datos), indice, DataPersistence.listarParticiones(coleccion), enMemoria);
+    }
+    
+    /**
+     * Entidades en memoria de las colecciones, antes de recargarlas
+     */
+    private Map<Coleccion, List<? extends Entidad>> capturarEntidades(Set<Coleccion> colecciones) {
+        Map<Coleccion, List<? extends Entidad>> entidades = new EnumMap<>(Coleccion.class);
+        for (Coleccion coleccion : colecciones) {
+            entidades.put(coleccion, getTabla(coleccion).instantanea());
+        }
+        return entidades;
+    }
+    
+    /**
+     * Cada entidad releída continúa la versión de la instancia que reemplaza: la
+     * misma si su contenido no cambió y una mayor si otro proceso la modificó.
+     * Sin esto la versión volvería a empezar y una edición iniciada antes de la
+     * recarga podría pisar el cambio externo. Se invoca después de enlazar las
+     * referencias (enlazarlas también avanza las versiones).
+     */
+    private void heredarVersiones(Map<Coleccion, List<? extends Entidad>> anteriores) {
+        Gson gson = CitaSerializer.getGsonCompacto();
+        for (Map.Entry<Coleccion, List<? extends Entidad>> entry : anteriores.entrySet()) {
+            TablaEntidades<? extends Entidad> tabla = getTabla(entry.getKey());
+            for (Entidad anterior : entry.getValue()) {
+                // Solo las cargadas: una partición sin leer no tiene ediciones en curso
+                Entidad actual = tabla instanceof TablaParticionada<?> particionada
+                        ? particionada.getCargada(anterior.getId())
+                        : tabla.get(anterior.getId());
+                if (actual != null && actual != anterior) {
+                    actual.heredarVersion(anterior, !gson.toJson(anterior).equals(gson.toJson(actual)));
+                }
+            }
+        }
+    }
+    
+    private static <K, V> Map<K, V> vacioSiNulo(Map<K, V> datos) {
+        return datos != null ? datos : new HashMap<>();
+    }
+    
+    public void recargarDesdeArchivos() {
+    conTodoBloqueado(() -> {
+        // Lo que aún no llegó a disco se perdería al releer los archivos
+        esperarGuardado();
+        if (DataPersistence.existenDatosGuardados()) {
+            Map<Coleccion, List<? extends Entidad>> anteriores = capturarEntidades(EnumSet.allOf(Coleccion.class));
+            cargarDesdeArchivos();
+            heredarVersiones(anteriores);
+        }
+        return null;
+    });
 }
 
-public void recalcularNextCitaId() {
-    if (citas.isEmpty()) {
-        nextCitaId = 1;
-        System.out.println("NextCitaId establecido a 1 (no hay citas)");
-    } else {
-        int maxId = citas.keySet().stream()
-                .mapToInt(Integer::intValue)
-                .max()
-                .orElse(0);
-        nextCitaId = maxId + 1;
-        System.out.println("NextCitaId recalculado: " + nextCitaId);
-    }
+/**
+ * Ejecuta la operación sin que otro hilo modifique los datos: bloquea todas las
+ * agendas y luego todas las tablas (siempre en este orden, el mismo que siguen
+ * las reservas). Al recargar, así ningún cambio se escribe entre el último
+ * guardado y la relectura de los archivos, ni pierde su marca de pendiente.
+ */
+private <T> T conTodoBloqueado(Supplier<T> operacion) {
+    return agendas.conTodas(() -> pacientes.exclusivo(() -> odontologos.exclusivo(
+            () -> citas.exclusivo(() -> facturas.exclusivo(() -> horarios.exclusivo(operacion))))));
 }
 
 public boolean eliminarCita(int idCita) {
@@ -242,7 +712,6 @@ public boolean eliminarCita(int idCita) {
         
         // Eliminar factura asociada si existe
         eliminarFacturaPorCita(idCita);
-        recalcularNextCitaId();
         guardarDatos(); // Guardar cambios
         return true;
     }
@@ -250,19 +719,22 @@ public boolean eliminarCita(int idCita) {
 }
 
 private void liberarHorario(LocalDate fecha, LocalTime hora, Odontologo odontologo) {
-    horarios.values().stream()
-            .filter(h -> h.getFecha().equals(fecha) 
-                    && h.getHora().equals(hora)
-                    && h.getOdontologo().getId() == odontologo.getId())
-            .findFirst()
-            .ifPresent(Horario::marcarDisponible);
+    Horario horario = odontologo != null ? buscarHorario(odontologo.getId(), fecha, hora) : null;
+    if (horario != null) {
+        horario.liberar();
+    }
 }
 
-private void eliminarFacturaPorCita(int idCita) {
-    facturas.entrySet().removeIf(entry -> 
-        entry.getValue().getCita() != null && 
-        entry.getValue().getCita().getId() == idCita
-    );
+/**
+ * Elimina las facturas de una cita (mediante el índice por cita)
+ * @return las facturas eliminadas
+ */
+public List<Factura> eliminarFacturaPorCita(int idCita) {
+    List<Factura> eliminadas = facturas.leer(() -> facturasPorCita.get(idCita));
+    for (Factura factura : eliminadas) {
+        facturas.remove(factura.getId());
+    }
+    return eliminadas;
 }
 
 
@@ -274,7 +746,7 @@ private void eliminarFacturaPorCita(int idCita) {
     
     private void crearHorario(LocalDate fecha, LocalTime hora, Odontologo odontologo) {
         Horario h = new Horario();
-        h.setId(nextHorarioId++);
+        h.setId(generarProximoIdHorario());
         h.setFecha(fecha);
         h.setHora(hora);
         h.setOdontologo(odontologo);
@@ -283,53 +755,331 @@ private void eliminarFacturaPorCita(int idCita) {
     }
     
     private void marcarHorarioOcupado(LocalDate fecha, LocalTime hora, Odontologo odontologo) {
-        horarios.values().stream()
-                .filter(h -> h.getFecha().equals(fecha) 
-                        && h.getHora().equals(hora)
-                        && h.getOdontologo().getId() == odontologo.getId())
-                .findFirst()
-                .ifPresent(Horario::marcarOcupado);
+        Horario horario = buscarHorario(odontologo.getId(), fecha, hora);
+        if (horario != null) {
+            horario.marcarOcupado();
+        }
+    }
+    
+    /**
+     * Horario de un odontólogo en una fecha y hora, buscado en el índice (O(1))
+     * Si la fecha es de un mes sin cargar, primero se lee esa partición.
+     * @return el horario, o null si el odontólogo no tiene ese turno
+     */
+    public Horario buscarHorario(int idOdontologo, LocalDate fecha, LocalTime hora) {
+        if (fecha == null || hora == null) {
+            return null;
+        }
+        horarios.cargarMes(fecha);
+        return horarios.leer(() -> horariosPorTurno.get(new ClaveHorario(idOdontologo, fecha, hora)));
     }
 
     // ========== GETTERS Y MÉTODOS DE ACCESO ==========
     
   
+    /**
+     * Busca un paciente por número de expediente sin distinguir mayúsculas (O(1))
+     * @return el paciente, o null si no existe
+     */
+    public Paciente getPacientePorExpediente(String numeroExpediente) {
+        String clave = normalizarExpediente(numeroExpediente);
+        return clave != null ? pacientes.leer(() -> pacientesPorExpediente.get(clave)) : null;
+    }
+    
+    /**
+     * Busca pacientes por nombre sin distinguir acentos ni mayúsculas, por
+     * prefijo de cada palabra y tolerando un error de tipeo
+     * @return los pacientes de mejor a peor coincidencia (todos si el texto está vacío)
+     */
+    public List<Paciente> buscarPacientesPorNombre(String texto, int limite) {
+        return pacientes.leer(() -> pacientesPorNombre.buscar(texto, limite));
+    }
+    
+    /**
+     * Igual que {@link #buscarPacientesPorNombre(String, int)}, sobre los odontólogos
+     */
+    public List<Odontologo> buscarOdontologosPorNombre(String texto, int limite) {
+        return odontologos.leer(() -> odontologosPorNombre.buscar(texto, limite));
+    }
+    
+    /**
+     * @return los pacientes con exactamente ese teléfono (búsqueda binaria, sin recorrer la tabla)
+     */
+    public List<Paciente> getPacientesPorTelefono(int telefono) {
+        return pacientes.leer(() -> pacientesPorTelefono.get(telefono));
+    }
+    
+    /**
+     * Pacientes cuyo teléfono termina en los dígitos escritos (identificar a quien llama)
+     */
+    public List<Paciente> buscarPacientesPorFinTelefono(String digitos, int limite) {
+        return pacientes.leer(() -> pacientesPorTelefono.terminadosEn(digitos, limite));
+    }
+    
+    /**
+     * @return los odontólogos con exactamente ese teléfono
+     */
+    public List<Odontologo> getOdontologosPorTelefono(int telefono) {
+        return odontologos.leer(() -> odontologosPorTelefono.get(telefono));
+    }
+    
+    /**
+     * Odontólogos cuyo teléfono termina en los dígitos escritos
+     */
+    public List<Odontologo> buscarOdontologosPorFinTelefono(String digitos, int limite) {
+        return odontologos.leer(() -> odontologosPorTelefono.terminadosEn(digitos, limite));
+    }
+    
+    /**
+     * Ejecuta una operación de "comprobar y modificar" con todo bloqueado, después
+     * de recargar lo que otros procesos guardaron en disco: la versión que se
+     * compara incluye sus cambios y ninguno se escribe entre la recarga y la operación
+     * Las entidades se deben buscar dentro de la operación (la recarga las reemplaza).
+     * @return el resultado de la operación
+     */
+    public <T> T conDatosAlDia(Supplier<T> operacion) {
+        return conTodoBloqueado(() -> {
+            recargarCambiosExternos();
+            return operacion.get();
+        });
+    }
+    
+    /**
+     * Ejecuta una operación de "comprobar y modificar" sobre los pacientes con la
+     * tabla bloqueada (por ejemplo, validar el expediente y asignarlo): ningún otro
+     * hilo puede agregar o modificar pacientes entre la comprobación y el cambio
+     * @return el resultado de la operación
+     */
+    public <T> T conPacientesBloqueados(Supplier<T> operacion) {
+        return pacientes.exclusivo(operacion);
+    }
+    
+    /**
+     * @return true si el expediente pertenece a un paciente distinto del indicado
+     *         (usar -1 al agregar un paciente nuevo)
+     */
+    public boolean expedienteEnUso(String numeroExpediente, int idPacienteExcluido) {
+        String clave = normalizarExpediente(numeroExpediente);
+        return clave != null && pacientes.leer(() -> pacientesPorExpediente.enUsoPorOtra(clave, idPacienteExcluido));
+    }
+    
     public Map<Integer, Factura> getFacturas() {
         return facturas;
     }
     
     public Factura getFacturaPorIdCita(int idCita) {
-    return facturas.values().stream()
-        .filter(f -> f.getCita() != null && f.getCita().getId() == idCita)
-        .findFirst()
-        .orElse(null);
-}
+        // Si la cita es de un mes sin cargar, al leerla se enlaza con su factura
+        citas.get(idCita);
+        // Si hubiera más de una, la de menor ID
+        return facturas.leer(() -> facturasPorCita.primero(idCita));
+    }
+    
+    /**
+     * Historial de citas del paciente ordenado por fecha y hora
+     * De los meses anteriores solo se leen los que, según su resumen, tienen citas del paciente.
+     */
+    public List<Cita> getCitasPorPaciente(int idPaciente) {
+        cargarMesesCitas(particion -> true, mes -> mes.tienePaciente(idPaciente));
+        return citas.leer(() -> citasPorPaciente.get(idPaciente));
+    }
+    
+    /**
+     * Agenda del odontólogo (todas sus citas) ordenada por fecha y hora
+     * De los meses anteriores solo se leen los que, según su resumen, tienen citas del odontólogo.
+     */
+    public List<Cita> getCitasPorOdontologo(int idOdontologo) {
+        cargarMesesCitas(particion -> true, mes -> mes.tieneOdontologo(idOdontologo));
+        return citas.leer(() -> citasPorOdontologo.get(idOdontologo));
+    }
+    
+    /**
+     * Ejecuta una operación de "comprobar y reservar" sobre la agenda del odontólogo
+     * Las operaciones para un mismo odontólogo se hacen de a una (así un turno libre
+     * no se asigna dos veces); las de odontólogos distintos avanzan en paralelo.
+     * @return el resultado de la operación
+     */
+    public <T> T conAgendaBloqueada(int idOdontologo, Supplier<T> operacion) {
+        return agendas.conAgenda(idOdontologo, operacion);
+    }
+    
+    /**
+     * @return true si el odontólogo ya tiene una cita activa (no cancelada) en esa fecha y hora
+     */
+    public boolean turnoOcupado(int idOdontologo, LocalDate fecha, LocalTime hora) {
+        return turnoOcupado(idOdontologo, fecha, hora, -1);
+    }
+    
+    /**
+     * Igual que {@link #turnoOcupado(int, LocalDate, LocalTime)} sin contar la cita
+     * indicada (para reprogramarla)
+     */
+    public boolean turnoOcupado(int idOdontologo, LocalDate fecha, LocalTime hora, int idCitaIgnorada) {
+        if (fecha != null) {
+            citas.cargarMes(fecha);
+        }
+        return citas.leer(() -> calendarioCitas.estaOcupado(idOdontologo, fecha, hora, idCitaIgnorada));
+    }
+    
+    /**
+     * Primera hora en [desde, hasta) a partir de la cual el odontólogo no tiene
+     * ninguna cita que empiece en los siguientes {@code minutos}
+     * @return la hora, o null si no hay hueco ese día
+     */
+    public LocalTime buscarPrimerHueco(int idOdontologo, LocalDate fecha, LocalTime desde, LocalTime hasta, int minutos) {
+        citas.cargarMes(fecha);
+        return citas.leer(() -> calendarioCitas.primerHueco(idOdontologo, fecha, desde, hasta, minutos));
+    }
+    
+    /**
+     * Citas en ese estado ordenadas por fecha y hora, tomadas directamente de su grupo
+     * De los meses anteriores solo se leen los que, según su resumen, tienen citas en ese estado.
+     */
+    public List<Cita> getCitasPorEstado(EstadoCita estado) {
+        cargarMesesCitas(particion -> true, mes -> mes.cantidad(estado) > 0);
+        return citas.leer(() -> citasPorEstado.get(estado));
+    }
+    
+    /**
+     * Citas en ese estado desde una fecha (inclusive) en adelante, ordenadas por fecha y hora
+     * Solo se leen de disco los meses anteriores al actual que abarca el rango y
+     * tienen citas en ese estado.
+     */
+    public List<Cita> getCitasPorEstado(EstadoCita estado, LocalDate desde) {
+        String primerMes = YearMonth.from(desde).toString();
+        cargarMesesCitas(particion -> !particion.equals(TablaParticionada.SIN_FECHA) && particion.compareTo(primerMes) >= 0,
+                mes -> mes.cantidad(estado) > 0);
+        return citas.leer(() -> citasPorEstado.rango(estado, desde.atStartOfDay(), null, 0, Integer.MAX_VALUE));
+    }
+    
+    /**
+     * @return cantidad de citas en ese estado, sin recorrerlas: las de los meses
+     *         cargados salen del índice y las de los demás, de su resumen
+     */
+    public int contarCitasPorEstado(EstadoCita estado) {
+        return conResumenCitas(sinCargar -> {
+            int cantidad = citasPorEstado.cantidad(estado);
+            for (ResumenMes mes : sinCargar) {
+                cantidad += mes.cantidad(estado);
+            }
+            return cantidad;
+        });
+    }
+    
+    /**
+     * @return true si el paciente tiene alguna cita (de los meses sin cargar se consulta el resumen)
+     */
+    public boolean pacienteTieneCitas(int idPaciente) {
+        return conResumenCitas(sinCargar -> citasPorPaciente.contiene(idPaciente)
+                || sinCargar.stream().anyMatch(mes -> mes.tienePaciente(idPaciente)));
+    }
+    
+    /**
+     * @return true si el odontólogo tiene alguna cita (de los meses sin cargar se consulta el resumen)
+     */
+    public boolean odontologoTieneCitas(int idOdontologo) {
+        return conResumenCitas(sinCargar -> citasPorOdontologo.contiene(idOdontologo)
+                || sinCargar.stream().anyMatch(mes -> mes.tieneOdontologo(idOdontologo)));
+    }
+    
+    /**
+     * Consulta los índices de citas (meses cargados) junto con el resumen de los
+     * meses sin cargar, con la tabla bloqueada: ningún mes se carga ni se recarga
+     * el resumen a mitad de la consulta (los que no tienen resumen se leen antes)
+     */
+    private <T> T conResumenCitas(Function<List<ResumenMes>, T> consulta) {
+        return citas.exclusivo(() -> {
+            cargarMesesCitas(particion -> true, mes -> false);
+            List<ResumenMes> sinCargar = new ArrayList<>();
+            for (String particion : citas.getParticionesSinCargar()) {
+                sinCargar.add(resumenCitas.get(particion));
+            }
+            return consulta.apply(sinCargar);
+        });
+    }
+    
+    /**
+     * Lee de disco los meses de citas sin cargar que cumplen los criterios, y
+     * también los que no tienen resumen (no puede saberse qué contienen)
+     * @param particiones meses a considerar
+     * @param resumen indica, según el resumen del mes, si hay que leerlo
+     */
+    private void cargarMesesCitas(Predicate<String> particiones, Predicate<ResumenMes> resumen) {
+        Map<String, ResumenMes> resumenes = resumenCitas;
+        for (String particion : citas.getParticionesSinCargar()) {
+            ResumenMes mes = resumenes.get(particion);
+            if (particiones.test(particion) && (mes == null || resumen.test(mes))) {
+                citas.cargarParticion(particion);
+            }
+        }
+    }
     
     public Map<Integer, Cita> getCitas() { 
         return citas; 
     }
     
+    /**
+     * Horarios libres del odontólogo en [desde, hasta), ordenados por fecha y hora
+     * Es un recorrido de rango sobre su agenda, sin filtrar ni ordenar todos los horarios.
+     * @param desde inicio inclusivo, o null para no acotar
+     * @param hasta fin exclusivo, o null para no acotar
+     * @param omitir resultados que se saltan (páginas anteriores)
+     * @param limite tamaño máximo de la página
+     */
+    public List<Horario> getHorariosDisponibles(int idOdontologo, LocalDateTime desde, LocalDateTime hasta,
+                                                int omitir, int limite) {
+        // Si el rango empieza en un mes anterior, se cargan esos meses
+        if (desde == null) {
+            horarios.cargarTodas();
+        } else {
+            for (YearMonth mes = YearMonth.from(desde); mes.isBefore(YearMonth.now()); mes = mes.plusMonths(1)) {
+                horarios.cargarMes(mes.atDay(1));
+            }
+        }
+        return horarios.leer(() -> horariosLibresPorOdontologo.rango(idOdontologo, desde, hasta, omitir, limite));
+    }
+    
+    /**
+     * Todos los horarios del odontólogo (libres y ocupados), ordenados por fecha y hora
+     */
+    public List<Horario> getHorariosPorOdontologo(int idOdontologo) {
+        horarios.cargarTodas();
+        return horarios.leer(() -> horariosPorOdontologo.get(idOdontologo));
+    }
+    
     public Map<Integer, Horario> getHorarios() {
         return horarios;
     }
     
+    /**
+     * Entrega un ID nuevo para la colección; nunca repite uno ya entregado
+     */
+    public int generarProximoId(Coleccion coleccion) {
+        return generadores.get(coleccion).siguiente();
+    }
+    
     public int generarProximoIdCita() { 
-        return nextCitaId++; 
+        return generarProximoId(Coleccion.CITAS);
     }
     
     public int generarProximoIdHorario() {
-        return nextHorarioId++;
+        return generarProximoId(Coleccion.HORARIOS);
     }
     
     public int generarProximoIdFactura() {
-        return nextFacturaId++;
+        return generarProximoId(Coleccion.FACTURAS);
     }
+    
     public int generarProximoIdPaciente() {
-    return nextPacienteId++;
-}
-public int getNextPacienteId() {
-    return nextPacienteId;
-}
+        return generarProximoId(Coleccion.PACIENTES);
+    }
+    
+    public int generarProximoIdOdontologo() {
+        return generarProximoId(Coleccion.ODONTOLOGOS);
+    }
+    
+    public int getNextPacienteId() {
+        return generadores.get(Coleccion.PACIENTES).getSiguiente();
+    }
 
     public Map<Integer, Paciente> getPacientes() { 
         return pacientes; 
@@ -339,17 +1089,140 @@ public int getNextPacienteId() {
         return odontologos; 
     }
     
+    // ========== INSTANTÁNEAS DE SOLO LECTURA ==========
+    // Listas inmutables ordenadas por ID para tablas, reportes y exportaciones:
+    // se recorren sin bloqueos ni copias mientras otros hilos siguen escribiendo
+    
+    public List<Paciente> getInstantaneaPacientes() {
+        return pacientes.instantanea();
+    }
+    
+    public List<Odontologo> getInstantaneaOdontologos() {
+        return odontologos.instantanea();
+    }
+    
+    /**
+     * Citas de los meses cargados (ver {@link #cargarHistorialCitas()})
+     */
+    public List<Cita> getInstantaneaCitas() {
+        return citas.instantanea();
+    }
+    
+    /**
+     * Citas del mes actual en adelante y las sin fecha, ordenadas por ID, aunque
+     * se haya cargado el historial (no lee meses anteriores)
+     */
+    public List<Cita> getCitasVigentes() {
+        return citas.instantanea().stream()
+                .filter(cita -> esParticionVigente(TablaParticionada.particionDe(cita.getFecha())))
+                .toList();
+    }
+    
+    public List<Horario> getInstantaneaHorarios() {
+        return horarios.instantanea();
+    }
+    
+    public List<Factura> getInstantaneaFacturas() {
+        return facturas.instantanea();
+    }
+    
     // ========== MÉTODOS PARA OBTENER CONTADORES (usados por DataPersistence) ==========
     
     public int getNextCitaId() {
-        return nextCitaId;
+        return generadores.get(Coleccion.CITAS).getSiguiente();
     }
     
     public int getNextFacturaId() {
-        return nextFacturaId;
+        return generadores.get(Coleccion.FACTURAS).getSiguiente();
     }
     
     public int getNextHorarioId() {
-        return nextHorarioId;
+        return generadores.get(Coleccion.HORARIOS).getSiguiente();
+    }
+    
+    /**
+     * Contadores de IDs tal como se guardan en counters.json
+     * Cada uno es el fin del bloque reservado, no el próximo ID a entregar.
+     */
+    public Map<String, Integer> getContadores() {
+        Map<String, Integer> counters = new LinkedHashMap<>();
+        for (Coleccion coleccion : Coleccion.values()) {
+            counters.put(coleccion.getClaveContador(), generadores.get(coleccion).getReservadoHasta());
+        }
+        return counters;
+    }
+    
+    /**
+     * Restaura los contadores de IDs leídos desde disco (counters.json o journal)
+     * Los contadores solo avanzan: un valor menor que el actual se ignora.
+     */
+    public void aplicarContadores(Map<String, Integer> counters) {
+        for (Coleccion coleccion : Coleccion.values()) {
+            Integer valor = counters.get(coleccion.getClaveContador());
+            if (valor != null) {
+                generadores.get(coleccion).avanzarHasta(valor);
+            }
+        }
+    }
+    
+    private Map<Coleccion, GeneradorIds> crearGeneradores() {
+        Map<Coleccion, GeneradorIds> porColeccion = new EnumMap<>(Coleccion.class);
+        for (Coleccion coleccion : Coleccion.values()) {
+            // Los pacientes de prueba ocupan los IDs 101 y 102
+            int inicial = coleccion == Coleccion.PACIENTES ? 103 : 1;
+            porColeccion.put(coleccion, new GeneradorIds(inicial, Configuracion.getBloqueIds(),
+                    () -> contadoresModificados = true));
+        }
+        return porColeccion;
+    }
+    
+    /**
+     * Lleva el contador de la colección por encima del mayor ID que contiene
+     * (incluidas las particiones sin cargar); se hace una vez por carga, no en cada alta
+     */
+    private void avanzarContadorSobreIds(Coleccion coleccion) {
+        Collection<Integer> ids = switch (coleccion) {
+            case CITAS -> citas.getIndice().keySet();
+            case HORARIOS -> horarios.getIndice().keySet();
+            default -> getTabla(coleccion).keySet();
+        };
+        int maximo = 0;
+        for (int id : ids) {
+            maximo = Math.max(maximo, id);
+        }
+        generadores.get(coleccion).avanzarHasta(maximo + 1);
+    }
+    
+    // ========== SEGUIMIENTO DE CAMBIOS (usado por DataPersistence y DataJournal) ==========
+    
+    /**
+     * Tabla que respalda la colección indicada
+     */
+    public TablaEntidades<? extends Entidad> getTabla(Coleccion coleccion) {
+        return switch (coleccion) {
+            case PACIENTES -> pacientes;
+            case ODONTOLOGOS -> odontologos;
+            case CITAS -> citas;
+            case HORARIOS -> horarios;
+            case FACTURAS -> facturas;
+        };
+    }
+    
+    public boolean hayContadoresModificados() {
+        return contadoresModificados;
+    }
+    
+    public void limpiarContadoresModificados() {
+        contadoresModificados = false;
+    }
+    
+    /**
+     * Marca todas las colecciones y los contadores como guardados
+     */
+    public void limpiarCambios() {
+        for (Coleccion coleccion : Coleccion.values()) {
+            getTabla(coleccion).limpiarCambios();
+        }
+        contadoresModificados = false;
     }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Clase base de las entidades persistidas (personas, citas, horarios y facturas)
+ * Notifica a su observador cuando se modifica alguno de sus campos, lo que
+ * permite a Database saber qué registros deben guardarse.
+ *
+ * Cada entidad lleva además un número de versión que aumenta con cada cambio,
+ * para el control de concurrencia optimista: quien edita recuerda la versión
+ * que leyó y, al guardar, {@link #reclamarVersion(int)} rechaza la escritura si
+ * otro la modificó mientras tanto.
+ */
+public abstract class Entidad implements Cloneable {
+
+    private static final VarHandle VERSION;
+
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(Entidad.class, "version", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // No se serializa: solo vincula la entidad con la tabla que la contiene
+    private transient ObservadorEntidad observador;
+    // Tampoco se serializa: vale para las ediciones concurrentes dentro de esta ejecución
+    private transient volatile int version;
+
+    public abstract int getId();
+
+    /**
+     * @return la versión actual; cambia cada vez que se modifica algún campo
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Toma la versión esperada para escribir, de forma atómica
+     * Si la entidad sigue en esa versión la avanza (así otra escritura que
+     * esperaba la misma versión falla) y devuelve true; si alguien la modificó
+     * después de leerla, devuelve false y no cambia nada.
+     */
+    public boolean reclamarVersion(int esperada) {
+        return VERSION.compareAndSet(this, esperada, esperada + 1);
+    }
+
+    /**
+     * La entidad reemplaza a otra con el mismo ID (por ejemplo, al recargar
+     * cambios externos): su versión queda por encima de la reemplazada, para
+     * que las ediciones que partieron de la anterior se rechacen
+     */
+    void continuarVersion(Entidad anterior) {
+        int minima = anterior.version + 1;
+        int actual = version;
+        while (actual < minima && !VERSION.compareAndSet(this, actual, minima)) {
+            actual = version;
+        }
+    }
+
+    /**
+     * La entidad se releyó de disco y ocupa el lugar de otra con su ID: conserva
+     * la versión de la anterior si no cambió, o queda por encima si otro proceso
+     * la modificó (así se rechazan las ediciones que partieron de la anterior)
+     */
+    void heredarVersion(Entidad anterior, boolean modificada) {
+        VERSION.setVolatile(this, modificada ? anterior.version + 1 : anterior.version);
+    }
+
+    /**
+     * Copia de los campos tal como están ahora, para escribirla en disco desde
+     * otro hilo sin que la alcancen los cambios posteriores
+     * Las entidades relacionadas se comparten (al guardar solo se usa su ID) y
+     * la copia no queda vinculada a ninguna tabla.
+     */
+    public Entidad copiar() {
+        try {
+            Entidad copia = (Entidad) super.clone();
+            copia.observador = null;
+            return copia;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    ObservadorEntidad getObservador() {
+        return observador;
+    }
+
+    void setObservador(ObservadorEntidad observador) {
+        this.observador = observador;
+    }
+
+    /**
+     * Avisa al observador (si existe) que la entidad cambió
+     */
+    protected void notificarCambio() {
+        VERSION.getAndAdd(this, 1);
+        ObservadorEntidad o = observador;
+        if (o != null) {
+            o.entidadModificada(this);
+        }
+    }
+}
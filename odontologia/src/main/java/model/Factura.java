@@ -1,6 +1,6 @@
 package model;
 
-public class Factura {
+public class Factura extends Entidad {
     private int id;
     private double monto;
     private Cita cita;
@@ -25,6 +25,7 @@ public class Factura {
 
     public void setId(int id) {
         this.id = id;
+        notificarCambio();
     }
 
     public double getMonto() {
@@ -33,6 +34,7 @@ public class Factura {
 
     public void setMonto(double monto) {
         this.monto = monto;
+        notificarCambio();
     }
 
     public Cita getCita() {
@@ -44,6 +46,7 @@ public class Factura {
         if (cita != null && cita.getPaciente() != null) {
             this.paciente = cita.getPaciente();
         }
+        notificarCambio();
     }
 
     public Paciente getPaciente() {
@@ -52,6 +55,7 @@ public class Factura {
 
     public void setPaciente(Paciente paciente) {
         this.paciente = paciente;
+        notificarCambio();
     }
 
     
@@ -0,0 +1,94 @@
+package model;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Generador de IDs monótono para un tipo de entidad (esquema hi/lo)
+ * Reserva los IDs por bloques: el valor que se guarda en counters.json es el
+ * fin del bloque reservado, así que solo hay que reescribir los contadores
+ * cuando se agota un bloque y no en cada alta. Los IDs que quedaron sin usar
+ * de un bloque al cerrar la aplicación se saltan (nunca se reutilizan), y un
+ * ID entregado no vuelve a entregarse aunque se elimine la entidad.
+ *
+ * Es seguro con varios hilos: la entrega y la reserva se hacen bajo un
+ * ReentrantLock, que no bloquea el hilo portador de un hilo virtual.
+ */
+public class GeneradorIds {
+
+    private final ReentrantLock bloqueo = new ReentrantLock();
+    private final int tamanoBloque;
+    // Se invoca (con el bloqueo tomado) cada vez que se reserva un bloque nuevo
+    private final Runnable alReservar;
+    private int siguiente;
+    // Fin exclusivo del bloque reservado; es el valor que se persiste
+    private int reservadoHasta;
+
+    /**
+     * @param inicial primer ID que se entrega si no hay contador guardado
+     * @param tamanoBloque cantidad de IDs que se reservan cada vez
+     * @param alReservar aviso de que el contador a persistir cambió
+     */
+    public GeneradorIds(int inicial, int tamanoBloque, Runnable alReservar) {
+        this.siguiente = inicial;
+        this.reservadoHasta = inicial;
+        this.tamanoBloque = Math.max(1, tamanoBloque);
+        this.alReservar = alReservar;
+    }
+
+    /**
+     * Entrega el próximo ID, reservando un bloque nuevo si el actual se agotó
+     */
+    public int siguiente() {
+        bloqueo.lock();
+        try {
+            if (siguiente >= reservadoHasta) {
+                reservadoHasta = siguiente + tamanoBloque;
+                alReservar.run();
+            }
+            return siguiente++;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * @return el ID que se entregaría a continuación (sin consumirlo)
+     */
+    public int getSiguiente() {
+        bloqueo.lock();
+        try {
+            return siguiente;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * @return el fin del bloque reservado, que es lo que se guarda en disco
+     */
+    public int getReservadoHasta() {
+        bloqueo.lock();
+        try {
+            return reservadoHasta;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * Garantiza que los próximos IDs sean mayores o iguales que el valor dado
+     * (contador leído de disco o del journal, o el mayor ID existente + 1).
+     * Nunca retrocede.
+     */
+    public void avanzarHasta(int valor) {
+        bloqueo.lock();
+        try {
+            if (valor > siguiente) {
+                siguiente = valor;
+                reservadoHasta = Math.max(reservadoHasta, valor);
+            }
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+}
@@ -1,23 +1,42 @@
 package model;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.LocalDate;
 import java.time.LocalTime;
 
 /**
  * Clase Horario según diagrama de clases
  * Representa un slot de tiempo disponible para citas
+ *
+ * La disponibilidad se cambia con compare-and-set: {@link #intentarReservar()}
+ * deja un único ganador entre varias reservas simultáneas del mismo turno, sin
+ * bloqueos, y las demás fallan de inmediato. Cada cambio avanza la versión de
+ * la entidad ({@link #getVersion()}).
  */
-public class Horario {
+public class Horario extends Entidad {
+    
+    private static final int LIBRE = 0;
+    private static final int OCUPADO = 1;
+    private static final VarHandle ESTADO;
+    
+    static {
+        try {
+            ESTADO = MethodHandles.lookup().findVarHandle(Horario.class, "estado", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
     
     private int id;
     private LocalDate fecha;
     private LocalTime hora;
-    private boolean disponible;
+    // LIBRE u OCUPADO
+    private volatile int estado = LIBRE;
     private Odontologo odontologo;
     
     // Constructor vacío
     public Horario() {
-        this.disponible = true;
     }
     
     // Constructor con parámetros
@@ -26,7 +45,6 @@ public class Horario {
         this.fecha = fecha;
         this.hora = hora;
         this.odontologo = odontologo;
-        this.disponible = true;
     }
     
     // Getters y Setters
@@ -36,6 +54,7 @@ public class Horario {
     
     public void setId(int id) {
         this.id = id;
+        notificarCambio();
     }
     
     public LocalDate getFecha() {
@@ -44,6 +63,7 @@ public class Horario {
     
     public void setFecha(LocalDate fecha) {
         this.fecha = fecha;
+        notificarCambio();
     }
     
     public LocalTime getHora() {
@@ -52,14 +72,16 @@ public class Horario {
     
     public void setHora(LocalTime hora) {
         this.hora = hora;
+        notificarCambio();
     }
     
     public boolean isDisponible() {
-        return disponible;
+        return estado == LIBRE;
     }
     
     public void setDisponible(boolean disponible) {
-        this.disponible = disponible;
+        this.estado = disponible ? LIBRE : OCUPADO;
+        notificarCambio();
     }
     
     public Odontologo getOdontologo() {
@@ -68,6 +90,7 @@ public class Horario {
     
     public void setOdontologo(Odontologo odontologo) {
         this.odontologo = odontologo;
+        notificarCambio();
     }
     
     // ========== MÉTODOS DEL DIAGRAMA ==========
@@ -76,14 +99,44 @@ public class Horario {
      * Marca el horario como ocupado
      */
     public void marcarOcupado() {
-        this.disponible = false;
+        setDisponible(false);
     }
     
     /**
      * Marca el horario como disponible
      */
     public void marcarDisponible() {
-        this.disponible = true;
+        setDisponible(true);
+    }
+    
+    // ========== RESERVA ATÓMICA ==========
+    
+    /**
+     * Ocupa el turno solo si está disponible, de forma atómica
+     * Si varios hilos lo intentan a la vez, exactamente uno lo consigue.
+     * @return true si este llamado reservó el turno; false si ya estaba ocupado
+     */
+    public boolean intentarReservar() {
+        return cambiarSi(LIBRE, OCUPADO);
+    }
+    
+    /**
+     * Libera el turno solo si está ocupado, de forma atómica
+     * @return true si este llamado lo liberó; false si ya estaba disponible
+     */
+    public boolean liberar() {
+        return cambiarSi(OCUPADO, LIBRE);
+    }
+    
+    /**
+     * Pasa el estado de 'desde' a 'hacia' con compare-and-set
+     */
+    private boolean cambiarSi(int desde, int hacia) {
+        if (ESTADO.compareAndSet(this, desde, hacia)) {
+            notificarCambio();
+            return true;
+        }
+        return false;
     }
     
     
@@ -93,7 +146,7 @@ public class Horario {
                 id, 
                 fecha, 
                 hora, 
-                disponible ? "Sí" : "No",
+                isDisponible() ? "Sí" : "No",
                 odontologo != null ? odontologo.getNombre() : "N/A");
     }
     
@@ -0,0 +1,167 @@
+package model;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Índice de una clave a varias entidades, ordenadas dentro de cada clave
+ * El orden lo da un valor calculado de cada entidad (por ejemplo su fecha) y,
+ * a igualdad, su ID. Como el índice recuerda la clave y el orden con que
+ * guardó cada entidad, puede reubicarla cuando esos campos cambian. Las
+ * entidades cuya clave es null, o que no cumplen el filtro, no se indexan.
+ */
+public class IndiceMultiple<K, C extends Comparable<? super C>, V extends Entidad> implements IndiceTabla<V> {
+
+    private record Posicion<C>(C orden, int id) {
+    }
+
+    private record Ubicacion<K, C>(K clave, Posicion<C> posicion) {
+    }
+
+    private final Function<V, K> claveDe;
+    private final Function<V, C> ordenDe;
+    private final Predicate<V> incluir;
+    private final Comparator<Posicion<C>> comparador;
+    private final Map<K, NavigableMap<Posicion<C>, V>> porClave;
+    private final Map<Integer, Ubicacion<K, C>> ubicacionPorId = new HashMap<>();
+
+    /**
+     * @param claveDe clave por la que se agrupan las entidades
+     * @param ordenDe valor por el que se ordenan dentro de cada clave (null va primero)
+     */
+    public IndiceMultiple(Function<V, K> claveDe, Function<V, C> ordenDe) {
+        this(claveDe, ordenDe, entidad -> true);
+    }
+
+    /**
+     * @param incluir solo se indexan las entidades que lo cumplen; si una deja de
+     *                cumplirlo al modificarse, sale del índice (y vuelve si lo cumple de nuevo)
+     */
+    public IndiceMultiple(Function<V, K> claveDe, Function<V, C> ordenDe, Predicate<V> incluir) {
+        this(claveDe, ordenDe, incluir, new HashMap<>());
+    }
+
+    private IndiceMultiple(Function<V, K> claveDe, Function<V, C> ordenDe, Predicate<V> incluir,
+                           Map<K, NavigableMap<Posicion<C>, V>> porClave) {
+        this.porClave = porClave;
+        this.claveDe = claveDe;
+        this.ordenDe = ordenDe;
+        this.incluir = incluir;
+        Comparator<C> orden = Comparator.nullsFirst(Comparator.<C>naturalOrder());
+        this.comparador = Comparator.comparing((Posicion<C> p) -> p.orden(), orden)
+                .thenComparingInt(Posicion::id);
+    }
+
+    /**
+     * Índice cuya clave es un enum (por ejemplo el estado): los grupos se guardan
+     * en un EnumMap, un arreglo indexado por el ordinal en lugar de un HashMap
+     */
+    public static <E extends Enum<E>, C extends Comparable<? super C>, V extends Entidad> IndiceMultiple<E, C, V> porEnum(
+            Class<E> tipo, Function<V, E> claveDe, Function<V, C> ordenDe) {
+        return new IndiceMultiple<>(claveDe, ordenDe, entidad -> true, new EnumMap<>(tipo));
+    }
+
+    /**
+     * Entidades con esa clave, en orden (copia: puede modificarse la tabla mientras se recorre)
+     */
+    public List<V> get(K clave) {
+        NavigableMap<Posicion<C>, V> entidades = porClave.get(clave);
+        return entidades != null ? new ArrayList<>(entidades.values()) : new ArrayList<>();
+    }
+
+    /**
+     * Entidades con esa clave cuyo valor de orden está en [desde, hasta), paginadas
+     * Recorre solo el rango pedido, sin ordenar en cada consulta.
+     * @param desde límite inferior inclusivo, o null para empezar desde el principio
+     * @param hasta límite superior exclusivo, o null para llegar hasta el final
+     * @param omitir cantidad de resultados que se saltan (páginas anteriores)
+     * @param limite cantidad máxima de resultados
+     */
+    public List<V> rango(K clave, C desde, C hasta, int omitir, int limite) {
+        NavigableMap<Posicion<C>, V> entidades = porClave.get(clave);
+        List<V> resultado = new ArrayList<>();
+        if (entidades == null) {
+            return resultado;
+        }
+        if (desde != null) {
+            entidades = entidades.tailMap(new Posicion<>(desde, Integer.MIN_VALUE), true);
+        }
+        if (hasta != null) {
+            entidades = entidades.headMap(new Posicion<>(hasta, Integer.MIN_VALUE), false);
+        }
+        Iterator<V> it = entidades.values().iterator();
+        for (int i = 0; i < omitir && it.hasNext(); i++) {
+            it.next();
+        }
+        while (it.hasNext() && resultado.size() < limite) {
+            resultado.add(it.next());
+        }
+        return resultado;
+    }
+
+    /**
+     * @return la primera entidad con esa clave según el orden, o null si no hay ninguna
+     */
+    public V primero(K clave) {
+        NavigableMap<Posicion<C>, V> entidades = porClave.get(clave);
+        return entidades != null ? entidades.firstEntry().getValue() : null;
+    }
+
+    /**
+     * @return cantidad de entidades con esa clave, sin recorrerlas
+     */
+    public int cantidad(K clave) {
+        NavigableMap<Posicion<C>, V> entidades = porClave.get(clave);
+        return entidades != null ? entidades.size() : 0;
+    }
+
+    /**
+     * @return true si hay alguna entidad con esa clave
+     */
+    public boolean contiene(K clave) {
+        return porClave.containsKey(clave);
+    }
+
+    // ========== SINCRONIZACIÓN CON LA TABLA ==========
+
+    @Override
+    public void agregar(V entidad) {
+        Ubicacion<K, C> ubicacion = ubicacionDe(entidad);
+        if (ubicacion != null) {
+            porClave.computeIfAbsent(ubicacion.clave(), k -> new TreeMap<>(comparador))
+                    .put(ubicacion.posicion(), entidad);
+            ubicacionPorId.put(entidad.getId(), ubicacion);
+        }
+    }
+
+    @Override
+    public void eliminar(V entidad) {
+        Ubicacion<K, C> ubicacion = ubicacionPorId.remove(entidad.getId());
+        if (ubicacion == null) {
+            return;
+        }
+        NavigableMap<Posicion<C>, V> entidades = porClave.get(ubicacion.clave());
+        if (entidades != null && entidades.get(ubicacion.posicion()) == entidad) {
+            entidades.remove(ubicacion.posicion());
+            if (entidades.isEmpty()) {
+                porClave.remove(ubicacion.clave());
+            }
+        }
+    }
+
+    @Override
+    public void actualizar(V entidad) {
+        if (!Objects.equals(ubicacionDe(entidad), ubicacionPorId.get(entidad.getId()))) {
+            eliminar(entidad);
+            agregar(entidad);
+        }
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private Ubicacion<K, C> ubicacionDe(V entidad) {
+        K clave = incluir.test(entidad) ? claveDe.apply(entidad) : null;
+        return clave != null ? new Ubicacion<>(clave, new Posicion<>(ordenDe.apply(entidad), entidad.getId())) : null;
+    }
+}
@@ -0,0 +1,317 @@
+package model;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de búsqueda por nombre de personas (pacientes u odontólogos)
+ * Los nombres se normalizan sin acentos ni mayúsculas ("Pérez" = "perez") y
+ * se parten en palabras. Cada palabra buscada debe coincidir con alguna
+ * palabra del nombre de forma exacta, como prefijo (búsqueda mientras se
+ * escribe) o con un error de tipeo (una letra de más, de menos, distinta o dos
+ * letras invertidas) si tiene al menos {@value #LARGO_MINIMO_APROXIMADO} letras.
+ *
+ * Las palabras se guardan ordenadas para buscar prefijos por rango, y cada una
+ * se registra también con cada una de sus letras borradas: dos palabras a un
+ * error de distancia comparten alguna de esas variantes, así que la búsqueda
+ * aproximada no recorre todo el vocabulario.
+ */
+public class IndiceNombres<V extends Persona> implements IndiceTabla<V> {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int LARGO_MINIMO_APROXIMADO = 4;
+    // Puntaje de cada palabra buscada según cómo coincidió
+    private static final int EXACTA = 3;
+    private static final int PREFIJO = 2;
+    private static final int APROXIMADA = 1;
+    // Mayor que cualquier letra: [termino, termino + FIN_PREFIJO) abarca las palabras que empiezan con termino
+    private static final char FIN_PREFIJO = Character.MAX_VALUE;
+
+    /**
+     * Entidad indexada, con las palabras de su nombre y el nombre normalizado
+     * con que se ordena entre resultados del mismo puntaje
+     */
+    private static final class Entrada<V> {
+        final V entidad;
+        final int id;
+        final List<String> palabras;
+        final String orden;
+
+        Entrada(V entidad, int id, List<String> palabras) {
+            this.entidad = entidad;
+            this.id = id;
+            this.palabras = palabras;
+            this.orden = String.join(" ", palabras);
+        }
+    }
+
+    private record Resultado<V>(Entrada<V> entrada, int puntaje) {
+    }
+
+    private final Comparator<Resultado<V>> mejorPrimero = Comparator
+            .comparingInt((Resultado<V> r) -> -r.puntaje())
+            .thenComparing(r -> r.entrada().orden)
+            .thenComparingInt(r -> r.entrada().id);
+
+    private final Map<Integer, Entrada<V>> entradas = new HashMap<>();
+    private final NavigableMap<String, Set<Entrada<V>>> entradasPorPalabra = new TreeMap<>();
+    // Variante con una letra borrada -> palabras del vocabulario que la generan
+    private final Map<String, Set<String>> palabrasPorVariante = new HashMap<>();
+
+    // ========== CONSULTAS ==========
+
+    /**
+     * Busca por nombre, sin distinguir acentos ni mayúsculas y tolerando un error de tipeo
+     * Los resultados van ordenados de mejor a peor coincidencia (exacta, prefijo,
+     * aproximada) y, a igualdad, por nombre. Un texto vacío devuelve todas las
+     * entidades ordenadas por nombre.
+     * @param limite cantidad máxima de resultados
+     */
+    public List<V> buscar(String texto, int limite) {
+        List<String> terminos = palabrasDe(texto);
+        PriorityQueue<Resultado<V>> mejores = new PriorityQueue<>(mejorPrimero.reversed());
+        if (terminos.isEmpty()) {
+            for (Entrada<V> entrada : entradas.values()) {
+                conservar(mejores, entrada, 0, limite);
+            }
+            return enOrden(mejores);
+        }
+        // Palabras del vocabulario que coinciden con cada término (son pocas comparadas con las entidades)
+        List<Map<String, Integer>> coincidencias = new ArrayList<>();
+        Map<String, Integer> masSelectivo = null;
+        int menosEntradas = Integer.MAX_VALUE;
+        for (String termino : terminos) {
+            Map<String, Integer> palabras = palabrasCoincidentes(termino);
+            int cantidad = 0;
+            for (String palabra : palabras.keySet()) {
+                cantidad += entradasPorPalabra.get(palabra).size();
+            }
+            if (cantidad == 0) {
+                return new ArrayList<>();
+            }
+            if (cantidad < menosEntradas) {
+                masSelectivo = palabras;
+                menosEntradas = cantidad;
+            }
+            coincidencias.add(palabras);
+        }
+        // Solo se recorren las entidades del término más selectivo; los demás términos
+        // se comprueban contra las palabras ya normalizadas de cada candidata
+        for (String palabra : masSelectivo.keySet()) {
+            for (Entrada<V> entrada : entradasPorPalabra.get(palabra)) {
+                if (primeraCoincidente(entrada.palabras, masSelectivo).equals(palabra)) {
+                    int puntaje = puntaje(entrada.palabras, coincidencias);
+                    if (puntaje > 0) {
+                        conservar(mejores, entrada, puntaje, limite);
+                    }
+                }
+            }
+        }
+        return enOrden(mejores);
+    }
+
+    /**
+     * Nombre sin acentos, en minúsculas y separado en palabras
+     */
+    public static List<String> palabrasDe(String nombre) {
+        if (nombre == null) {
+            return List.of();
+        }
+        String plano = MARCAS.matcher(Normalizer.normalize(nombre, Normalizer.Form.NFD)).replaceAll("");
+        List<String> palabras = new ArrayList<>();
+        for (String palabra : SEPARADORES.split(plano.toLowerCase(Locale.ROOT))) {
+            if (!palabra.isEmpty()) {
+                palabras.add(palabra);
+            }
+        }
+        return palabras;
+    }
+
+    // ========== SINCRONIZACIÓN CON LA TABLA ==========
+
+    @Override
+    public void agregar(V entidad) {
+        Entrada<V> entrada = new Entrada<>(entidad, entidad.getId(), palabrasDe(entidad.getNombre()));
+        entradas.put(entrada.id, entrada);
+        for (String palabra : entrada.palabras) {
+            Set<Entrada<V>> conPalabra = entradasPorPalabra.computeIfAbsent(palabra, p -> new HashSet<>());
+            if (conPalabra.isEmpty()) {
+                for (String variante : variantesDe(palabra)) {
+                    palabrasPorVariante.computeIfAbsent(variante, v -> new HashSet<>()).add(palabra);
+                }
+            }
+            conPalabra.add(entrada);
+        }
+    }
+
+    @Override
+    public void eliminar(V entidad) {
+        Entrada<V> entrada = entradas.get(entidad.getId());
+        if (entrada == null || entrada.entidad != entidad) {
+            return;
+        }
+        entradas.remove(entrada.id);
+        for (String palabra : entrada.palabras) {
+            Set<Entrada<V>> conPalabra = entradasPorPalabra.get(palabra);
+            if (conPalabra == null || !conPalabra.remove(entrada) || !conPalabra.isEmpty()) {
+                continue;
+            }
+            // Nadie más usa la palabra: sale del vocabulario
+            entradasPorPalabra.remove(palabra);
+            for (String variante : variantesDe(palabra)) {
+                Set<String> palabras = palabrasPorVariante.get(variante);
+                palabras.remove(palabra);
+                if (palabras.isEmpty()) {
+                    palabrasPorVariante.remove(variante);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void actualizar(V entidad) {
+        Entrada<V> entrada = entradas.get(entidad.getId());
+        if (entrada == null || !palabrasDe(entidad.getNombre()).equals(entrada.palabras)) {
+            eliminar(entidad);
+            agregar(entidad);
+        }
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    /**
+     * Palabras del vocabulario que coinciden con el término, con su puntaje
+     */
+    private Map<String, Integer> palabrasCoincidentes(String termino) {
+        Map<String, Integer> palabras = new HashMap<>();
+        // Exactas y prefijos: un rango del vocabulario ordenado
+        for (String palabra : entradasPorPalabra.subMap(termino, true, termino + FIN_PREFIJO, false).keySet()) {
+            palabras.put(palabra, palabra.equals(termino) ? EXACTA : PREFIJO);
+        }
+        if (termino.length() >= LARGO_MINIMO_APROXIMADO) {
+            for (String palabra : palabrasCercanas(termino)) {
+                palabras.putIfAbsent(palabra, APROXIMADA);
+            }
+        }
+        return palabras;
+    }
+
+    /**
+     * Palabras del vocabulario a un error de distancia del término
+     * Candidatas: las que al borrarles una letra dan el término (letra de más),
+     * el término con una letra borrada (letra de menos) y las que comparten una
+     * variante con él (letra distinta o dos letras invertidas)
+     */
+    private Set<String> palabrasCercanas(String termino) {
+        Set<String> candidatas = new HashSet<>(palabrasPorVariante.getOrDefault(termino, Set.of()));
+        for (String variante : variantesDe(termino)) {
+            if (entradasPorPalabra.containsKey(variante)) {
+                candidatas.add(variante);
+            }
+            candidatas.addAll(palabrasPorVariante.getOrDefault(variante, Set.of()));
+        }
+        candidatas.removeIf(p -> p.equals(termino) || !aUnError(termino, p));
+        return candidatas;
+    }
+
+    /**
+     * Suma, por cada término, el mejor puntaje entre las palabras del nombre
+     * @return 0 si algún término no coincide con ninguna palabra
+     */
+    private static int puntaje(List<String> palabrasNombre, List<Map<String, Integer>> coincidencias) {
+        int total = 0;
+        for (Map<String, Integer> palabras : coincidencias) {
+            int mejor = 0;
+            for (String palabra : palabrasNombre) {
+                Integer puntaje = palabras.get(palabra);
+                if (puntaje != null && puntaje > mejor) {
+                    mejor = puntaje;
+                }
+            }
+            if (mejor == 0) {
+                return 0;
+            }
+            total += mejor;
+        }
+        return total;
+    }
+
+    /**
+     * Primera palabra del nombre que coincide con el término; si el nombre tiene
+     * varias (por ejemplo "Pérez Pérez"), la entidad se evalúa una sola vez
+     */
+    private static String primeraCoincidente(List<String> palabrasNombre, Map<String, Integer> coincidencias) {
+        for (String palabra : palabrasNombre) {
+            if (coincidencias.containsKey(palabra)) {
+                return palabra;
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Agrega el resultado si está entre los {@code limite} mejores vistos hasta ahora
+     * (la cabeza de la cola es el peor de ellos)
+     */
+    private void conservar(PriorityQueue<Resultado<V>> mejores, Entrada<V> entrada, int puntaje, int limite) {
+        if (limite <= 0) {
+            return;
+        }
+        if (mejores.size() < limite) {
+            mejores.add(new Resultado<>(entrada, puntaje));
+            return;
+        }
+        Resultado<V> peor = mejores.peek();
+        if (puntaje < peor.puntaje()) {
+            return;
+        }
+        Resultado<V> resultado = new Resultado<>(entrada, puntaje);
+        if (mejorPrimero.compare(resultado, peor) < 0) {
+            mejores.poll();
+            mejores.add(resultado);
+        }
+    }
+
+    private List<V> enOrden(PriorityQueue<Resultado<V>> mejores) {
+        List<V> lista = new ArrayList<>(mejores.size());
+        while (!mejores.isEmpty()) {
+            lista.add(mejores.poll().entrada().entidad);
+        }
+        Collections.reverse(lista);
+        return lista;
+    }
+
+    private static Set<String> variantesDe(String palabra) {
+        Set<String> variantes = new HashSet<>();
+        for (int i = 0; i < palabra.length(); i++) {
+            variantes.add(palabra.substring(0, i) + palabra.substring(i + 1));
+        }
+        return variantes;
+    }
+
+    /**
+     * @return true si a y b difieren en una sola inserción, borrado, sustitución
+     *         o inversión de dos letras vecinas
+     */
+    private static boolean aUnError(String a, String b) {
+        if (Math.abs(a.length() - b.length()) > 1) {
+            return false;
+        }
+        int i = 0;
+        while (i < Math.min(a.length(), b.length()) && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (a.length() != b.length()) {
+            String larga = a.length() > b.length() ? a : b;
+            String corta = larga == a ? b : a;
+            return larga.substring(i + 1).equals(corta.substring(i));
+        }
+        if (a.substring(i + 1).equals(b.substring(i + 1))) {
+            return true;
+        }
+        return i + 1 < a.length() && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                && a.substring(i + 2).equals(b.substring(i + 2));
+    }
+}
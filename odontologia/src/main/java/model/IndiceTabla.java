@@ -0,0 +1,33 @@
+package model;
+
+/**
+ * Índice secundario sobre una TablaEntidades
+ * La tabla le avisa cada alta, baja y modificación de sus entidades (incluidas
+ * las leídas de disco), de modo que el índice se mantiene sincronizado sin que
+ * el código que modifica las entidades tenga que actualizarlo.
+ */
+public interface IndiceTabla<V extends Entidad> {
+
+    /**
+     * Se invoca antes de agregar o reemplazar una entidad; el índice puede
+     * rechazarla (por ejemplo, por una clave duplicada) y la tabla no cambia
+     * @throws IllegalArgumentException si la entidad no puede agregarse
+     */
+    default void validar(V entidad) {
+    }
+
+    /**
+     * La entidad se agregó a la tabla
+     */
+    void agregar(V entidad);
+
+    /**
+     * La entidad se eliminó de la tabla (o fue reemplazada por otra con su ID)
+     */
+    void eliminar(V entidad);
+
+    /**
+     * Cambió algún campo de una entidad que ya estaba en la tabla
+     */
+    void actualizar(V entidad);
+}
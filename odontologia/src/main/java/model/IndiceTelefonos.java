@@ -0,0 +1,274 @@
+package model;
+
+import java.util.*;
+
+/**
+ * Índice por número de teléfono, con búsqueda por los últimos dígitos
+ * Cada teléfono se guarda con sus 10 dígitos (rellenado con ceros a la
+ * izquierda) en orden inverso: "5550123" -> "0005550123" -> 3210555000. Así
+ * todos los números que terminan en los mismos dígitos quedan contiguos y una
+ * búsqueda por final es un rango que se encuentra con búsqueda binaria.
+ *
+ * Las claves se guardan en arreglos primitivos ordenados (sin objetos por
+ * entrada); agregar o quitar desplaza el arreglo, lo que es despreciable frente
+ * a la frecuencia con que se consulta. El teléfono indexado de cada entidad se
+ * recuerda en una tabla hash de int a int, también sin objetos por entrada.
+ * Los teléfonos sin cargar (0) no se indexan.
+ */
+public class IndiceTelefonos<V extends Persona> implements IndiceTabla<V> {
+
+    private static final int DIGITOS = 10;
+    private static final long[] POTENCIAS = new long[DIGITOS + 1];
+
+    static {
+        POTENCIAS[0] = 1;
+        for (int i = 1; i <= DIGITOS; i++) {
+            POTENCIAS[i] = POTENCIAS[i - 1] * 10;
+        }
+    }
+
+    // Arreglos paralelos ordenados por (clave invertida, id); solo se usan las primeras 'cantidad' posiciones
+    private long[] claves = new long[16];
+    private int[] ids = new int[16];
+    private Object[] entidades = new Object[16];
+    private int cantidad = 0;
+    // Teléfono con que se indexó cada entidad, para encontrarla si el teléfono cambia
+    private final TelefonosPorId telefonoPorId = new TelefonosPorId();
+
+    // ========== CONSULTAS ==========
+
+    /**
+     * @return las entidades con exactamente ese teléfono (puede haber varias, por ejemplo una familia)
+     */
+    public List<V> get(int telefono) {
+        return telefono > 0 ? rango(invertir(telefono), POTENCIAS[0], 0, Integer.MAX_VALUE) : new ArrayList<>();
+    }
+
+    /**
+     * Entidades cuyo teléfono termina en los dígitos indicados
+     * Se ignora todo lo que no sea dígito ("555-01" = "55501"); si hay más de
+     * 10 dígitos se usan los últimos 10.
+     * @param limite cantidad máxima de resultados
+     * @return las coincidencias, o una lista vacía si no hay dígitos
+     */
+    public List<V> terminadosEn(String digitos, int limite) {
+        String limpio = digitos == null ? "" : digitos.replaceAll("\\D", "");
+        if (limpio.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (limpio.length() > DIGITOS) {
+            limpio = limpio.substring(limpio.length() - DIGITOS);
+        }
+        int largo = limpio.length();
+        long invertido = Long.parseLong(new StringBuilder(limpio).reverse().toString());
+        // El final de k dígitos ocupa los k dígitos más significativos de la clave
+        long ancho = POTENCIAS[DIGITOS - largo];
+        // Un teléfono más corto que lo escrito no coincide aunque su relleno de ceros sí
+        long minimo = POTENCIAS[largo - 1];
+        return rango(invertido * ancho, ancho, limpio.charAt(0) == '0' ? minimo : 0, limite);
+    }
+
+    public int size() {
+        return cantidad;
+    }
+
+    // ========== SINCRONIZACIÓN CON LA TABLA ==========
+
+    @Override
+    public void agregar(V entidad) {
+        int telefono = entidad.getTelefono();
+        if (telefono <= 0) {
+            return;
+        }
+        long clave = invertir(telefono);
+        int pos = posicion(clave, entidad.getId());
+        if (pos >= 0) {
+            entidades[pos] = entidad;
+        } else {
+            insertar(-pos - 1, clave, entidad);
+        }
+        telefonoPorId.put(entidad.getId(), telefono);
+    }
+
+    @Override
+    public void eliminar(V entidad) {
+        int telefono = telefonoPorId.get(entidad.getId());
+        if (telefono == 0) {
+            return;
+        }
+        int pos = posicion(invertir(telefono), entidad.getId());
+        if (pos >= 0 && entidades[pos] == entidad) {
+            telefonoPorId.remove(entidad.getId());
+            System.arraycopy(claves, pos + 1, claves, pos, cantidad - pos - 1);
+            System.arraycopy(ids, pos + 1, ids, pos, cantidad - pos - 1);
+            System.arraycopy(entidades, pos + 1, entidades, pos, cantidad - pos - 1);
+            entidades[--cantidad] = null;
+        }
+    }
+
+    @Override
+    public void actualizar(V entidad) {
+        // 0 si no estaba indexada: con un teléfono sin cargar tampoco se indexa
+        int anterior = telefonoPorId.get(entidad.getId());
+        int actual = entidad.getTelefono();
+        if (anterior != actual) {
+            eliminar(entidad);
+            agregar(entidad);
+        }
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    /**
+     * Entidades con clave en [desde, desde + ancho), en orden de clave
+     * @param minimo teléfono mínimo que se acepta (para descartar coincidencias del relleno)
+     */
+    @SuppressWarnings("unchecked")
+    private List<V> rango(long desde, long ancho, long minimo, int limite) {
+        List<V> resultado = new ArrayList<>();
+        long hasta = desde + ancho;
+        // Ningún ID es Integer.MIN_VALUE, así que la búsqueda da la posición de inserción: la primera clave >= desde
+        for (int i = -posicion(desde, Integer.MIN_VALUE) - 1; i < cantidad && claves[i] < hasta && resultado.size() < limite; i++) {
+            V entidad = (V) entidades[i];
+            if (entidad.getTelefono() >= minimo) {
+                resultado.add(entidad);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Búsqueda binaria de (clave, id)
+     * @return la posición si está; si no, -(posición de inserción) - 1
+     */
+    private int posicion(long clave, int id) {
+        int bajo = 0;
+        int alto = cantidad - 1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            int comparacion = claves[medio] != clave ? Long.compare(claves[medio], clave) : Integer.compare(ids[medio], id);
+            if (comparacion < 0) {
+                bajo = medio + 1;
+            } else if (comparacion > 0) {
+                alto = medio - 1;
+            } else {
+                return medio;
+            }
+        }
+        return -(bajo + 1);
+    }
+
+    private void insertar(int pos, long clave, V entidad) {
+        if (cantidad == claves.length) {
+            int capacidad = cantidad * 2;
+            claves = Arrays.copyOf(claves, capacidad);
+            ids = Arrays.copyOf(ids, capacidad);
+            entidades = Arrays.copyOf(entidades, capacidad);
+        }
+        System.arraycopy(claves, pos, claves, pos + 1, cantidad - pos);
+        System.arraycopy(ids, pos, ids, pos + 1, cantidad - pos);
+        System.arraycopy(entidades, pos, entidades, pos + 1, cantidad - pos);
+        claves[pos] = clave;
+        ids[pos] = entidad.getId();
+        entidades[pos] = entidad;
+        cantidad++;
+    }
+
+    /**
+     * Los 10 dígitos del teléfono (con ceros a la izquierda) leídos al revés
+     */
+    private static long invertir(int telefono) {
+        long invertido = 0;
+        for (int i = 0; i < DIGITOS; i++) {
+            invertido = invertido * 10 + telefono % 10;
+            telefono /= 10;
+        }
+        return invertido;
+    }
+
+    /**
+     * Mapa ID → teléfono con direccionamiento abierto (sondeo lineal) sobre dos
+     * arreglos int, sin Integer ni nodos por entrada. Un teléfono 0 marca una
+     * casilla libre: los teléfonos indexados siempre son positivos.
+     */
+    static final class TelefonosPorId {
+
+        private int[] ids = new int[16];
+        private int[] telefonos = new int[16];
+        private int cantidad = 0;
+
+        /**
+         * @return el teléfono de la entidad, o 0 si no está
+         */
+        int get(int id) {
+            int mascara = ids.length - 1;
+            for (int i = casilla(id, mascara); telefonos[i] != 0; i = (i + 1) & mascara) {
+                if (ids[i] == id) {
+                    return telefonos[i];
+                }
+            }
+            return 0;
+        }
+
+        void put(int id, int telefono) {
+            // Se mantiene por debajo de 3/4 de ocupación para que los grupos sean cortos
+            if ((cantidad + 1) * 4 > ids.length * 3) {
+                agrandar();
+            }
+            int mascara = ids.length - 1;
+            int i = casilla(id, mascara);
+            while (telefonos[i] != 0) {
+                if (ids[i] == id) {
+                    telefonos[i] = telefono;
+                    return;
+                }
+                i = (i + 1) & mascara;
+            }
+            ids[i] = id;
+            telefonos[i] = telefono;
+            cantidad++;
+        }
+
+        void remove(int id) {
+            int mascara = ids.length - 1;
+            int hueco = casilla(id, mascara);
+            while (telefonos[hueco] != 0 && ids[hueco] != id) {
+                hueco = (hueco + 1) & mascara;
+            }
+            if (telefonos[hueco] == 0) {
+                return;
+            }
+            // Sin marcas de borrado: las entradas siguientes del grupo se corren al
+            // hueco si su casilla ideal no queda entre el hueco y su posición
+            for (int j = (hueco + 1) & mascara; telefonos[j] != 0; j = (j + 1) & mascara) {
+                int ideal = casilla(ids[j], mascara);
+                if (((j - ideal) & mascara) >= ((j - hueco) & mascara)) {
+                    ids[hueco] = ids[j];
+                    telefonos[hueco] = telefonos[j];
+                    hueco = j;
+                }
+            }
+            telefonos[hueco] = 0;
+            cantidad--;
+        }
+
+        private void agrandar() {
+            int[] idsAnteriores = ids;
+            int[] telefonosAnteriores = telefonos;
+            ids = new int[idsAnteriores.length * 2];
+            telefonos = new int[idsAnteriores.length * 2];
+            cantidad = 0;
+            for (int i = 0; i < idsAnteriores.length; i++) {
+                if (telefonosAnteriores[i] != 0) {
+                    put(idsAnteriores[i], telefonosAnteriores[i]);
+                }
+            }
+        }
+
+        static int casilla(int id, int mascara) {
+            // Mezcla los bits del ID para que IDs consecutivos no formen grupos largos
+            int h = id * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mascara;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package model;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Índice de una clave a una sola entidad (búsqueda en O(1))
+ * Recuerda la clave con que indexó cada entidad, para poder moverla cuando
+ * cambia alguno de los campos que forman la clave. Las entidades cuya clave
+ * es null (datos incompletos) no se indexan.
+ *
+ * Si se crea como estricto, la tabla rechaza agregar una entidad cuya clave ya
+ * pertenece a otra, y también modificar una entidad para darle esa clave. Los
+ * duplicados que ya existían en disco se cargan igual (el índice apunta a la
+ * última) para no perder datos.
+ */
+public class IndiceUnico<K, V extends Entidad> implements IndiceTabla<V> {
+
+    private final Function<V, K> claveDe;
+    private final boolean estricto;
+    private final Map<K, V> porClave = new HashMap<>();
+    private final Map<Integer, K> clavePorId = new HashMap<>();
+
+    public IndiceUnico(Function<V, K> claveDe) {
+        this(claveDe, false);
+    }
+
+    /**
+     * @param estricto si es true, agregar una entidad con una clave ya usada
+     *                 por otra lanza IllegalArgumentException
+     */
+    public IndiceUnico(Function<V, K> claveDe, boolean estricto) {
+        this.claveDe = claveDe;
+        this.estricto = estricto;
+    }
+
+    /**
+     * @return la entidad con esa clave, o null si no hay ninguna
+     */
+    public V get(K clave) {
+        return porClave.get(clave);
+    }
+
+    public int size() {
+        return porClave.size();
+    }
+
+    /**
+     * @return true si la clave pertenece a una entidad con otro ID
+     */
+    public boolean enUsoPorOtra(K clave, int id) {
+        V actual = porClave.get(clave);
+        return actual != null && actual.getId() != id;
+    }
+
+    // ========== SINCRONIZACIÓN CON LA TABLA ==========
+
+    @Override
+    public void validar(V entidad) {
+        K clave = claveDe.apply(entidad);
+        if (estricto && clave != null && enUsoPorOtra(clave, entidad.getId())) {
+            throw new IllegalArgumentException("Clave duplicada: " + clave);
+        }
+    }
+
+    @Override
+    public void agregar(V entidad) {
+        K clave = claveDe.apply(entidad);
+        if (clave != null) {
+            porClave.put(clave, entidad);
+            clavePorId.put(entidad.getId(), clave);
+        }
+    }
+
+    @Override
+    public void eliminar(V entidad) {
+        K clave = clavePorId.remove(entidad.getId());
+        if (clave != null && porClave.get(clave) == entidad) {
+            porClave.remove(clave);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException si el índice es estricto y la nueva clave
+     *         pertenece a otra entidad (el índice no cambia; quien modificó la
+     *         entidad debe devolverle su valor anterior)
+     */
+    @Override
+    public void actualizar(V entidad) {
+        K nueva = claveDe.apply(entidad);
+        if (!Objects.equals(nueva, clavePorId.get(entidad.getId()))) {
+            validar(entidad);
+            eliminar(entidad);
+            agregar(entidad);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package model;
+
+/**
+ * Recibe un aviso cada vez que una entidad cambia alguno de sus campos
+ */
+public interface ObservadorEntidad {
+
+    void entidadModificada(Entidad entidad);
+}
@@ -23,6 +23,7 @@ public class Odontologo extends Persona {
 
     public void setEspecialidad(String especialidad) {
         this.especialidad = especialidad;
+        notificarCambio();
     }
 
     public int getNumeroColegiado() {
@@ -31,6 +32,7 @@ public class Odontologo extends Persona {
 
     public void setNumeroColegiado(int numeroColegiado) {
         this.numeroColegiado = numeroColegiado;
+        notificarCambio();
     }
 
     @Override
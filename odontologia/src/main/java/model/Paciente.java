@@ -20,8 +20,21 @@ public class Paciente extends Persona {
         return numeroExpediente;
     }
 
+    /**
+     * @throws IllegalArgumentException si el expediente ya pertenece a otro paciente
+     *         de la tabla; en ese caso el paciente conserva su expediente anterior
+     */
     public void setNumeroExpediente(String numeroExpediente) {
+        String anterior = this.numeroExpediente;
         this.numeroExpediente = numeroExpediente;
+        try {
+            notificarCambio();
+        } catch (IllegalArgumentException e) {
+            // El índice de expedientes rechazó el cambio: se deshace y se vuelven a sincronizar los índices
+            this.numeroExpediente = anterior;
+            notificarCambio();
+            throw e;
+        }
     }
 
 
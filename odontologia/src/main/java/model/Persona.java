@@ -1,7 +1,7 @@
 package model;
 
 
-public abstract class Persona {
+public abstract class Persona extends Entidad {
 
     private int id;
     private String nombre;
@@ -24,6 +24,7 @@ public abstract class Persona {
 
     public void setId(int id) {
         this.id = id;
+        notificarCambio();
     }
 
     public String getNombre() {
@@ -32,6 +33,7 @@ public abstract class Persona {
 
     public void setNombre(String nombre) {
         this.nombre = nombre;
+        notificarCambio();
     }
 
     public int getTelefono() {
@@ -40,6 +42,7 @@ public abstract class Persona {
 
     public void setTelefono(int telefono) {
         this.telefono = telefono;
+        notificarCambio();
     }
 
     @Override
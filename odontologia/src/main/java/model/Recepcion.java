@@ -4,7 +4,6 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Clase Recepcion según diagrama de clases
@@ -28,82 +27,101 @@ public class Recepcion {
      * @return true si se creó exitosamente
      */
     public boolean crearCita(Paciente paciente, Odontologo odontologo, Horario horario) {
+        return registrarCita(paciente, odontologo, horario) != null;
+    }
+    
+    /**
+     * Igual que {@link #crearCita(Paciente, Odontologo, Horario)}, devolviendo la cita creada
+     * El turno se reserva con {@link Horario#intentarReservar()}: entre varias
+     * recepciones que piden el mismo horario gana una sola y las demás fallan de
+     * inmediato, sin esperar. Solo la ganadora toma la agenda del odontólogo para
+     * comprobar el calendario y registrar la cita.
+     * @return la cita creada, o null si el horario no está disponible
+     */
+    public Cita registrarCita(Paciente paciente, Odontologo odontologo, Horario horario) {
         if (paciente == null || odontologo == null || horario == null) {
-            return false;
+            return null;
         }
         
-        // Verificar que el horario esté disponible
-        if (!horario.isDisponible()) {
-            return false;
+        // Reservar el horario (falla si ya está ocupado)
+        if (!horario.intentarReservar()) {
+            return null;
         }
         
-        // Validar que no haya solapamiento
-        boolean ocupado = db.getCitas().values().stream()
-            .filter(c -> c.getEstado() != EstadoCita.CANCELADA)
-            .anyMatch(c -> c.getFecha().equals(horario.getFecha()) 
-                    && c.getHora().equals(horario.getHora()) 
-                    && c.getOdontologo().getId() == odontologo.getId());
+        Cita nuevaCita = db.conAgendaBloqueada(odontologo.getId(), () -> {
+            // Validar que no haya solapamiento (calendario de ocupación)
+            boolean ocupado = db.turnoOcupado(odontologo.getId(), horario.getFecha(), horario.getHora());
+            
+            if (ocupado) {
+                return null;
+            }
+            
+            // Crear la cita
+            Cita cita = new Cita();
+            cita.setId(db.generarProximoIdCita());
+            cita.setPaciente(paciente);
+            cita.setOdontologo(odontologo);
+            cita.setFecha(horario.getFecha());
+            cita.setHora(horario.getHora());
+            cita.setMotivo("Consulta general");
+            cita.setEstado(EstadoCita.PENDIENTE);
+            
+            // Guardar en la base de datos
+            db.getCitas().put(cita.getId(), cita);
+            
+            return cita;
+        });
         
-        if (ocupado) {
-            return false;
+        if (nuevaCita == null) {
+            // Devolver el horario: la cita no se creó
+            horario.liberar();
         }
-        
-        // Crear la cita
-        Cita nuevaCita = new Cita();
-        nuevaCita.setId(db.generarProximoIdCita());
-        nuevaCita.setPaciente(paciente);
-        nuevaCita.setOdontologo(odontologo);
-        nuevaCita.setFecha(horario.getFecha());
-        nuevaCita.setHora(horario.getHora());
-        nuevaCita.setMotivo("Consulta general");
-        nuevaCita.setEstado(EstadoCita.PENDIENTE);
-        
-        // Guardar en la base de datos
-        db.getCitas().put(nuevaCita.getId(), nuevaCita);
-        
-        // Marcar el horario como ocupado
-        horario.marcarOcupado();
-        
-        return true;
+        return nuevaCita;
     }
     
     /**
      * Sobrecarga del método crearCita con parámetros individuales
      */
     public boolean crearCita(Paciente paciente, Odontologo odontologo, LocalDate fecha, LocalTime hora, String motivo) {
+        return registrarCita(paciente, odontologo, fecha, hora, motivo) != null;
+    }
+    
+    /**
+     * Igual que {@link #crearCita(Paciente, Odontologo, LocalDate, LocalTime, String)},
+     * devolviendo la cita creada (o null si el turno no es válido o ya está ocupado)
+     */
+    public Cita registrarCita(Paciente paciente, Odontologo odontologo, LocalDate fecha, LocalTime hora, String motivo) {
         if (paciente == null || odontologo == null || fecha == null || hora == null) {
-            return false;
+            return null;
         }
         
         // Validar fecha no pasada
         if (fecha.isBefore(LocalDate.now())) {
-            return false;
+            return null;
         }
         
-        // Validar que ya este ocupada la cita
-        boolean ocupado = db.getCitas().values().stream()
-            .filter(c -> c.getEstado() != EstadoCita.CANCELADA)
-            .anyMatch(c -> c.getFecha().equals(fecha) 
-                    && c.getHora().equals(hora) 
-                    && c.getOdontologo().getId() == odontologo.getId());
-        
-        if (ocupado) {
-            return false;
-        }
-        
-        // Crear la cita
-        Cita nuevaCita = new Cita();
-        nuevaCita.setId(db.generarProximoIdCita());
-        nuevaCita.setPaciente(paciente);
-        nuevaCita.setOdontologo(odontologo);
-        nuevaCita.setFecha(fecha);
-        nuevaCita.setHora(hora);
-        nuevaCita.setMotivo(motivo != null && !motivo.trim().isEmpty() ? motivo : "Consulta general");
-        nuevaCita.setEstado(EstadoCita.PENDIENTE);
-        
-        db.getCitas().put(nuevaCita.getId(), nuevaCita);
-        
-        return true;
+        return db.conAgendaBloqueada(odontologo.getId(), () -> {
+            // Validar que ya este ocupada la cita (calendario de ocupación)
+            boolean ocupado = db.turnoOcupado(odontologo.getId(), fecha, hora);
+            
+            if (ocupado) {
+                return null;
+            }
+            
+            // Crear la cita
+            Cita nuevaCita = new Cita();
+            nuevaCita.setId(db.generarProximoIdCita());
+            nuevaCita.setPaciente(paciente);
+            nuevaCita.setOdontologo(odontologo);
+            nuevaCita.setFecha(fecha);
+            nuevaCita.setHora(hora);
+            nuevaCita.setMotivo(motivo != null && !motivo.trim().isEmpty() ? motivo : "Consulta general");
+            nuevaCita.setEstado(EstadoCita.PENDIENTE);
+            
+            db.getCitas().put(nuevaCita.getId(), nuevaCita);
+            
+            return nuevaCita;
+        });
     }
     
     /**
@@ -115,9 +133,9 @@ public class Recepcion {
             cita.cancelar();
             
             // Liberar el horario si existe
-            Horario horario = buscarHorarioPorFechaHora(cita.getFecha(), cita.getHora());
+            Horario horario = buscarHorarioPorFechaHora(cita.getOdontologo(), cita.getFecha(), cita.getHora());
             if (horario != null) {
-                horario.marcarDisponible();
+                horario.liberar();
             }
         }
               else if (cita.getEstado() == EstadoCita.FINALIZADO) {
@@ -177,22 +195,21 @@ public class Recepcion {
      * @return Lista de horarios disponibles
      */
     public List<Horario> buscarDisponibilidad(Odontologo odontologo) {
+        return buscarDisponibilidad(odontologo, 0, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Página de horarios disponibles de un odontólogo desde hoy, en orden de fecha y hora
+     * @param omitir horarios que se saltan (páginas anteriores)
+     * @param limite tamaño de la página
+     */
+    public List<Horario> buscarDisponibilidad(Odontologo odontologo, int omitir, int limite) {
         if (odontologo == null) {
             return new ArrayList<>();
         }
         
-        // Obtener todos los horarios del odontólogo que estén disponibles
-        return db.getHorarios().values().stream()
-                .filter(h -> h.getOdontologo() != null 
-                        && h.getOdontologo().getId() == odontologo.getId())
-                .filter(Horario::isDisponible)
-                .filter(h -> !h.getFecha().isBefore(LocalDate.now()))
-                .sorted((h1, h2) -> {
-                    int fechaComp = h1.getFecha().compareTo(h2.getFecha());
-                    if (fechaComp != 0) return fechaComp;
-                    return h1.getHora().compareTo(h2.getHora());
-                })
-                .collect(Collectors.toList());
+        // Recorrido de rango sobre los horarios libres del odontólogo (ya ordenados)
+        return db.getHorariosDisponibles(odontologo.getId(), LocalDate.now().atStartOfDay(), null, omitir, limite);
     }
     
     /**
@@ -208,25 +225,20 @@ public class Recepcion {
             return new ArrayList<>();
         }
         
-        return db.getHorarios().values().stream()
-                .filter(h -> h.getFecha().equals(fecha))
-                .filter(h -> h.getOdontologo() != null 
-                        && h.getOdontologo().getId() == idOdontologo)
-                .filter(Horario::isDisponible)
-                .sorted((h1, h2) -> h1.getHora().compareTo(h2.getHora()))
-                .collect(Collectors.toList());
+        return db.getHorariosDisponibles(idOdontologo, fecha.atStartOfDay(), fecha.plusDays(1).atStartOfDay(),
+                0, Integer.MAX_VALUE);
     }
     
     // ========== MÉTODOS AUXILIARES ==========
     
     /**
-     * Busca un horario específico por fecha y hora
+     * Busca el horario de un odontólogo en una fecha y hora
      */
-    private Horario buscarHorarioPorFechaHora(LocalDate fecha, LocalTime hora) {
-        return db.getHorarios().values().stream()
-                .filter(h -> h.getFecha().equals(fecha) && h.getHora().equals(hora))
-                .findFirst()
-                .orElse(null);
+    private Horario buscarHorarioPorFechaHora(Odontologo odontologo, LocalDate fecha, LocalTime hora) {
+        if (odontologo == null) {
+            return null;
+        }
+        return db.buscarHorario(odontologo.getId(), fecha, hora);
     }
     
     
@@ -234,15 +246,8 @@ public class Recepcion {
      * Obtiene citas pendientes que requieren confirmación
      */
     public List<Cita> obtenerCitasPendientesConfirmacion() {
-        return db.getCitas().values().stream()
-                .filter(c -> c.getEstado() == EstadoCita.PENDIENTE)
-                .filter(c -> !c.getFecha().isBefore(LocalDate.now()))
-                .sorted((c1, c2) -> {
-                    int fechaComp = c1.getFecha().compareTo(c2.getFecha());
-                    if (fechaComp != 0) return fechaComp;
-                    return c1.getHora().compareTo(c2.getHora());
-                })
-                .collect(Collectors.toList());
+        // El grupo de pendientes ya está ordenado por fecha y hora
+        return db.getCitasPorEstado(EstadoCita.PENDIENTE, LocalDate.now());
     }
     
     
@@ -250,7 +255,7 @@ public class Recepcion {
     public String toString() {
         return "Recepcion{" +
                 "citasRegistradas=" + db.getCitas().size() +
-                ", horariosDisponibles=" + db.getHorarios().values().stream()
+                ", horariosDisponibles=" + db.getInstantaneaHorarios().stream()
                         .filter(Horario::isDisponible).count() +
                 '}';
     }
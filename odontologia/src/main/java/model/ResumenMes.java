@@ -0,0 +1,69 @@
+package model;
+
+import java.util.*;
+
+/**
+ * Resumen de las citas de una partición mensual: cuántas hay en cada estado y
+ * qué pacientes y odontólogos tienen alguna
+ * Se guarda junto a las particiones (data/citas/resumen.json) y se reescribe
+ * cada vez que se escribe la partición, así que siempre describe lo que está
+ * en disco. Permite contar citas o saber si un paciente tiene citas en meses
+ * que no están en memoria sin leerlos, y leer solo los meses que sirven.
+ */
+public class ResumenMes {
+
+    private Map<EstadoCita, Integer> porEstado = new EnumMap<>(EstadoCita.class);
+    private Set<Integer> pacientes = new TreeSet<>();
+    private Set<Integer> odontologos = new TreeSet<>();
+
+    public ResumenMes() {
+    }
+
+    /**
+     * Resume las citas de una partición (los valores del mapa que se guarda)
+     */
+    public static ResumenMes de(Collection<?> citas) {
+        ResumenMes resumen = new ResumenMes();
+        for (Object valor : citas) {
+            Cita cita = (Cita) valor;
+            if (cita.getEstado() != null) {
+                resumen.porEstado.merge(cita.getEstado(), 1, Integer::sum);
+            }
+            if (cita.getPaciente() != null) {
+                resumen.pacientes.add(cita.getPaciente().getId());
+            }
+            if (cita.getOdontologo() != null) {
+                resumen.odontologos.add(cita.getOdontologo().getId());
+            }
+        }
+        return resumen;
+    }
+
+    /**
+     * @return cantidad de citas del mes en ese estado
+     */
+    public int cantidad(EstadoCita estado) {
+        return porEstado.getOrDefault(estado, 0);
+    }
+
+    public boolean tienePaciente(int idPaciente) {
+        return pacientes.contains(idPaciente);
+    }
+
+    public boolean tieneOdontologo(int idOdontologo) {
+        return odontologos.contains(idOdontologo);
+    }
+
+    @Override
+    public boolean equals(Object otro) {
+        return otro instanceof ResumenMes resumen
+                && porEstado.equals(resumen.porEstado)
+                && pacientes.equals(resumen.pacientes)
+                && odontologos.equals(resumen.odontologos);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(porEstado, pacientes, odontologos);
+    }
+}
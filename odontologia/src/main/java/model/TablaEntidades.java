@@ -0,0 +1,421 @@
+package model;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Mapa de entidades por ID que registra qué entradas cambiaron desde el último guardado
+ * Se suscribe a cada entidad que contiene, de modo que tanto las altas y bajas
+ * como las modificaciones de sus campos quedan marcadas como pendientes.
+ *
+ * Puede usarse desde varios hilos: las lecturas del mapa van directo a un
+ * ConcurrentHashMap (recorrerlo nunca lanza ConcurrentModificationException)
+ * y cada alta, baja o modificación, junto con la actualización de los índices,
+ * se hace con el bloqueo de escritura de la tabla. Las consultas a los índices
+ * deben hacerse dentro de {@link #leer(Supplier)}. Para recorrer todas las
+ * entidades sin copiarlas está {@link #instantanea()}.
+ */
+public class TablaEntidades<V extends Entidad> extends AbstractMap<Integer, V> implements ObservadorEntidad {
+
+    private final Map<Integer, V> datos = new ConcurrentHashMap<>();
+    private final Set<Integer> modificados = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> eliminados = ConcurrentHashMap.newKeySet();
+    private final List<IndiceTabla<V>> indices = new CopyOnWriteArrayList<>();
+    private final ReentrantReadWriteLock bloqueo = new ReentrantReadWriteLock();
+    private boolean validarIndices = true;
+    private Set<Map.Entry<Integer, V>> entradas;
+    // Lista inmutable de las entidades; null si hubo altas o bajas desde que se armó
+    private volatile List<V> instantanea;
+
+    public TablaEntidades() {
+    }
+
+    /**
+     * Crea la tabla con datos ya persistidos (no quedan marcados como cambios)
+     */
+    public TablaEntidades(Map<Integer, ? extends V> iniciales) {
+        for (Map.Entry<Integer, ? extends V> entry : iniciales.entrySet()) {
+            if (entry.getValue() != null) {
+                datos.put(entry.getKey(), entry.getValue());
+                entry.getValue().setObservador(this);
+            }
+        }
+    }
+
+    // ========== OPERACIONES DEL MAPA ==========
+
+    @Override
+    public V get(Object id) {
+        return datos.get(id);
+    }
+
+    @Override
+    public boolean containsKey(Object id) {
+        return datos.containsKey(id);
+    }
+
+    @Override
+    public int size() {
+        return datos.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return datos.isEmpty();
+    }
+
+    @Override
+    public V put(Integer id, V entidad) {
+        Objects.requireNonNull(entidad, "La tabla no admite entidades nulas");
+        bloqueo.writeLock().lock();
+        try {
+            return agregar(id, entidad);
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    private V agregar(Integer id, V entidad) {
+        if (validarIndices) {
+            for (IndiceTabla<V> indice : indices) {
+                indice.validar(entidad);
+            }
+        }
+        V anterior = datos.put(id, entidad);
+        if (anterior != entidad) {
+            instantanea = null;
+        }
+        if (anterior != null && anterior != entidad) {
+            entidad.continuarVersion(anterior);
+            desvincular(anterior);
+            for (IndiceTabla<V> indice : indices) {
+                indice.eliminar(anterior);
+            }
+        }
+        entidad.setObservador(this);
+        for (IndiceTabla<V> indice : indices) {
+            if (anterior == entidad) {
+                indice.actualizar(entidad);
+            } else {
+                indice.agregar(entidad);
+            }
+        }
+        modificados.add(id);
+        eliminados.remove(id);
+        alAgregar(id, anterior, entidad);
+        return anterior;
+    }
+
+    /**
+     * Agrega o reemplaza una entidad reproducida desde el journal, sin que los
+     * índices la validen: a mitad de un lote puede haber duplicados transitorios
+     * (por ejemplo, dos pacientes que intercambiaron expediente)
+     */
+    public V restaurar(Integer id, V entidad) {
+        bloqueo.writeLock().lock();
+        validarIndices = false;
+        try {
+            return put(id, entidad);
+        } finally {
+            validarIndices = true;
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public V remove(Object id) {
+        bloqueo.writeLock().lock();
+        try {
+            V anterior = datos.remove(id);
+            if (anterior != null) {
+                registrarEliminacion((Integer) id, anterior);
+            }
+            return anterior;
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        bloqueo.writeLock().lock();
+        try {
+            for (Map.Entry<Integer, V> entry : datos.entrySet()) {
+                registrarEliminacion(entry.getKey(), entry.getValue());
+            }
+            datos.clear();
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Vista de las entradas; eliminar desde su iterador (por ejemplo con removeIf)
+     * también queda registrado como cambio
+     */
+    @Override
+    public Set<Map.Entry<Integer, V>> entrySet() {
+        if (entradas == null) {
+            entradas = new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<Integer, V>> iterator() {
+                    Iterator<Map.Entry<Integer, V>> it = datos.entrySet().iterator();
+                    return new Iterator<>() {
+                        private Map.Entry<Integer, V> actual;
+
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<Integer, V> next() {
+                            actual = it.next();
+                            return actual;
+                        }
+
+                        @Override
+                        public void remove() {
+                            bloqueo.writeLock().lock();
+                            try {
+                                // Solo si sigue siendo la misma entidad (otro hilo pudo reemplazarla)
+                                if (datos.remove(actual.getKey(), actual.getValue())) {
+                                    registrarEliminacion(actual.getKey(), actual.getValue());
+                                }
+                            } finally {
+                                bloqueo.writeLock().unlock();
+                            }
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return datos.size();
+                }
+            };
+        }
+        return entradas;
+    }
+
+    /**
+     * Lista inmutable de las entidades de la tabla en un momento dado, ordenada por ID
+     * Se arma la primera vez que se pide después de un alta o baja y se comparte
+     * entre todos los lectores hasta la siguiente, así que recorrerla no requiere
+     * bloqueos ni copias aunque otros hilos sigan escribiendo. Contiene las mismas
+     * entidades de la tabla: los cambios en sus campos se ven en la lista, las
+     * altas y bajas posteriores no.
+     */
+    public List<V> instantanea() {
+        List<V> lista = instantanea;
+        if (lista != null) {
+            return lista;
+        }
+        // Con el bloqueo de lectura ninguna escritura puede invalidarla mientras se arma
+        bloqueo.readLock().lock();
+        try {
+            lista = instantanea;
+            if (lista == null) {
+                List<V> ordenada = new ArrayList<>(datos.values());
+                ordenada.sort(Comparator.comparingInt(Entidad::getId));
+                lista = Collections.unmodifiableList(ordenada);
+                instantanea = lista;
+            }
+            return lista;
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reemplaza todo el contenido por las entidades leídas de disco (al recargar
+     * los archivos). La tabla conserva su identidad y sus índices, de modo que
+     * quien la obtuvo antes de la recarga sigue escribiendo en la tabla vigente.
+     * Los cambios pendientes se descartan: quien recarga debe haberlos guardado
+     * antes, con la tabla bloqueada para que nadie agregue otros mientras tanto.
+     */
+    public void recargar(Map<Integer, ? extends V> guardadas) {
+        bloqueo.writeLock().lock();
+        try {
+            for (V entidad : datos.values()) {
+                desvincular(entidad);
+                for (IndiceTabla<V> indice : indices) {
+                    indice.eliminar(entidad);
+                }
+            }
+            datos.clear();
+            modificados.clear();
+            eliminados.clear();
+            instantanea = null;
+            for (Map.Entry<Integer, ? extends V> entry : guardadas.entrySet()) {
+                if (entry.getValue() != null) {
+                    agregarGuardada(entry.getKey(), entry.getValue());
+                }
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    // ========== SEGUIMIENTO DE CAMBIOS ==========
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void entidadModificada(Entidad entidad) {
+        bloqueo.writeLock().lock();
+        try {
+            if (datos.get(entidad.getId()) == entidad) {
+                modificados.add(entidad.getId());
+                for (IndiceTabla<V> indice : indices) {
+                    indice.actualizar((V) entidad);
+                }
+                alModificar((V) entidad);
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true si hubo altas, bajas o modificaciones desde el último guardado
+     */
+    public boolean tieneCambios() {
+        return !modificados.isEmpty() || !eliminados.isEmpty();
+    }
+
+    /**
+     * IDs agregados o modificados desde el último guardado
+     */
+    public Set<Integer> getModificados() {
+        return Collections.unmodifiableSet(modificados);
+    }
+
+    /**
+     * IDs eliminados desde el último guardado
+     */
+    public Set<Integer> getEliminados() {
+        return Collections.unmodifiableSet(eliminados);
+    }
+
+    /**
+     * Marca la tabla como guardada
+     */
+    public void limpiarCambios() {
+        bloqueo.writeLock().lock();
+        try {
+            modificados.clear();
+            eliminados.clear();
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    // ========== CONCURRENCIA ==========
+
+    /**
+     * Ejecuta una consulta a los índices sin que otro hilo modifique la tabla mientras tanto
+     * La consulta no debe modificar la tabla ni cargar particiones (no se puede
+     * pasar del bloqueo de lectura al de escritura).
+     */
+    public <T> T leer(Supplier<T> consulta) {
+        bloqueo.readLock().lock();
+        try {
+            return consulta.get();
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ejecuta varias operaciones sobre la tabla como una sola (por ejemplo, leer
+     * los cambios pendientes y marcarlos como guardados sin perder los de otro hilo)
+     */
+    public <T> T exclusivo(Supplier<T> operacion) {
+        bloqueo.writeLock().lock();
+        try {
+            return operacion.get();
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    // ========== ÍNDICES ==========
+
+    /**
+     * Agrega un índice secundario; se llena con las entidades actuales y desde
+     * entonces la tabla lo mantiene sincronizado
+     */
+    public void agregarIndice(IndiceTabla<V> indice) {
+        bloqueo.writeLock().lock();
+        try {
+            indices.add(indice);
+            for (V entidad : datos.values()) {
+                indice.agregar(entidad);
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    // ========== EXTENSIÓN PARA SUBCLASES ==========
+
+    /**
+     * Se invoca después de agregar o reemplazar una entidad
+     * @param anterior la entidad reemplazada, o null si el ID era nuevo
+     */
+    protected void alAgregar(Integer id, V anterior, V entidad) {
+    }
+
+    /**
+     * Se invoca después de eliminar una entidad
+     */
+    protected void alEliminar(Integer id, V entidad) {
+    }
+
+    /**
+     * Se invoca cuando una entidad de la tabla notifica un cambio en sus campos
+     */
+    protected void alModificar(V entidad) {
+    }
+
+    /**
+     * Agrega una entidad leída de disco sin marcarla como cambio ni invocar los
+     * avisos de alta (la entidad ya está guardada). Sí invalida la instantánea:
+     * las particiones que se cargan después deben aparecer en ella.
+     */
+    protected void agregarGuardada(Integer id, V entidad) {
+        bloqueo.writeLock().lock();
+        try {
+            instantanea = null;
+            datos.put(id, entidad);
+            entidad.setObservador(this);
+            for (IndiceTabla<V> indice : indices) {
+                indice.agregar(entidad);
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private void registrarEliminacion(Integer id, V entidad) {
+        instantanea = null;
+        desvincular(entidad);
+        modificados.remove(id);
+        eliminados.add(id);
+        for (IndiceTabla<V> indice : indices) {
+            indice.eliminar(entidad);
+        }
+        alEliminar(id, entidad);
+    }
+
+    private void desvincular(V entidad) {
+        if (entidad.getObservador() == this) {
+            entidad.setObservador(null);
+        }
+    }
+}
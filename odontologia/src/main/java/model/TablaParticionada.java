@@ -0,0 +1,390 @@
+package model;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Tabla de entidades guardada en particiones mensuales (una por mes de la fecha)
+ *
+ * Al iniciar solo se cargan algunas particiones (el mes actual y los siguientes);
+ * el resto se lee de disco la primera vez que se necesita:
+ * - get/containsKey/remove de un ID que está en una partición sin cargar
+ * - agregar o mover (por cambio de fecha) una entidad a una partición sin cargar
+ * - cargarTodas(), para consultas que deben recorrer el historial completo
+ *
+ * La vista de mapa (size, values, entrySet) solo contiene las entidades cargadas.
+ * El índice ID → partición cubre también las no cargadas y se guarda en disco.
+ * Leer una partición se hace con el bloqueo de escritura de la tabla, así dos
+ * hilos que la piden a la vez no la cargan dos veces.
+ */
+public class TablaParticionada<V extends Entidad> extends TablaEntidades<V> {
+
+    /** Partición de las entidades sin fecha */
+    public static final String SIN_FECHA = "sin-fecha";
+
+    private final Function<V, LocalDate> fechaDe;
+    private final Function<String, Map<Integer, V>> cargador;
+
+    // ID → partición de todas las entidades conocidas (cargadas o no)
+    private final Map<Integer, String> indice = new ConcurrentHashMap<>();
+    private final Set<String> cargadas = ConcurrentHashMap.newKeySet();
+    private final Set<String> existentes = new ConcurrentSkipListSet<>();
+    private final Set<String> modificadas = ConcurrentHashMap.newKeySet();
+    // Particiones que se están leyendo (ya figuran en 'cargadas' pero aún no terminan)
+    private final Set<String> enCarga = ConcurrentHashMap.newKeySet();
+    private volatile boolean indiceModificado = false;
+
+    /**
+     * Tabla nueva, sin datos en disco
+     */
+    public TablaParticionada(Function<V, LocalDate> fechaDe) {
+        this(fechaDe, null);
+    }
+
+    /**
+     * Tabla sin datos que, tras {@link #recargar}, lee de disco las particiones sin cargar
+     */
+    public TablaParticionada(Function<V, LocalDate> fechaDe, Function<String, Map<Integer, V>> cargador) {
+        this(Map.of(), null, List.of(), particion -> true, fechaDe, cargador);
+    }
+
+    /**
+     * @param iniciales entidades ya leídas de disco
+     * @param indiceGuardado índice ID → partición leído de disco, o null si los datos no
+     *                       estaban particionados (en ese caso todo está cargado)
+     * @param particionesGuardadas particiones que existen en disco
+     * @param cargadasAlInicio indica qué particiones se leyeron para formar los iniciales
+     * @param fechaDe fecha que determina la partición de una entidad
+     * @param cargador lee de disco las entidades de una partición
+     */
+    public TablaParticionada(Map<Integer, ? extends V> iniciales, Map<Integer, String> indiceGuardado,
+                             Collection<String> particionesGuardadas, Predicate<String> cargadasAlInicio,
+                             Function<V, LocalDate> fechaDe, Function<String, Map<Integer, V>> cargador) {
+        super(iniciales);
+        this.fechaDe = fechaDe;
+        this.cargador = cargador;
+        registrarParticiones(indiceGuardado, particionesGuardadas, cargadasAlInicio);
+    }
+
+    /**
+     * Clave de partición para una fecha: "AAAA-MM", o "sin-fecha"
+     */
+    public static String particionDe(LocalDate fecha) {
+        return fecha != null ? YearMonth.from(fecha).toString() : SIN_FECHA;
+    }
+
+    /**
+     * Reemplaza el contenido por lo leído de disco, conservando la tabla y sus índices
+     * (los parámetros son los mismos del constructor)
+     */
+    public void recargar(Map<Integer, ? extends V> guardadas, Map<Integer, String> indiceGuardado,
+                         Collection<String> particionesGuardadas, Predicate<String> cargadasAlInicio) {
+        exclusivo(() -> {
+            indice.clear();
+            cargadas.clear();
+            existentes.clear();
+            modificadas.clear();
+            indiceModificado = false;
+            super.recargar(guardadas);
+            registrarParticiones(indiceGuardado, particionesGuardadas, cargadasAlInicio);
+            return null;
+        });
+    }
+
+    /**
+     * Recarga con datos sin particionar: todo queda en memoria
+     */
+    @Override
+    public void recargar(Map<Integer, ? extends V> guardadas) {
+        recargar(guardadas, null, List.of(), particion -> true);
+    }
+
+    private void registrarParticiones(Map<Integer, String> indiceGuardado,
+                                      Collection<String> particionesGuardadas, Predicate<String> cargadasAlInicio) {
+        if (indiceGuardado != null) {
+            indice.putAll(indiceGuardado);
+            existentes.addAll(indiceGuardado.values());
+            existentes.addAll(particionesGuardadas);
+            for (String particion : existentes) {
+                if (cargadasAlInicio.test(particion)) {
+                    cargadas.add(particion);
+                }
+            }
+        }
+        for (V entidad : values()) {
+            String particion = particionDe(entidad);
+            if (!particion.equals(indice.put(entidad.getId(), particion))) {
+                indiceModificado = true;
+            }
+            existentes.add(particion);
+            cargadas.add(particion);
+        }
+    }
+
+    // ========== OPERACIONES DEL MAPA ==========
+
+    @Override
+    public V get(Object id) {
+        V entidad = super.get(id);
+        if (entidad == null && cargarParticionDeId(id)) {
+            entidad = super.get(id);
+        }
+        return entidad;
+    }
+
+    @Override
+    public boolean containsKey(Object id) {
+        return get(id) != null;
+    }
+
+    @Override
+    public V put(Integer id, V entidad) {
+        return exclusivo(() -> {
+            // Si el ID ya existe en una partición sin cargar, se carga para no duplicarlo
+            cargarParticionDeId(id);
+            asegurarCargada(particionDe(entidad));
+            return super.put(id, entidad);
+        });
+    }
+
+    @Override
+    public V remove(Object id) {
+        return exclusivo(() -> {
+            cargarParticionDeId(id);
+            return super.remove(id);
+        });
+    }
+
+    // ========== PARTICIONES ==========
+
+    /**
+     * Carga todas las particiones que aún no están en memoria (historial completo)
+     */
+    public void cargarTodas() {
+        for (String particion : new ArrayList<>(existentes)) {
+            asegurarCargada(particion);
+        }
+    }
+
+    /**
+     * Carga la partición del mes de la fecha, si aún no está en memoria
+     */
+    public void cargarMes(LocalDate fecha) {
+        asegurarCargada(particionDe(fecha));
+    }
+
+    /**
+     * Carga la partición indicada ("AAAA-MM" o "sin-fecha"), si aún no está en memoria
+     */
+    public void cargarParticion(String particion) {
+        asegurarCargada(particion);
+    }
+
+    /**
+     * Entidad en memoria con ese ID, sin leer su partición si no está cargada
+     */
+    public V getCargada(Object id) {
+        return super.get(id);
+    }
+
+    /**
+     * Particiones en memoria
+     */
+    public Set<String> getParticionesCargadas() {
+        return Collections.unmodifiableSet(cargadas);
+    }
+
+    /**
+     * Particiones guardadas en disco que aún no están en memoria
+     * (con el bloqueo de lectura tomado, ninguna puede cargarse mientras se usan)
+     */
+    public Set<String> getParticionesSinCargar() {
+        Set<String> sinCargar = new TreeSet<>(existentes);
+        sinCargar.removeAll(cargadas);
+        return sinCargar;
+    }
+
+    /**
+     * Particiones con altas, bajas o modificaciones desde el último guardado
+     */
+    public Set<String> getParticionesModificadas() {
+        return Collections.unmodifiableSet(modificadas);
+    }
+
+    /**
+     * Índice ID → partición de todas las entidades (cargadas o no)
+     */
+    public Map<Integer, String> getIndice() {
+        return Collections.unmodifiableMap(indice);
+    }
+
+    /**
+     * @return true si el índice cambió desde el último guardado
+     */
+    public boolean isIndiceModificado() {
+        return indiceModificado;
+    }
+
+    /**
+     * Copia las entidades cargadas de las particiones indicadas
+     * (una partición sin entidades queda como mapa vacío)
+     */
+    public Map<String, Map<Integer, V>> copiarParticiones(Set<String> particiones) {
+        Map<String, Map<Integer, V>> copias = new TreeMap<>();
+        for (String particion : particiones) {
+            copias.put(particion, new LinkedHashMap<>());
+        }
+        for (Map.Entry<Integer, V> entry : entrySet()) {
+            Map<Integer, V> copia = copias.get(indice.get(entry.getKey()));
+            if (copia != null) {
+                copia.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return copias;
+    }
+
+    @Override
+    public void limpiarCambios() {
+        exclusivo(() -> {
+            super.limpiarCambios();
+            modificadas.clear();
+            indiceModificado = false;
+            return null;
+        });
+    }
+
+    // ========== SEGUIMIENTO DE PARTICIONES ==========
+
+    @Override
+    protected void alAgregar(Integer id, V anterior, V entidad) {
+        moverA(id, particionDe(entidad));
+    }
+
+    @Override
+    protected void alEliminar(Integer id, V entidad) {
+        String particion = indice.remove(id);
+        if (particion != null) {
+            modificadas.add(particion);
+            indiceModificado = true;
+        }
+    }
+
+    @Override
+    protected void alModificar(V entidad) {
+        String nueva = particionDe(entidad);
+        if (!nueva.equals(indice.get(entidad.getId()))) {
+            // Cambió de mes (por ejemplo al reprogramar): la partición destino debe estar cargada
+            asegurarCargada(nueva);
+            moverA(entidad.getId(), nueva);
+        } else {
+            modificadas.add(nueva);
+        }
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private String particionDe(V entidad) {
+        return particionDe(fechaDe.apply(entidad));
+    }
+
+    private void moverA(Integer id, String particion) {
+        String anterior = indice.put(id, particion);
+        if (anterior != null && !anterior.equals(particion)) {
+            modificadas.add(anterior);
+        }
+        if (!particion.equals(anterior)) {
+            indiceModificado = true;
+        }
+        modificadas.add(particion);
+        existentes.add(particion);
+    }
+
+    /**
+     * Si el ID pertenece a una partición sin cargar, la carga
+     * @return true si se cargó alguna partición
+     */
+    private boolean cargarParticionDeId(Object id) {
+        String particion = indice.get(id);
+        if (particion != null && !estaCargada(particion)) {
+            asegurarCargada(particion);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true si la partición ya terminó de leerse (sin tomar el bloqueo)
+     */
+    private boolean estaCargada(String particion) {
+        // Se marca 'enCarga' antes que 'cargadas', por lo que este orden de lectura no ve una a medias
+        return cargadas.contains(particion) && !enCarga.contains(particion);
+    }
+
+    private void asegurarCargada(String particion) {
+        if (estaCargada(particion)) {
+            return;
+        }
+        exclusivo(() -> {
+            // Otro hilo pudo cargarla mientras se esperaba el bloqueo; si la está
+            // leyendo este mismo hilo (al enlazar referencias), no se vuelve a leer
+            if (cargadas.contains(particion)) {
+                return null;
+            }
+            enCarga.add(particion);
+            cargadas.add(particion);
+            try {
+                // Una partición nueva (un mes sin datos en disco) no necesita leerse
+                boolean enDisco = !existentes.add(particion);
+                if (enDisco && cargador != null) {
+                    Map<Integer, V> guardadas = cargador.apply(particion);
+                    if (guardadas != null) {
+                        agregarGuardadas(particion, guardadas);
+                    }
+                }
+            } finally {
+                enCarga.remove(particion);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Incorpora las entidades leídas de una partición, salvo las que ya están en
+     * memoria. El índice se guarda después de las particiones y puede estar
+     * atrasado (si un guardado se cortó entre ambos), así que se corrige con lo
+     * que contiene la partición: una entidad que el índice no conoce es nueva, una
+     * que el índice ubica en otra partición que ya no la contiene se movió de mes,
+     * y una que el índice ubica aquí pero no está en el archivo fue eliminada.
+     */
+    private void agregarGuardadas(String particion, Map<Integer, V> guardadas) {
+        int agregadas = 0;
+        for (Map.Entry<Integer, V> entry : guardadas.entrySet()) {
+            Integer id = entry.getKey();
+            if (entry.getValue() == null || super.get(id) != null) {
+                continue;
+            }
+            String segunIndice = indice.get(id);
+            if (segunIndice != null && !segunIndice.equals(particion)) {
+                // Si la partición que indica el índice la contiene, esa es la vigente
+                asegurarCargada(segunIndice);
+                if (super.get(id) != null) {
+                    continue;
+                }
+            }
+            agregarGuardada(id, entry.getValue());
+            if (!particion.equals(indice.put(id, particion))) {
+                indiceModificado = true;
+            }
+            agregadas++;
+        }
+        if (indice.entrySet().removeIf(entry -> particion.equals(entry.getValue()) && super.get(entry.getKey()) == null)) {
+            indiceModificado = true;
+        }
+        System.out.println("Partición cargada: " + particion + " (" + agregadas + " registros)");
+    }
+}
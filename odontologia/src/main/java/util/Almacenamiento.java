@@ -0,0 +1,52 @@
+package util;
+
+/**
+ * Formatos de archivo disponibles para las instantáneas de datos
+ * El código se guarda en counters.json para saber con qué formato se escribieron
+ */
+public enum Almacenamiento {
+
+    JSON(0, ".json"),
+    BINARIO(1, ".bin");
+
+    private final int codigo;
+    private final String extension;
+
+    Almacenamiento(int codigo, String extension) {
+        this.codigo = codigo;
+        this.extension = extension;
+    }
+
+    public int getCodigo() {
+        return codigo;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @return el formato con ese código, o JSON si el código no existe
+     */
+    public static Almacenamiento porCodigo(int codigo) {
+        for (Almacenamiento a : values()) {
+            if (a.codigo == codigo) {
+                return a;
+            }
+        }
+        return JSON;
+    }
+
+    /**
+     * Busca el formato por nombre ("json" o "binario"), sin distinguir mayúsculas
+     * @return el formato o null si el nombre no existe
+     */
+    public static Almacenamiento porNombre(String nombre) {
+        for (Almacenamiento a : values()) {
+            if (a.name().equalsIgnoreCase(nombre.trim())) {
+                return a;
+            }
+        }
+        return null;
+    }
+}
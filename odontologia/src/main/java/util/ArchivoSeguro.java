@@ -0,0 +1,192 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.zip.CRC32;
+
+/**
+ * Escritura y lectura de archivos de datos resistente a cortes
+ *
+ * ESCRITURA:
+ * 1. El contenido se escribe en "archivo.tmp" y se fuerza a disco (fsync)
+ * 2. La versión actual pasa a ser la generación anterior ("archivo.bak")
+ * 3. El temporal se renombra atómicamente sobre el archivo definitivo
+ * 4. Se guarda la suma de verificación CRC32 en "archivo.crc"
+ *
+ * LECTURA:
+ * Se verifica la suma de verificación y que el contenido pueda interpretarse;
+ * si el archivo está dañado o falta, se recurre a la generación anterior.
+ */
+public class ArchivoSeguro {
+
+    /**
+     * Interpreta el contenido leído; debe lanzar una excepción si no es válido
+     */
+    @FunctionalInterface
+    public interface Decodificador<T> {
+        T decodificar(byte[] contenido) throws Exception;
+    }
+
+    private static final String EXT_TEMPORAL = ".tmp";
+    private static final String EXT_ANTERIOR = ".bak";
+    private static final String EXT_CHECKSUM = ".crc";
+
+    private ArchivoSeguro() {
+    }
+
+    // ========== ESCRITURA ==========
+
+    /**
+     * Reemplaza el archivo de forma atómica, conservando la generación anterior
+     */
+    public static void escribir(Path archivo, byte[] contenido) throws IOException {
+        Path temporal = conSufijo(archivo, EXT_TEMPORAL);
+        Path checksum = conSufijo(archivo, EXT_CHECKSUM);
+        Path checksumTemporal = conSufijo(checksum, EXT_TEMPORAL);
+
+        escribirYForzar(temporal, contenido);
+        escribirYForzar(checksumTemporal, describirChecksum(contenido).getBytes(StandardCharsets.US_ASCII));
+
+        // Conservar la versión actual como generación anterior
+        if (Files.exists(archivo)) {
+            Path anterior = conSufijo(archivo, EXT_ANTERIOR);
+            Path checksumAnterior = conSufijo(anterior, EXT_CHECKSUM);
+            mover(archivo, anterior);
+            if (Files.exists(checksum)) {
+                mover(checksum, checksumAnterior);
+            } else {
+                Files.deleteIfExists(checksumAnterior);
+            }
+        }
+
+        mover(temporal, archivo);
+        mover(checksumTemporal, checksum);
+        forzarDirectorio(archivo);
+    }
+
+    /**
+     * Anexa contenido al final del archivo y lo fuerza a disco antes de volver
+     */
+    public static void anexar(Path archivo, byte[] contenido) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            escribirCompleto(canal, contenido);
+            canal.force(false);
+        }
+    }
+
+    // ========== LECTURA ==========
+
+    /**
+     * Lee y decodifica el archivo; si falta, su checksum no coincide o no puede
+     * decodificarse, intenta con la generación anterior
+     * @return el contenido decodificado, o null si ninguna generación es válida
+     */
+    public static <T> T leer(Path archivo, Decodificador<T> decodificador) {
+        T datos = leerGeneracion(archivo, conSufijo(archivo, EXT_CHECKSUM), decodificador);
+        if (datos != null) {
+            return datos;
+        }
+
+        Path anterior = conSufijo(archivo, EXT_ANTERIOR);
+        if (Files.exists(anterior)) {
+            datos = leerGeneracion(anterior, conSufijo(anterior, EXT_CHECKSUM), decodificador);
+            if (datos != null) {
+                System.err.println("Se recuperó la generación anterior de " + archivo);
+            }
+        }
+        return datos;
+    }
+
+    /**
+     * @return true si existe el archivo o su generación anterior
+     */
+    public static boolean existe(Path archivo) {
+        return Files.exists(archivo) || Files.exists(conSufijo(archivo, EXT_ANTERIOR));
+    }
+
+    /**
+     * Suma de verificación CRC32 de un bloque de bytes
+     */
+    public static long crc32(byte[] contenido, int desde, int longitud) {
+        CRC32 crc = new CRC32();
+        crc.update(contenido, desde, longitud);
+        return crc.getValue();
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private static <T> T leerGeneracion(Path archivo, Path checksum, Decodificador<T> decodificador) {
+        if (!Files.exists(archivo)) {
+            return null;
+        }
+        try {
+            byte[] contenido = Files.readAllBytes(archivo);
+
+            // Archivos anteriores a esta versión no tienen checksum: se aceptan si se pueden leer
+            if (Files.exists(checksum)) {
+                String esperado = new String(Files.readAllBytes(checksum), StandardCharsets.US_ASCII).trim();
+                if (!esperado.equals(describirChecksum(contenido))) {
+                    System.err.println("Checksum inválido en " + archivo + " (archivo dañado)");
+                    return null;
+                }
+            }
+
+            T datos = decodificador.decodificar(contenido);
+            if (datos == null) {
+                System.err.println("Archivo vacío o inválido: " + archivo);
+            }
+            return datos;
+        } catch (Exception e) {
+            System.err.println("Error al leer " + archivo + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String describirChecksum(byte[] contenido) {
+        return "CRC32 " + Long.toHexString(crc32(contenido, 0, contenido.length)) + " " + contenido.length;
+    }
+
+    private static void escribirYForzar(Path archivo, byte[] contenido) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            escribirCompleto(canal, contenido);
+            canal.force(true);
+        }
+    }
+
+    private static void escribirCompleto(FileChannel canal, byte[] contenido) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(contenido);
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+    }
+
+    private static void mover(Path origen, Path destino) throws IOException {
+        try {
+            Files.move(origen, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(origen, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Fuerza a disco la entrada del directorio para que el renombrado sobreviva a un corte
+     * (no está soportado en todos los sistemas operativos, en ese caso se ignora)
+     */
+    private static void forzarDirectorio(Path archivo) {
+        Path directorio = archivo.toAbsolutePath().getParent();
+        try (FileChannel canal = FileChannel.open(directorio, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException | UnsupportedOperationException e) {
+            // Sin soporte para sincronizar directorios
+        }
+    }
+
+    private static Path conSufijo(Path archivo, String sufijo) {
+        return archivo.resolveSibling(archivo.getFileName() + sufijo);
+    }
+}
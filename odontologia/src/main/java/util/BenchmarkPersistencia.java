@@ -0,0 +1,146 @@
+package util;
+
+import model.*;
+import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Compara el rendimiento de guardado y carga de citas entre:
+ * - la configuración anterior: Gson por reflexión, serializadores de árbol
+ *   para LocalDate/LocalTime, objetos embebidos y formato legible
+ * - los TypeAdapter de streaming de CitaSerializer, con y sin formato legible
+ *
+ * Uso: java util.BenchmarkPersistencia [cantidadCitas] [repeticiones]
+ * (por defecto 100000 citas y 5 repeticiones). Trabaja en un directorio temporal
+ * y no modifica los archivos de data/.
+ */
+public class BenchmarkPersistencia {
+
+    private static final Type TIPO_CITAS = new TypeToken<Map<Integer, Cita>>(){}.getType();
+
+    public static void main(String[] args) throws IOException {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int repeticiones = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Map<Integer, Cita> citas = generarCitas(cantidad);
+        Path directorio = Files.createTempDirectory("benchmark-odontologia");
+
+        System.out.println("Benchmark de persistencia: " + cantidad + " citas, " + repeticiones + " repeticiones");
+        System.out.printf("%-38s %10s %12s %12s %10s %10s%n",
+                "Configuración", "Tamaño", "Guardar ms", "Cargar ms", "Guardar/s", "Cargar/s");
+
+        medir("Anterior (reflexión + árbol, legible)", crearGsonAnterior(), citas, directorio, repeticiones);
+        medir("Streaming, legible", crearGsonStreaming(true), citas, directorio, repeticiones);
+        medir("Streaming, compacto", crearGsonStreaming(false), citas, directorio, repeticiones);
+
+        try (var archivos = Files.list(directorio)) {
+            for (Path archivo : archivos.toList()) {
+                Files.deleteIfExists(archivo);
+            }
+        }
+        Files.deleteIfExists(directorio);
+    }
+
+    /**
+     * Guarda y carga el mapa completo varias veces y muestra la mediana
+     */
+    private static void medir(String nombre, Gson gson, Map<Integer, Cita> citas,
+                              Path directorio, int repeticiones) throws IOException {
+        Path archivo = directorio.resolve("citas.json");
+
+        // Calentamiento para que el JIT compile ambos caminos antes de medir
+        for (int i = 0; i < 2; i++) {
+            Files.write(archivo, DataPersistence.serializar(gson, citas));
+            DataPersistence.deserializar(gson, Files.readAllBytes(archivo), TIPO_CITAS);
+        }
+
+        long[] guardado = new long[repeticiones];
+        long[] carga = new long[repeticiones];
+        long tamano = 0;
+        for (int i = 0; i < repeticiones; i++) {
+            long inicio = System.nanoTime();
+            byte[] contenido = DataPersistence.serializar(gson, citas);
+            Files.write(archivo, contenido);
+            guardado[i] = System.nanoTime() - inicio;
+            tamano = contenido.length;
+
+            inicio = System.nanoTime();
+            Map<Integer, Cita> leidas = DataPersistence.deserializar(gson, Files.readAllBytes(archivo), TIPO_CITAS);
+            carga[i] = System.nanoTime() - inicio;
+            if (leidas.size() != citas.size()) {
+                throw new IllegalStateException("Se leyeron " + leidas.size() + " de " + citas.size() + " citas");
+            }
+        }
+
+        double msGuardar = mediana(guardado) / 1_000_000.0;
+        double msCargar = mediana(carga) / 1_000_000.0;
+        System.out.printf("%-38s %8.1f MB %12.1f %12.1f %10.0f %10.0f%n",
+                nombre, tamano / (1024.0 * 1024.0), msGuardar, msCargar,
+                citas.size() / (msGuardar / 1000.0), citas.size() / (msCargar / 1000.0));
+    }
+
+    // ========== CONFIGURACIONES ==========
+
+    /**
+     * Reproduce el Gson que usaba CitaSerializer antes de los TypeAdapter de streaming
+     */
+    private static Gson crearGsonAnterior() {
+        return new GsonBuilder()
+                .registerTypeAdapter(LocalDate.class, (JsonSerializer<LocalDate>)
+                        (fecha, tipo, contexto) -> new JsonPrimitive(fecha.toString()))
+                .registerTypeAdapter(LocalDate.class, (JsonDeserializer<LocalDate>)
+                        (json, tipo, contexto) -> LocalDate.parse(json.getAsString()))
+                .registerTypeAdapter(LocalTime.class, (JsonSerializer<LocalTime>)
+                        (hora, tipo, contexto) -> new JsonPrimitive(hora.toString()))
+                .registerTypeAdapter(LocalTime.class, (JsonDeserializer<LocalTime>)
+                        (json, tipo, contexto) -> LocalTime.parse(json.getAsString()))
+                .setPrettyPrinting()
+                .create();
+    }
+
+    private static Gson crearGsonStreaming(boolean legible) {
+        return legible ? CitaSerializer.getGsonCompacto().newBuilder().setPrettyPrinting().create()
+                : CitaSerializer.getGsonCompacto();
+    }
+
+    // ========== DATOS DE PRUEBA ==========
+
+    private static Map<Integer, Cita> generarCitas(int cantidad) {
+        Random random = new Random(42);
+        List<Odontologo> odontologos = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            odontologos.add(new Odontologo(i, "Odontólogo " + i, 88880000 + i, "Especialidad " + (i % 5), 1000 + i));
+        }
+        List<Paciente> pacientes = new ArrayList<>();
+        for (int i = 1; i <= 5_000; i++) {
+            pacientes.add(new Paciente(100 + i, "Paciente Número " + i, 77770000 + i, "EXP-" + i));
+        }
+
+        EstadoCita[] estados = EstadoCita.values();
+        LocalDate inicio = LocalDate.of(2024, 1, 1);
+        Map<Integer, Cita> citas = new HashMap<>(cantidad * 2);
+        for (int id = 1; id <= cantidad; id++) {
+            citas.put(id, new Cita(id,
+                    inicio.plusDays(random.nextInt(730)),
+                    LocalTime.of(8 + random.nextInt(10), random.nextBoolean() ? 0 : 30),
+                    "Motivo de consulta " + random.nextInt(50),
+                    estados[random.nextInt(estados.length)],
+                    pacientes.get(random.nextInt(pacientes.size())),
+                    odontologos.get(random.nextInt(odontologos.size()))));
+        }
+        return citas;
+    }
+
+    private static long mediana(long[] valores) {
+        long[] ordenados = valores.clone();
+        Arrays.sort(ordenados);
+        return ordenados[ordenados.length / 2];
+    }
+}
@@ -2,52 +2,323 @@ package util;
 
 import model.*;
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalTime;
 
 /**
- * Serializador personalizado para manejar LocalDate y LocalTime
+ * Serializador personalizado para LocalDate, LocalTime y las entidades del modelo
+ * Cada tipo tiene un TypeAdapter escrito a mano que lee y escribe directamente
+ * sobre JsonReader/JsonWriter, sin reflexión ni árboles JsonElement intermedios.
+ *
+ * Formato v2: Cita, Horario y Factura guardan las entidades relacionadas por ID
+ * (pacienteId, odontologoId, citaId) en lugar de copias embebidas. Al leer se
+ * crean referencias provisionales solo con el ID, que Database reemplaza por las
+ * instancias compartidas. También se aceptan los archivos v1 con objetos embebidos.
  */
 public class CitaSerializer {
-    
+
+    private static final PacienteAdapter PACIENTE = new PacienteAdapter();
+    private static final OdontologoAdapter ODONTOLOGO = new OdontologoAdapter();
+    private static final CitaAdapter CITA = new CitaAdapter();
+
     private static Gson gson;
-    
+    private static Gson gsonCompacto;
+
     static {
-        GsonBuilder builder = new GsonBuilder()
-                .setPrettyPrinting()
-                .registerTypeAdapter(LocalDate.class, new JsonSerializer<LocalDate>() {
-                    @Override
-                    public JsonElement serialize(LocalDate date, java.lang.reflect.Type type, 
-                                                JsonSerializationContext context) {
-                        return new JsonPrimitive(date.toString());
-                    }
-                })
-                .registerTypeAdapter(LocalDate.class, new JsonDeserializer<LocalDate>() {
-                    @Override
-                    public LocalDate deserialize(JsonElement json, java.lang.reflect.Type type, 
-                                                JsonDeserializationContext context) {
-                        return LocalDate.parse(json.getAsString());
-                    }
-                })
-                .registerTypeAdapter(LocalTime.class, new JsonSerializer<LocalTime>() {
-                    @Override
-                    public JsonElement serialize(LocalTime time, java.lang.reflect.Type type, 
-                                                JsonSerializationContext context) {
-                        return new JsonPrimitive(time.toString());
-                    }
-                })
-                .registerTypeAdapter(LocalTime.class, new JsonDeserializer<LocalTime>() {
-                    @Override
-                    public LocalTime deserialize(JsonElement json, java.lang.reflect.Type type, 
-                                                JsonDeserializationContext context) {
-                        return LocalTime.parse(json.getAsString());
-                    }
-                });
-        
-        gson = builder.create();
+        gsonCompacto = crearBuilder().create();
+        gson = Configuracion.jsonLegible() ? crearBuilder().setPrettyPrinting().create() : gsonCompacto;
     }
-    
+
+    private static GsonBuilder crearBuilder() {
+        return new GsonBuilder()
+                .registerTypeAdapter(LocalDate.class, new LocalDateAdapter().nullSafe())
+                .registerTypeAdapter(LocalTime.class, new LocalTimeAdapter().nullSafe())
+                .registerTypeAdapter(Paciente.class, PACIENTE.nullSafe())
+                .registerTypeAdapter(Odontologo.class, ODONTOLOGO.nullSafe())
+                .registerTypeAdapter(Cita.class, CITA.nullSafe())
+                .registerTypeAdapter(Horario.class, new HorarioAdapter().nullSafe())
+                .registerTypeAdapter(Factura.class, new FacturaAdapter().nullSafe());
+    }
+
+    /**
+     * Gson usado para los archivos de datos; con formato legible salvo que
+     * se desactive con -Dodontologia.json.legible=false
+     */
     public static Gson getGson() {
         return gson;
     }
+
+    /**
+     * Gson sin formato (una entidad por línea), usado por el journal
+     */
+    public static Gson getGsonCompacto() {
+        return gsonCompacto;
+    }
+
+    // ========== FECHAS Y HORAS ==========
+
+    private static class LocalDateAdapter extends TypeAdapter<LocalDate> {
+        @Override
+        public void write(JsonWriter out, LocalDate fecha) throws IOException {
+            out.value(fecha.toString());
+        }
+
+        @Override
+        public LocalDate read(JsonReader in) throws IOException {
+            return LocalDate.parse(in.nextString());
+        }
+    }
+
+    private static class LocalTimeAdapter extends TypeAdapter<LocalTime> {
+        @Override
+        public void write(JsonWriter out, LocalTime hora) throws IOException {
+            out.value(hora.toString());
+        }
+
+        @Override
+        public LocalTime read(JsonReader in) throws IOException {
+            return LocalTime.parse(in.nextString());
+        }
+    }
+
+    // ========== PERSONAS ==========
+
+    private static class PacienteAdapter extends TypeAdapter<Paciente> {
+        @Override
+        public void write(JsonWriter out, Paciente paciente) throws IOException {
+            out.beginObject();
+            out.name("id").value(paciente.getId());
+            escribir(out, "nombre", paciente.getNombre());
+            out.name("telefono").value(paciente.getTelefono());
+            escribir(out, "numeroExpediente", paciente.getNumeroExpediente());
+            out.endObject();
+        }
+
+        @Override
+        public Paciente read(JsonReader in) throws IOException {
+            Paciente paciente = new Paciente();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id" -> paciente.setId(in.nextInt());
+                    case "nombre" -> paciente.setNombre(leerTexto(in));
+                    case "telefono" -> paciente.setTelefono(in.nextInt());
+                    case "numeroExpediente" -> paciente.setNumeroExpediente(leerTexto(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return paciente;
+        }
+    }
+
+    private static class OdontologoAdapter extends TypeAdapter<Odontologo> {
+        @Override
+        public void write(JsonWriter out, Odontologo odontologo) throws IOException {
+            out.beginObject();
+            out.name("id").value(odontologo.getId());
+            escribir(out, "nombre", odontologo.getNombre());
+            out.name("telefono").value(odontologo.getTelefono());
+            escribir(out, "especialidad", odontologo.getEspecialidad());
+            out.name("numeroColegiado").value(odontologo.getNumeroColegiado());
+            out.endObject();
+        }
+
+        @Override
+        public Odontologo read(JsonReader in) throws IOException {
+            Odontologo odontologo = new Odontologo();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id" -> odontologo.setId(in.nextInt());
+                    case "nombre" -> odontologo.setNombre(leerTexto(in));
+                    case "telefono" -> odontologo.setTelefono(in.nextInt());
+                    case "especialidad" -> odontologo.setEspecialidad(leerTexto(in));
+                    case "numeroColegiado" -> odontologo.setNumeroColegiado(in.nextInt());
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return odontologo;
+        }
+    }
+
+    // ========== FORMATO v2: REFERENCIAS POR ID ==========
+
+    private static class CitaAdapter extends TypeAdapter<Cita> {
+        @Override
+        public void write(JsonWriter out, Cita cita) throws IOException {
+            out.beginObject();
+            out.name("id").value(cita.getId());
+            escribir(out, "fecha", cita.getFecha());
+            escribir(out, "hora", cita.getHora());
+            escribir(out, "motivo", cita.getMotivo());
+            escribir(out, "estado", cita.getEstado());
+            if (cita.getPaciente() != null) {
+                out.name("pacienteId").value(cita.getPaciente().getId());
+            }
+            if (cita.getOdontologo() != null) {
+                out.name("odontologoId").value(cita.getOdontologo().getId());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Cita read(JsonReader in) throws IOException {
+            Cita cita = new Cita();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id" -> cita.setId(in.nextInt());
+                    case "fecha" -> cita.setFecha(leerFecha(in));
+                    case "hora" -> cita.setHora(leerHora(in));
+                    case "motivo" -> cita.setMotivo(leerTexto(in));
+                    case "estado" -> {
+                        String estado = leerTexto(in);
+                        cita.setEstado(estado != null ? EstadoCita.valueOf(estado) : null);
+                    }
+                    case "pacienteId" -> cita.setPaciente(paciente(in.nextInt()));
+                    case "odontologoId" -> cita.setOdontologo(odontologo(in.nextInt()));
+                    // Formato v1: objetos embebidos
+                    case "paciente" -> cita.setPaciente(leerEmbebido(in, PACIENTE));
+                    case "odontologo" -> cita.setOdontologo(leerEmbebido(in, ODONTOLOGO));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return cita;
+        }
+    }
+
+    private static class HorarioAdapter extends TypeAdapter<Horario> {
+        @Override
+        public void write(JsonWriter out, Horario horario) throws IOException {
+            out.beginObject();
+            out.name("id").value(horario.getId());
+            escribir(out, "fecha", horario.getFecha());
+            escribir(out, "hora", horario.getHora());
+            out.name("disponible").value(horario.isDisponible());
+            if (horario.getOdontologo() != null) {
+                out.name("odontologoId").value(horario.getOdontologo().getId());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Horario read(JsonReader in) throws IOException {
+            Horario horario = new Horario();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id" -> horario.setId(in.nextInt());
+                    case "fecha" -> horario.setFecha(leerFecha(in));
+                    case "hora" -> horario.setHora(leerHora(in));
+                    case "disponible" -> horario.setDisponible(in.nextBoolean());
+                    case "odontologoId" -> horario.setOdontologo(odontologo(in.nextInt()));
+                    case "odontologo" -> horario.setOdontologo(leerEmbebido(in, ODONTOLOGO));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return horario;
+        }
+    }
+
+    private static class FacturaAdapter extends TypeAdapter<Factura> {
+        @Override
+        public void write(JsonWriter out, Factura factura) throws IOException {
+            out.beginObject();
+            out.name("id").value(factura.getId());
+            out.name("monto").value(factura.getMonto());
+            if (factura.getCita() != null) {
+                out.name("citaId").value(factura.getCita().getId());
+            }
+            if (factura.getPaciente() != null) {
+                out.name("pacienteId").value(factura.getPaciente().getId());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Factura read(JsonReader in) throws IOException {
+            Factura factura = new Factura();
+            Paciente paciente = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id" -> factura.setId(in.nextInt());
+                    case "monto" -> factura.setMonto(in.nextDouble());
+                    case "citaId" -> factura.setCita(cita(in.nextInt()));
+                    case "pacienteId" -> paciente = paciente(in.nextInt());
+                    case "cita" -> factura.setCita(leerEmbebido(in, CITA));
+                    case "paciente" -> paciente = leerEmbebido(in, PACIENTE);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            // setCita toma el paciente de la cita; el guardado explícito tiene prioridad
+            if (paciente != null) {
+                factura.setPaciente(paciente);
+            }
+            return factura;
+        }
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private static void escribir(JsonWriter out, String campo, Object valor) throws IOException {
+        if (valor != null) {
+            out.name(campo).value(valor.toString());
+        }
+    }
+
+    private static String leerTexto(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    private static LocalDate leerFecha(JsonReader in) throws IOException {
+        String texto = leerTexto(in);
+        return texto != null ? LocalDate.parse(texto) : null;
+    }
+
+    private static LocalTime leerHora(JsonReader in) throws IOException {
+        String texto = leerTexto(in);
+        return texto != null ? LocalTime.parse(texto) : null;
+    }
+
+    private static <T> T leerEmbebido(JsonReader in, TypeAdapter<T> adapter) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return adapter.read(in);
+    }
+
+    // Referencias provisionales: solo llevan el ID hasta que Database las enlaza
+
+    private static Paciente paciente(int id) {
+        Paciente paciente = new Paciente();
+        paciente.setId(id);
+        return paciente;
+    }
+
+    private static Odontologo odontologo(int id) {
+        Odontologo odontologo = new Odontologo();
+        odontologo.setId(id);
+        return odontologo;
+    }
+
+    private static Cita cita(int id) {
+        Cita cita = new Cita();
+        cita.setId(id);
+        return cita;
+    }
 }
@@ -0,0 +1,78 @@
+package util;
+
+import model.*;
+import java.util.Map;
+
+/**
+ * Colecciones persistidas por la aplicación
+ * Asocia cada mapa de Database con su nombre en disco y su tipo de entidad
+ */
+public enum Coleccion {
+
+    PACIENTES("pacientes", Paciente.class, false),
+    ODONTOLOGOS("odontologos", Odontologo.class, false),
+    CITAS("citas", Cita.class, true),
+    HORARIOS("horarios", Horario.class, true),
+    FACTURAS("facturas", Factura.class, false);
+
+    private final String nombre;
+    private final Class<?> tipo;
+    private final boolean particionada;
+
+    Coleccion(String nombre, Class<?> tipo, boolean particionada) {
+        this.nombre = nombre;
+        this.tipo = tipo;
+        this.particionada = particionada;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public Class<?> getTipo() {
+        return tipo;
+    }
+
+    /**
+     * @return true si se guarda en particiones mensuales (data/&lt;nombre&gt;/AAAA-MM)
+     */
+    public boolean isParticionada() {
+        return particionada;
+    }
+
+    /**
+     * @return la clave del contador de IDs en counters.json (por ejemplo "nextCitaId")
+     */
+    public String getClaveContador() {
+        return "next" + tipo.getSimpleName() + "Id";
+    }
+
+    /**
+     * Obtiene el mapa de Database que corresponde a esta colección
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Integer, Object> mapa(Database db) {
+        return (Map<Integer, Object>) (Map<Integer, ?>) db.getTabla(this);
+    }
+
+    /**
+     * Obtiene la tabla de Database que corresponde a esta colección
+     */
+    @SuppressWarnings("unchecked")
+    public TablaEntidades<Entidad> tabla(Database db) {
+        return (TablaEntidades<Entidad>) db.getTabla(this);
+    }
+
+    /**
+     * Busca la colección por su nombre en disco
+     * @return la colección o null si el nombre no existe
+     */
+    public static Coleccion porNombre(String nombre) {
+        for (Coleccion c : values()) {
+            if (c.nombre.equals(nombre)) {
+                return c;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,96 @@
+package util;
+
+/**
+ * Opciones de configuración de la persistencia
+ * Se leen de propiedades del sistema (-Dclave=valor) con valores por defecto
+ */
+public class Configuracion {
+
+    /** Activa el modo journal: cada guardado anexa solo los cambios a data/journal.log */
+    public static final String JOURNAL = "odontologia.journal";
+
+    /** Cantidad de registros en el journal antes de compactarlo en las instantáneas JSON */
+    public static final String JOURNAL_COMPACTAR_CADA = "odontologia.journal.compactarCada";
+
+    /** Escribe en un hilo de fondo; si es false guardarDatos espera a que los datos estén en disco */
+    public static final String GUARDADO_ASINCRONO = "odontologia.guardado.asincrono";
+
+    /** Milisegundos que se esperan para agrupar varios guardados en una sola escritura */
+    public static final String GUARDADO_RETARDO_MS = "odontologia.guardado.retardoMs";
+
+    /** Cantidad de guardados agrupados que fuerza la escritura sin esperar el retardo */
+    public static final String GUARDADO_MAX_LOTE = "odontologia.guardado.maxLote";
+
+    /** Escribe los archivos JSON con sangría y saltos de línea; false los deja compactos (más pequeños y rápidos) */
+    public static final String JSON_LEGIBLE = "odontologia.json.legible";
+
+    /** Formato de las instantáneas de datos: "json" (por defecto) o "binario" */
+    public static final String ALMACENAMIENTO = "odontologia.almacenamiento";
+
+    /** Cantidad de IDs que se reservan de una vez por tipo de entidad (los contadores se guardan al agotarse) */
+    public static final String BLOQUE_IDS = "odontologia.ids.bloque";
+
+    private Configuracion() {
+    }
+
+    public static boolean usarJournal() {
+        return leerBooleano(JOURNAL, false);
+    }
+
+    public static int getUmbralCompactacion() {
+        return leerEntero(JOURNAL_COMPACTAR_CADA, 500);
+    }
+
+    public static boolean guardadoAsincrono() {
+        return leerBooleano(GUARDADO_ASINCRONO, true);
+    }
+
+    public static int getRetardoGuardadoMs() {
+        return leerEntero(GUARDADO_RETARDO_MS, 200);
+    }
+
+    public static int getMaxLoteGuardado() {
+        return leerEntero(GUARDADO_MAX_LOTE, 50);
+    }
+
+    public static boolean jsonLegible() {
+        return leerBooleano(JSON_LEGIBLE, true);
+    }
+
+    public static int getBloqueIds() {
+        return leerEntero(BLOQUE_IDS, 20);
+    }
+
+    public static Almacenamiento getAlmacenamiento() {
+        String valor = System.getProperty(ALMACENAMIENTO);
+        if (valor == null) {
+            return Almacenamiento.JSON;
+        }
+        Almacenamiento almacenamiento = Almacenamiento.porNombre(valor);
+        if (almacenamiento == null) {
+            System.err.println("Valor inválido para " + ALMACENAMIENTO + ": " + valor + " (se usa json)");
+            return Almacenamiento.JSON;
+        }
+        return almacenamiento;
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private static boolean leerBooleano(String clave, boolean porDefecto) {
+        String valor = System.getProperty(clave);
+        return valor != null ? Boolean.parseBoolean(valor.trim()) : porDefecto;
+    }
+
+    private static int leerEntero(String clave, int porDefecto) {
+        String valor = System.getProperty(clave);
+        if (valor == null) {
+            return porDefecto;
+        }
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Valor inválido para " + clave + ": " + valor + " (se usa " + porDefecto + ")");
+            return porDefecto;
+        }
+    }
+}
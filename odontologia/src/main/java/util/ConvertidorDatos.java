@@ -0,0 +1,67 @@
+package util;
+
+import java.util.Map;
+
+/**
+ * Convierte las instantáneas de data/ entre JSON y el formato binario
+ *
+ * Uso: java util.ConvertidorDatos json|binario
+ * Lee cada colección en el formato con que fue guardada (según counters.json)
+ * y la escribe en el formato indicado. Para que la aplicación siga usando el
+ * resultado debe iniciarse con -Dodontologia.almacenamiento=&lt;formato&gt;; si no,
+ * al iniciar se vuelve a migrar al formato configurado.
+ */
+public class ConvertidorDatos {
+
+    public static void main(String[] args) {
+        Almacenamiento destino = args.length == 1 ? Almacenamiento.porNombre(args[0]) : null;
+        if (destino == null) {
+            System.err.println("Uso: java util.ConvertidorDatos json|binario");
+            System.exit(2);
+        }
+        System.exit(convertir(destino) ? 0 : 1);
+    }
+
+    /**
+     * Reescribe todas las colecciones y los contadores en el formato indicado
+     * @return true si la conversión terminó sin errores
+     */
+    public static boolean convertir(Almacenamiento destino) {
+        if (DataJournal.existeJournal()) {
+            System.err.println("✗ Hay cambios pendientes en el journal: inicie la aplicación una vez para compactarlo");
+            return false;
+        }
+
+        // cargarContadores determina el formato con que están guardadas las colecciones
+        Map<String, Integer> counters = DataPersistence.cargarContadores();
+        Almacenamiento origen = Almacenamiento.porCodigo(counters.getOrDefault("almacenamiento", 0));
+
+        boolean exito = true;
+        for (Coleccion coleccion : Coleccion.values()) {
+            if (coleccion.isParticionada() && DataPersistence.cargarIndice(coleccion) != null) {
+                // El índice es JSON en ambos formatos; solo se convierten las particiones
+                for (String particion : DataPersistence.listarParticiones(coleccion, origen)) {
+                    Map<Integer, Object> datos = DataPersistence.cargarParticion(coleccion, particion, origen);
+                    if (datos != null) {
+                        exito &= DataPersistence.guardarParticion(coleccion, particion, datos, destino);
+                    }
+                }
+                continue;
+            }
+            Map<Integer, Object> datos = DataPersistence.cargarColeccion(coleccion, origen);
+            if (datos == null) {
+                continue;
+            }
+            exito &= DataPersistence.guardarColeccion(coleccion, datos, destino);
+        }
+        exito &= DataPersistence.guardarContadores(counters, destino);
+
+        if (exito) {
+            System.out.println("✓ Datos convertidos de " + origen.name().toLowerCase()
+                    + " a " + destino.name().toLowerCase());
+        } else {
+            System.err.println("✗ Error al convertir los datos");
+        }
+        return exito;
+    }
+}
@@ -0,0 +1,312 @@
+package util;
+
+import model.Database;
+import model.Entidad;
+import com.google.gson.*;
+import java.io.*;
+import java.lang.reflect.Type;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Journal de cambios (write-ahead log) para la persistencia
+ * En lugar de reescribir todos los archivos JSON en cada guardado, se anexa
+ * un registro pequeño por cada entidad modificada o eliminada.
+ * Al iniciar se reproduce sobre las instantáneas JSON y, cada cierto número
+ * de registros, se compacta reescribiendo las instantáneas completas.
+ *
+ * Formato: una línea por registro, con el CRC32 del JSON en hexadecimal
+ *   1a2b3c4d {"c":"citas","op":"put","id":3,"v":{...}}
+ *   5e6f7a8b {"c":"citas","op":"del","id":3}
+ *   9c0d1e2f {"c":"counters","op":"put","v":{...}}
+ * Cada anexo se fuerza a disco (fsync) antes de confirmar el guardado.
+ */
+public class DataJournal {
+
+    private static final String JOURNAL_FILE = DataPersistence.DATA_DIRECTORY + "/journal.log";
+    private static final String CONTADORES = "counters";
+    private static final String OP_PUT = "put";
+    private static final String OP_DEL = "del";
+
+    private static Gson gson = CitaSerializer.getGsonCompacto();
+
+    private static int registrosDesdeCompactacion = 0;
+
+    private DataJournal() {
+    }
+
+    // ========== ESCRITURA ==========
+
+    /**
+     * Anexa al journal las entidades agregadas, modificadas o eliminadas del lote
+     * Al alcanzar el umbral configurado se solicita una compactación, que se hace
+     * con el siguiente lote completo (ver {@link #requiereCompactacion()})
+     */
+    public static synchronized boolean registrarLote(LoteCambios lote) {
+        DataPersistence.initializeDataDirectory();
+
+        List<String> lineas = new ArrayList<>();
+        for (Coleccion coleccion : lote.getColecciones()) {
+            for (Map.Entry<Integer, Object> entry : lote.getModificados(coleccion).entrySet()) {
+                lineas.add(crearRegistro(coleccion.getNombre(), OP_PUT, entry.getKey(), gson.toJson(entry.getValue())));
+            }
+            for (Integer id : lote.getEliminados(coleccion)) {
+                lineas.add(crearRegistro(coleccion.getNombre(), OP_DEL, id, null));
+            }
+        }
+        if (lote.getContadores() != null) {
+            lineas.add(crearRegistro(CONTADORES, OP_PUT, null, gson.toJson(lote.getContadores())));
+        }
+
+        if (lineas.isEmpty()) {
+            return true;
+        }
+
+        long bytes = anexar(lineas);
+        if (bytes < 0) {
+            return false;
+        }
+        registrosDesdeCompactacion += lineas.size();
+        System.out.println("✓ Journal: " + lineas.size() + " cambio(s) registrados (" + bytes + " bytes)");
+        return true;
+    }
+
+    /**
+     * @return true si el journal alcanzó el umbral y el próximo lote debe ser completo
+     */
+    public static synchronized boolean requiereCompactacion() {
+        return registrosDesdeCompactacion >= Configuracion.getUmbralCompactacion();
+    }
+
+    /**
+     * Reescribe las instantáneas JSON completas con el lote y vacía el journal
+     * Los cambios del lote se anexan antes al journal: si la aplicación se corta
+     * después de escribir las instantáneas y antes de borrar el journal, al
+     * reproducirlo termina con los mismos cambios que ya tienen las instantáneas,
+     * en lugar de revivir registros que el lote había eliminado o reemplazado.
+     * Si otro proceso escribió el journal o las instantáneas desde la última
+     * lectura, solo se anexa el lote: sus registros aún no están en memoria y se
+     * perderían al borrar el journal. Se compacta con el primer lote completo
+     * después de recargar los cambios externos.
+     */
+    public static synchronized boolean compactar(LoteCambios lote) {
+        if (DataPersistence.hayCambiosExternos()) {
+            System.out.println("Compactación postergada: hay cambios externos sin recargar");
+            return registrarLote(lote);
+        }
+        boolean exito = escribirInstantaneas(lote);
+        if (exito) {
+            File journal = new File(JOURNAL_FILE);
+            if (journal.exists() && !journal.delete()) {
+                System.err.println("No se pudo vaciar el journal: " + JOURNAL_FILE);
+                return false;
+            }
+            // Vigilado aunque no exista: otro proceso puede volver a crearlo
+            MarcasArchivos.registrar(journal.toPath());
+            registrosDesdeCompactacion = 0;
+            System.out.println("✓ Journal compactado en las instantáneas");
+        }
+        return exito;
+    }
+
+    /**
+     * Primera parte de la compactación: anexa el lote al journal y reescribe las
+     * instantáneas, sin borrar el journal (es lo que queda en disco si la
+     * aplicación se corta antes de terminar de compactar)
+     */
+    static synchronized boolean escribirInstantaneas(LoteCambios lote) {
+        return registrarLote(lote) && DataPersistence.guardarLote(lote);
+    }
+
+    // ========== LECTURA ==========
+
+    /**
+     * Reproduce los registros del journal sobre los mapas ya cargados en Database
+     * Un registro final incompleto o con CRC inválido (corte durante la escritura)
+     * se descarta y el journal se trunca en el último registro válido.
+     * @return cantidad de registros aplicados
+     */
+    public static synchronized int reproducir(Database db) {
+        Path archivo = Paths.get(JOURNAL_FILE);
+        MarcasArchivos.registrar(archivo);
+        if (!Files.exists(archivo)) {
+            return 0;
+        }
+
+        byte[] contenido;
+        try {
+            contenido = Files.readAllBytes(archivo);
+        } catch (IOException e) {
+            System.err.println("Error al leer " + JOURNAL_FILE + ": " + e.getMessage());
+            e.printStackTrace();
+            return 0;
+        }
+
+        Type tipoContadores = new com.google.gson.reflect.TypeToken<Map<String, Integer>>(){}.getType();
+        int aplicados = 0;
+        int inicio = 0;
+
+        while (inicio < contenido.length) {
+            int fin = indiceDe(contenido, (byte) '\n', inicio);
+            JsonObject registro = fin < 0 ? null : leerRegistro(contenido, inicio, fin);
+            if (registro == null) {
+                if (fin < 0 || fin > inicio) {
+                    System.err.println("Registro de journal incompleto descartado (línea " + (aplicados + 1) + ")");
+                    truncar(archivo, inicio);
+                    break;
+                }
+                inicio = fin + 1;
+                continue;
+            }
+            inicio = fin + 1;
+
+            String nombre = registro.get("c").getAsString();
+            String op = registro.get("op").getAsString();
+
+            if (CONTADORES.equals(nombre)) {
+                Map<String, Integer> contadores = gson.fromJson(registro.get("v"), tipoContadores);
+                db.aplicarContadores(contadores);
+            } else {
+                Coleccion coleccion = Coleccion.porNombre(nombre);
+                if (coleccion == null) {
+                    System.err.println("Colección desconocida en el journal: " + nombre);
+                    continue;
+                }
+                int id = registro.get("id").getAsInt();
+                if (OP_DEL.equals(op)) {
+                    coleccion.mapa(db).remove(id);
+                } else {
+                    coleccion.tabla(db).restaurar(id, (Entidad) gson.fromJson(registro.get("v"), coleccion.getTipo()));
+                }
+            }
+            aplicados++;
+        }
+
+        registrosDesdeCompactacion = aplicados;
+        if (aplicados > 0) {
+            System.out.println("Journal reproducido: " + aplicados + " registro(s)");
+        }
+        return aplicados;
+    }
+
+    public static boolean existeJournal() {
+        return new File(JOURNAL_FILE).exists();
+    }
+
+    /**
+     * @return true si el archivo es el journal (otro proceso que lo cambia puede
+     *         haber modificado cualquier colección)
+     */
+    public static boolean esJournal(Path archivo) {
+        return archivo.toAbsolutePath().normalize().equals(Paths.get(JOURNAL_FILE).toAbsolutePath().normalize());
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    /**
+     * Arma una línea del journal; el valor ya viene serializado en JSON compacto
+     */
+    private static String crearRegistro(String coleccion, String op, Integer id, String valor) {
+        StringBuilder registro = new StringBuilder(valor != null ? valor.length() + 48 : 48);
+        registro.append("{\"c\":\"").append(coleccion).append("\",\"op\":\"").append(op).append('"');
+        if (id != null) {
+            registro.append(",\"id\":").append(id);
+        }
+        if (valor != null) {
+            registro.append(",\"v\":").append(valor);
+        }
+        return registro.append('}').toString();
+    }
+
+    /**
+     * Antepone a la línea el CRC32 de su contenido
+     */
+    private static String conChecksum(String linea) {
+        byte[] bytes = linea.getBytes(StandardCharsets.UTF_8);
+        return String.format("%08x", ArchivoSeguro.crc32(bytes, 0, bytes.length)) + " " + linea;
+    }
+
+    /**
+     * Interpreta la línea [inicio, fin) verificando su CRC
+     * Las líneas sin CRC (journal de versiones anteriores) se aceptan si son JSON válido
+     * @return el registro, o null si la línea está vacía, dañada o incompleta
+     */
+    private static JsonObject leerRegistro(byte[] contenido, int inicio, int fin) {
+        String linea = new String(contenido, inicio, fin - inicio, StandardCharsets.UTF_8).trim();
+        if (linea.isEmpty()) {
+            return null;
+        }
+        if (!linea.startsWith("{")) {
+            int espacio = linea.indexOf(' ');
+            if (espacio != 8) {
+                return null;
+            }
+            String json = linea.substring(espacio + 1);
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            if (!linea.substring(0, espacio).equals(String.format("%08x", ArchivoSeguro.crc32(bytes, 0, bytes.length)))) {
+                return null;
+            }
+            linea = json;
+        }
+        try {
+            return JsonParser.parseString(linea).getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private static int indiceDe(byte[] contenido, byte valor, int desde) {
+        for (int i = desde; i < contenido.length; i++) {
+            if (contenido[i] == valor) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Descarta la cola dañada para que los próximos registros no queden detrás de ella
+     */
+    private static void truncar(Path archivo, long longitud) {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.WRITE)) {
+            canal.truncate(longitud);
+            canal.force(true);
+            MarcasArchivos.registrar(archivo);
+        } catch (IOException e) {
+            System.err.println("No se pudo truncar " + JOURNAL_FILE + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Anexa las líneas al final del journal y las fuerza a disco
+     * @return bytes escritos, o -1 si hubo un error
+     */
+    private static long anexar(List<String> lineas) {
+        StringBuilder bloque = new StringBuilder();
+        for (String linea : lineas) {
+            bloque.append(conChecksum(linea)).append('\n');
+        }
+        byte[] contenido = bloque.toString().getBytes(StandardCharsets.UTF_8);
+
+        Path archivo = Paths.get(JOURNAL_FILE);
+        // Si otro proceso anexó desde la última lectura, sus registros siguen sin
+        // reproducirse: el journal queda pendiente de releer
+        boolean externo = MarcasArchivos.cambioExterno(archivo);
+        try {
+            ArchivoSeguro.anexar(archivo, contenido);
+            if (externo) {
+                MarcasArchivos.marcarSinLeer(archivo);
+            } else {
+                MarcasArchivos.registrar(archivo);
+            }
+            DataPersistence.registrarBytesEscritos(contenido.length);
+            return contenido.length;
+        } catch (IOException e) {
+            System.err.println("Error al escribir " + JOURNAL_FILE + ": " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+    }
+}
@@ -5,7 +5,13 @@ import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import java.io.*;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 /**
  * Clase para manejar la persistencia de datos en archivos JSON
@@ -13,16 +19,29 @@ import java.util.*;
  */
 public class DataPersistence {
     
-    private static final String DATA_DIRECTORY = "data";
-    private static final String CITAS_FILE = DATA_DIRECTORY + "/citas.json";
-    private static final String PACIENTES_FILE = DATA_DIRECTORY + "/pacientes.json";
-    private static final String ODONTOLOGOS_FILE = DATA_DIRECTORY + "/odontologos.json";
-    private static final String HORARIOS_FILE = DATA_DIRECTORY + "/horarios.json";
-    private static final String FACTURAS_FILE = DATA_DIRECTORY + "/facturas.json";
+    static final String DATA_DIRECTORY = "data";
     private static final String COUNTERS_FILE = DATA_DIRECTORY + "/counters.json";
     
+    // Versión del formato en disco; v1 embebía copias de pacientes/odontólogos/citas,
+    // v2 guardaba citas y horarios en un solo archivo, v3 los guarda por mes,
+    // v4 agrega el resumen de cada mes de citas
+    public static final int FORMATO_VERSION = 4;
+    private static final String ARCHIVO_INDICE = "indice.json";
+    private static final String ARCHIVO_RESUMEN = "resumen.json";
+    private static final String CLAVE_VERSION = "formatoVersion";
+    // Formato (JSON o binario) con que se escribieron las instantáneas actuales;
+    // lo cambia el hilo de guardado y lo leen las cargas perezosas de otros hilos
+    private static final String CLAVE_ALMACENAMIENTO = "almacenamiento";
+    private static volatile Almacenamiento almacenamientoEnDisco = Almacenamiento.JSON;
+    
     private static Gson gson = CitaSerializer.getGson();
     
+    // Estadísticas de escritura para verificar cuánto se escribe por guardado
+    private static long bytesUltimoGuardado = 0;
+    // Último resumen de citas leído o escrito por guardarLote (se accede con el bloqueo de la clase)
+    private static Map<String, ResumenMes> resumenCitas;
+    private static long bytesEscritosTotales = 0;
+    
     /**
      * Inicializa el directorio de datos si no existe
      */
@@ -37,131 +56,612 @@ public class DataPersistence {
     // ========== GUARDAR DATOS ==========
     
     /**
-     * Guarda todas las citas en el archivo JSON
+     * Guarda todas las citas en el formato configurado
      */
     public static boolean guardarCitas(Map<Integer, Cita> citas) {
-        return guardarDatos(CITAS_FILE, citas);
+        return guardarColeccion(Coleccion.CITAS, citas, Configuracion.getAlmacenamiento());
     }
     
     /**
-     * Guarda todos los pacientes en el archivo JSON
+     * Guarda todos los pacientes en el formato configurado
      */
     public static boolean guardarPacientes(Map<Integer, Paciente> pacientes) {
-        return guardarDatos(PACIENTES_FILE, pacientes);
+        return guardarColeccion(Coleccion.PACIENTES, pacientes, Configuracion.getAlmacenamiento());
     }
     
     /**
-     * Guarda todos los odontólogos en el archivo JSON
+     * Guarda todos los odontólogos en el formato configurado
      */
     public static boolean guardarOdontologos(Map<Integer, Odontologo> odontologos) {
-        return guardarDatos(ODONTOLOGOS_FILE, odontologos);
+        return guardarColeccion(Coleccion.ODONTOLOGOS, odontologos, Configuracion.getAlmacenamiento());
     }
     
     /**
-     * Guarda todos los horarios en el archivo JSON
+     * Guarda todos los horarios en el formato configurado
      */
     public static boolean guardarHorarios(Map<Integer, Horario> horarios) {
-        return guardarDatos(HORARIOS_FILE, horarios);
+        return guardarColeccion(Coleccion.HORARIOS, horarios, Configuracion.getAlmacenamiento());
     }
     
     /**
-     * Guarda todas las facturas en el archivo JSON
+     * Guarda todas las facturas en el formato configurado
      */
     public static boolean guardarFacturas(Map<Integer, Factura> facturas) {
-        return guardarDatos(FACTURAS_FILE, facturas);
+        return guardarColeccion(Coleccion.FACTURAS, facturas, Configuracion.getAlmacenamiento());
     }
     
     /**
-     * Guarda los contadores de IDs
+     * Guarda todos los datos de la base de datos
      */
-   
-    public static boolean guardarContadores(int nextCitaId, int nextFacturaId, int nextHorarioId, int nextPacienteId) {
-    Map<String, Integer> counters = new HashMap<>();
-    counters.put("nextCitaId", nextCitaId);
-    counters.put("nextFacturaId", nextFacturaId);
-    counters.put("nextHorarioId", nextHorarioId);
-    counters.put("nextPacienteId", nextPacienteId); // NUEVA LÍNEA
-    return guardarDatos(COUNTERS_FILE, counters);
-}
-
+    public static boolean guardarTodo(Database db) {
+        return guardarLote(LoteCambios.capturar(db, true, true));
+    }
 
+    /**
+     * Guarda solo las colecciones con cambios pendientes (y los contadores si cambiaron)
+     */
+    public static boolean guardarCambios(Database db) {
+        return guardarLote(LoteCambios.capturar(db, true, false));
+    }
     
     /**
-     * Guarda todos los datos de la base de datos
+     * Escribe un lote según el modo configurado: en modo journal anexa sus cambios
+     * (o compacta si el lote está completo), en otro caso reescribe sus archivos
      */
-    public static boolean guardarTodo(Database db) {
-    initializeDataDirectory();
-    
-    boolean exito = true;
-    exito &= guardarCitas(db.getCitas());
-    exito &= guardarPacientes(db.getPacientes());
-    exito &= guardarOdontologos(db.getOdontologos());
-    exito &= guardarHorarios(db.getHorarios());
-    exito &= guardarFacturas(db.getFacturas());
-    exito &= guardarContadores(
-        db.getNextCitaId(), 
-        db.getNextFacturaId(), 
-        db.getNextHorarioId(),
-        db.getNextPacienteId()  // NUEVA LÍNEA
-    );
-    
-    if (exito) {
-        System.out.println("✓ Todos los datos guardados exitosamente");
-    } else {
-        System.err.println("✗ Error al guardar algunos datos");
-    }
-    
-    return exito;
-}
+    public static boolean persistir(LoteCambios lote) {
+        if (Configuracion.usarJournal()) {
+            return lote.isCompleto() ? DataJournal.compactar(lote) : DataJournal.registrarLote(lote);
+        }
+        return guardarLote(lote);
+    }
+    
+    /**
+     * Reescribe los archivos de las colecciones copiadas en el lote y los contadores
+     * Un archivo que otro proceso cambió desde la última lectura no se pisa con la
+     * copia en memoria: se combina con su contenido actual (ver {@link #combinarConDisco})
+     */
+    public static synchronized boolean guardarLote(LoteCambios lote) {
+        initializeDataDirectory();
+        bytesUltimoGuardado = 0;
+        
+        Almacenamiento almacenamiento = Configuracion.getAlmacenamiento();
+        boolean exito = true;
+        int archivos = 0;
+        for (Coleccion coleccion : lote.getColecciones()) {
+            Map<Integer, Object> copia = lote.getCopia(coleccion);
+            if (copia != null) {
+                Path archivo = Paths.get(archivoDe(coleccion, almacenamiento));
+                boolean externo = MarcasArchivos.cambioExterno(archivo);
+                if (externo) {
+                    copia = combinarConDisco(cargarColeccion(coleccion, almacenamiento), copia, lote, coleccion);
+                }
+                exito &= releerSiCombinado(archivo, externo, guardarColeccion(coleccion, copia, almacenamiento));
+                archivos++;
+            }
+            
+            // Las particiones se escriben antes que el índice: si el guardado se corta
+            // entre ambos, ninguna entidad queda solo en una partición sin reescribir
+            // (al leer se corrige el índice con lo que contienen las particiones)
+            boolean particionesGuardadas = true;
+            Map<String, Map<Integer, Object>> particiones = lote.getParticiones(coleccion);
+            Map<String, Map<Integer, Object>> escritas = new TreeMap<>();
+            if (particiones != null) {
+                for (Map.Entry<String, Map<Integer, Object>> particion : particiones.entrySet()) {
+                    Map<Integer, Object> datos = particion.getValue();
+                    Path archivo = Paths.get(archivoDe(coleccion, particion.getKey(), almacenamiento));
+                    boolean externo = MarcasArchivos.cambioExterno(archivo);
+                    if (externo) {
+                        datos = combinarConDisco(cargarParticion(coleccion, particion.getKey(), almacenamiento),
+                                datos, lote, coleccion);
+                    }
+                    if (releerSiCombinado(archivo, externo,
+                            guardarParticion(coleccion, particion.getKey(), datos, almacenamiento))) {
+                        escritas.put(particion.getKey(), datos);
+                    } else {
+                        particionesGuardadas = false;
+                    }
+                    archivos++;
+                }
+                exito &= particionesGuardadas;
+            }
+            if (coleccion == Coleccion.CITAS && !escritas.isEmpty()) {
+                exito &= guardarResumen(escritas);
+            }
+            Map<Integer, String> indice = lote.getIndice(coleccion);
+            if (indice != null && particionesGuardadas) {
+                // El índice no se adelanta a particiones que no llegaron a disco
+                Path archivo = Paths.get(archivoIndice(coleccion));
+                boolean externo = MarcasArchivos.cambioExterno(archivo);
+                if (externo) {
+                    indice = combinarConDisco(cargarIndice(coleccion), indice, lote, coleccion);
+                }
+                exito &= releerSiCombinado(archivo, externo, guardarIndice(coleccion, indice));
+                archivos++;
+            }
+            if (particiones != null && lote.isCompleto() && exito) {
+                eliminarArchivosSinParticionar(coleccion);
+            }
+        }
+        if (lote.getContadores() != null) {
+            Path archivo = Paths.get(COUNTERS_FILE);
+            boolean externo = MarcasArchivos.cambioExterno(archivo);
+            Map<String, Integer> contadores = externo
+                    ? combinarContadores(lote.getContadores())
+                    : lote.getContadores();
+            exito &= releerSiCombinado(archivo, externo, guardarContadores(contadores, almacenamiento));
+            archivos++;
+        }
+        
+        if (!exito) {
+            System.err.println("✗ Error al guardar algunos datos");
+        } else if (lote.isCompleto()) {
+            System.out.println("✓ Todos los datos guardados exitosamente (" + bytesUltimoGuardado + " bytes)");
+        } else if (archivos > 0) {
+            System.out.println("✓ Cambios guardados: " + archivos + " archivo(s), " + bytesUltimoGuardado
+                    + " bytes (acumulado: " + bytesEscritosTotales + " bytes)");
+        }
+        return exito;
+    }
+    
+    /**
+     * Contenido a escribir en un archivo que otro proceso cambió desde la última
+     * lectura: lo que tiene ahora el archivo, con solo las entidades que el lote
+     * agregó, modificó o eliminó. Una entidad modificada que no está en los datos
+     * del lote (una partición) se movió a otra partición y se quita de esta.
+     * @param enDisco contenido actual del archivo (null si no pudo leerse)
+     * @param delLote lo que el lote iba a escribir en el archivo
+     */
+    static <T> Map<Integer, T> combinarConDisco(Map<Integer, T> enDisco, Map<Integer, T> delLote,
+                                                LoteCambios lote, Coleccion coleccion) {
+        Map<Integer, T> combinado = enDisco != null ? new LinkedHashMap<>(enDisco) : new LinkedHashMap<>();
+        for (Integer id : lote.getModificados(coleccion).keySet()) {
+            T valor = delLote.get(id);
+            if (valor != null) {
+                combinado.put(id, valor);
+            } else {
+                combinado.remove(id);
+            }
+        }
+        combinado.keySet().removeAll(lote.getEliminados(coleccion));
+        return combinado;
+    }
+    
+    /**
+     * Contadores a escribir si otro proceso también reservó IDs: el mayor de cada uno
+     */
+    private static Map<String, Integer> combinarContadores(Map<String, Integer> delLote) {
+        Map<String, Integer> enDisco = cargarDatos(COUNTERS_FILE, new TypeToken<Map<String, Integer>>(){}.getType());
+        Map<String, Integer> combinado = new LinkedHashMap<>(delLote);
+        if (enDisco != null) {
+            for (Map.Entry<String, Integer> entry : enDisco.entrySet()) {
+                if (!entry.getKey().equals(CLAVE_VERSION) && !entry.getKey().equals(CLAVE_ALMACENAMIENTO)) {
+                    combinado.merge(entry.getKey(), entry.getValue(), Math::max);
+                }
+            }
+        }
+        return combinado;
+    }
+    
+    /**
+     * Un archivo escrito combinado tiene cambios de otro proceso que Database aún
+     * no cargó: queda pendiente de releer en la próxima recarga de cambios externos
+     * @return el resultado de la escritura
+     */
+    private static boolean releerSiCombinado(Path archivo, boolean combinado, boolean guardado) {
+        if (combinado && guardado) {
+            MarcasArchivos.marcarSinLeer(archivo);
+            System.out.println("Combinado con cambios externos: " + archivo);
+        }
+        return guardado;
+    }
+    
+    /**
+     * Guarda el mapa completo de una colección en el formato indicado
+     */
+    public static boolean guardarColeccion(Coleccion coleccion, Map<Integer, ?> datos, Almacenamiento almacenamiento) {
+        if (almacenamiento == Almacenamiento.BINARIO) {
+            return guardarBytes(archivoDe(coleccion, almacenamiento), FormatoBinario.codificar(coleccion, datos));
+        }
+        return guardarDatos(archivoDe(coleccion, almacenamiento), datos);
+    }
+    
+    /**
+     * Guarda los contadores junto con la versión y el formato de las instantáneas
+     */
+    static boolean guardarContadores(Map<String, Integer> contadores, Almacenamiento almacenamiento) {
+        Map<String, Integer> counters = new LinkedHashMap<>(contadores);
+        counters.put(CLAVE_VERSION, FORMATO_VERSION);
+        counters.put(CLAVE_ALMACENAMIENTO, almacenamiento.getCodigo());
+        boolean exito = guardarDatos(COUNTERS_FILE, counters);
+        if (exito) {
+            almacenamientoEnDisco = almacenamiento;
+        }
+        return exito;
+    }
+    
+    private static String archivoDe(Coleccion coleccion, Almacenamiento almacenamiento) {
+        return DATA_DIRECTORY + "/" + coleccion.getNombre() + almacenamiento.getExtension();
+    }
+    
+    // ========== CAMBIOS EXTERNOS ==========
+    
+    /**
+     * @return true si algún archivo leído o escrito cambió fuera de la aplicación
+     */
+    public static boolean hayCambiosExternos() {
+        return MarcasArchivos.hayModificados();
+    }
+    
+    /**
+     * Archivos modificados fuera de la aplicación desde su última lectura o escritura
+     * (cada cambio se informa una sola vez)
+     */
+    public static Set<Path> tomarArchivosModificados() {
+        return MarcasArchivos.tomarModificados();
+    }
+    
+    /**
+     * Colección a la que pertenece un archivo de datos (o una de sus particiones)
+     * @return la colección, o null para counters.json
+     */
+    public static Coleccion coleccionDe(Path archivo) {
+        Path directorio = Paths.get(DATA_DIRECTORY).toAbsolutePath().normalize();
+        Path relativo = archivo.toAbsolutePath().normalize();
+        if (!relativo.startsWith(directorio) || relativo.equals(directorio)) {
+            return null;
+        }
+        String nombre = directorio.relativize(relativo).getName(0).toString();
+        int punto = nombre.indexOf('.');
+        String base = punto >= 0 ? nombre.substring(0, punto) : nombre;
+        for (Coleccion coleccion : Coleccion.values()) {
+            if (coleccion.getNombre().equals(base)) {
+                return coleccion;
+            }
+        }
+        return null;
+    }
+    
+    // ========== PARTICIONES MENSUALES (CITAS Y HORARIOS) ==========
+    
+    /**
+     * Guarda una partición mensual en data/&lt;colección&gt;/&lt;AAAA-MM&gt;
+     */
+    static boolean guardarParticion(Coleccion coleccion, String particion, Map<Integer, ?> datos,
+                                    Almacenamiento almacenamiento) {
+        new File(directorioDe(coleccion)).mkdirs();
+        String archivo = archivoDe(coleccion, particion, almacenamiento);
+        if (almacenamiento == Almacenamiento.BINARIO) {
+            return guardarBytes(archivo, FormatoBinario.codificar(coleccion, datos));
+        }
+        return guardarDatos(archivo, datos);
+    }
+    
+    /**
+     * Carga una partición mensual desde el formato con que se guardaron los datos
+     * @return el mapa de la partición, o null si no existe
+     */
+    public static <T> Map<Integer, T> cargarParticion(Coleccion coleccion, String particion) {
+        return cargarParticion(coleccion, particion, almacenamientoEnDisco);
+    }
+    
+    @SuppressWarnings("unchecked")
+    static <T> Map<Integer, T> cargarParticion(Coleccion coleccion, String particion, Almacenamiento almacenamiento) {
+        String archivo = archivoDe(coleccion, particion, almacenamiento);
+        if (!ArchivoSeguro.existe(Paths.get(archivo))) {
+            return null;
+        }
+        Map<Integer, Object> datos = almacenamiento == Almacenamiento.BINARIO
+                ? leerArchivo(archivo, contenido -> FormatoBinario.decodificar(coleccion, contenido))
+                : cargarDatos(archivo, TypeToken.getParameterized(Map.class, Integer.class, coleccion.getTipo()).getType());
+        return (Map<Integer, T>) (Map<Integer, ?>) datos;
+    }
+    
+    /**
+     * Particiones guardadas en disco para una colección
+     */
+    public static SortedSet<String> listarParticiones(Coleccion coleccion) {
+        return listarParticiones(coleccion, almacenamientoEnDisco);
+    }
+    
+    static SortedSet<String> listarParticiones(Coleccion coleccion, Almacenamiento almacenamiento) {
+        SortedSet<String> particiones = new TreeSet<>();
+        String[] archivos = new File(directorioDe(coleccion)).list();
+        if (archivos == null) {
+            return particiones;
+        }
+        String extension = almacenamiento.getExtension();
+        for (String archivo : archivos) {
+            // Se incluyen las que solo conservan la generación anterior (.bak)
+            String nombre = archivo.endsWith(".bak") ? archivo.substring(0, archivo.length() - 4) : archivo;
+            if (nombre.endsWith(extension) && !nombre.equals(ARCHIVO_INDICE) && !nombre.equals(ARCHIVO_RESUMEN)) {
+                particiones.add(nombre.substring(0, nombre.length() - extension.length()));
+            }
+        }
+        return particiones;
+    }
+    
+    /**
+     * Carga el índice ID → partición de una colección particionada
+     * @return el índice, o null si la colección aún no está particionada en disco
+     */
+    public static Map<Integer, String> cargarIndice(Coleccion coleccion) {
+        String archivo = archivoIndice(coleccion);
+        if (!ArchivoSeguro.existe(Paths.get(archivo))) {
+            return null;
+        }
+        Map<Integer, String> indice = cargarDatos(archivo, new TypeToken<Map<Integer, String>>(){}.getType());
+        return indice != null ? indice : new HashMap<>();
+    }
+    
+    private static boolean guardarIndice(Coleccion coleccion, Map<Integer, String> indice) {
+        new File(directorioDe(coleccion)).mkdirs();
+        return guardarDatos(archivoIndice(coleccion), indice);
+    }
+    
+    private static String archivoIndice(Coleccion coleccion) {
+        return directorioDe(coleccion) + "/" + ARCHIVO_INDICE;
+    }
+    
+    /**
+     * Carga el resumen de cada mes de citas guardado en disco
+     * @return partición → resumen, o null si no existe
+     */
+    public static Map<String, ResumenMes> cargarResumenCitas() {
+        String archivo = archivoResumenCitas();
+        if (!ArchivoSeguro.existe(Paths.get(archivo))) {
+            return null;
+        }
+        return cargarDatos(archivo, new TypeToken<TreeMap<String, ResumenMes>>(){}.getType());
+    }
+    
+    /**
+     * Actualiza el resumen de los meses de citas recién escritos; el de los demás
+     * meses se conserva. Solo se reescribe si algún resumen cambió (una edición
+     * del motivo, por ejemplo, no lo cambia).
+     */
+    private static boolean guardarResumen(Map<String, Map<Integer, Object>> escritas) {
+        Path archivo = Paths.get(archivoResumenCitas());
+        if (resumenCitas == null || MarcasArchivos.cambioExterno(archivo)) {
+            Map<String, ResumenMes> enDisco = cargarResumenCitas();
+            resumenCitas = enDisco != null ? new TreeMap<>(enDisco) : new TreeMap<>();
+        }
+        boolean cambio = false;
+        for (Map.Entry<String, Map<Integer, Object>> particion : escritas.entrySet()) {
+            ResumenMes resumen = ResumenMes.de(particion.getValue().values());
+            cambio |= !resumen.equals(resumenCitas.put(particion.getKey(), resumen));
+        }
+        if (!cambio) {
+            return true;
+        }
+        if (!guardarDatos(archivo.toString(), resumenCitas)) {
+            // Lo que quedó en disco se vuelve a leer en el próximo guardado
+            resumenCitas = null;
+            return false;
+        }
+        return true;
+    }
+    
+    private static String archivoResumenCitas() {
+        return directorioDe(Coleccion.CITAS) + "/" + ARCHIVO_RESUMEN;
+    }
+    
+    /**
+     * Carga las particiones que cumplen el criterio desde el formato con que se guardaron
+     */
+    public static <T> Map<Integer, T> cargarParticiones(Coleccion coleccion, Map<Integer, String> indice,
+                                                        Predicate<String> criterio) {
+        @SuppressWarnings("unchecked")
+        Map<Integer, T> datos = (Map<Integer, T>) (Map<Integer, ?>)
+                cargarParticiones(coleccion, almacenamientoEnDisco, indice, criterio);
+        return datos;
+    }
+    
+    /**
+     * Carga solo las particiones que cumplen el criterio (por ejemplo, los meses recientes)
+     * El índice se guarda después de las particiones, así que puede estar atrasado
+     * respecto de ellas (si un guardado se cortó entre ambos). Una entidad se toma
+     * de la partición que indica el índice; si no figura en él (es nueva) o esa
+     * partición ya no la contiene (se movió de mes), de la partición que la
+     * contiene. Las entradas del índice hacia una partición leída que no contiene
+     * la entidad (eliminada) se quitan del índice.
+     */
+    private static Map<Integer, Object> cargarParticiones(Coleccion coleccion, Almacenamiento almacenamiento,
+                                                          Map<Integer, String> indice, Predicate<String> criterio) {
+        Map<Integer, Object> datos = new HashMap<>();
+        Map<String, Map<Integer, Object>> leidas = new HashMap<>();
+        Set<String> cargadas = new HashSet<>();
+        for (String particion : listarParticiones(coleccion, almacenamiento)) {
+            if (!criterio.test(particion)) {
+                continue;
+            }
+            Map<Integer, Object> parte = leerParticion(coleccion, particion, almacenamiento, leidas);
+            if (parte == null) {
+                continue;
+            }
+            cargadas.add(particion);
+            for (Map.Entry<Integer, Object> entry : parte.entrySet()) {
+                String segunIndice = indice.get(entry.getKey());
+                if (particion.equals(segunIndice) || segunIndice == null) {
+                    datos.put(entry.getKey(), entry.getValue());
+                    continue;
+                }
+                Map<Integer, Object> ubicada = leerParticion(coleccion, segunIndice, almacenamiento, leidas);
+                if (ubicada == null || !ubicada.containsKey(entry.getKey())) {
+                    datos.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        indice.entrySet().removeIf(entry -> cargadas.contains(entry.getValue()) && !datos.containsKey(entry.getKey()));
+        return datos;
+    }
+    
+    /**
+     * Contenido de una partición, leída una sola vez por carga
+     * @return el mapa de la partición, o null si no existe o no pudo leerse
+     */
+    private static Map<Integer, Object> leerParticion(Coleccion coleccion, String particion,
+                                                      Almacenamiento almacenamiento,
+                                                      Map<String, Map<Integer, Object>> leidas) {
+        if (!leidas.containsKey(particion)) {
+            leidas.put(particion, cargarParticion(coleccion, particion, almacenamiento));
+        }
+        return leidas.get(particion);
+    }
+    
+    /**
+     * Elimina los archivos de una colección anteriores a las particiones (formato v2)
+     */
+    private static void eliminarArchivosSinParticionar(Coleccion coleccion) {
+        for (Almacenamiento almacenamiento : Almacenamiento.values()) {
+            String archivo = archivoDe(coleccion, almacenamiento);
+            MarcasArchivos.olvidar(Paths.get(archivo));
+            for (String sufijo : new String[] {"", ".crc", ".bak", ".bak.crc"}) {
+                File file = new File(archivo + sufijo);
+                if (file.exists() && !file.delete()) {
+                    System.err.println("No se pudo eliminar " + file.getPath());
+                }
+            }
+        }
+    }
+    
+    private static String directorioDe(Coleccion coleccion) {
+        return DATA_DIRECTORY + "/" + coleccion.getNombre();
+    }
+    
+    private static String archivoDe(Coleccion coleccion, String particion, Almacenamiento almacenamiento) {
+        return directorioDe(coleccion) + "/" + particion + almacenamiento.getExtension();
+    }
+    
+    // ========== ESTADÍSTICAS DE ESCRITURA ==========
+    
+    /**
+     * Bytes escritos en disco por el último guardado
+     */
+    public static synchronized long getBytesUltimoGuardado() {
+        return bytesUltimoGuardado;
+    }
+    
+    /**
+     * Bytes escritos en disco desde que inició la aplicación
+     */
+    public static synchronized long getBytesEscritosTotales() {
+        return bytesEscritosTotales;
+    }
+    
+    static synchronized void registrarBytesEscritos(long bytes) {
+        bytesUltimoGuardado += bytes;
+        bytesEscritosTotales += bytes;
+    }
 
     
     // ========== CARGAR DATOS ==========
     
     /**
-     * Carga las citas desde el archivo JSON
+     * Carga las citas desde disco (JSON o binario según cómo se guardaron)
      */
     public static Map<Integer, Cita> cargarCitas() {
-        Type type = new TypeToken<Map<Integer, Cita>>(){}.getType();
-        Map<Integer, Cita> citas = cargarDatos(CITAS_FILE, type);
+        Map<Integer, Cita> citas = cargarColeccion(Coleccion.CITAS, almacenamientoEnDisco);
         return citas != null ? citas : new HashMap<>();
     }
     
     /**
-     * Carga los pacientes desde el archivo JSON
+     * Carga los pacientes desde disco (JSON o binario según cómo se guardaron)
      */
     public static Map<Integer, Paciente> cargarPacientes() {
-        Type type = new TypeToken<Map<Integer, Paciente>>(){}.getType();
-        Map<Integer, Paciente> pacientes = cargarDatos(PACIENTES_FILE, type);
+        Map<Integer, Paciente> pacientes = cargarColeccion(Coleccion.PACIENTES, almacenamientoEnDisco);
         return pacientes != null ? pacientes : new HashMap<>();
     }
     
     /**
-     * Carga los odontólogos desde el archivo JSON
+     * Carga los odontólogos desde disco (JSON o binario según cómo se guardaron)
      */
     public static Map<Integer, Odontologo> cargarOdontologos() {
-        Type type = new TypeToken<Map<Integer, Odontologo>>(){}.getType();
-        Map<Integer, Odontologo> odontologos = cargarDatos(ODONTOLOGOS_FILE, type);
+        Map<Integer, Odontologo> odontologos = cargarColeccion(Coleccion.ODONTOLOGOS, almacenamientoEnDisco);
         return odontologos != null ? odontologos : new HashMap<>();
     }
     
     /**
-     * Carga los horarios desde el archivo JSON
+     * Carga los horarios desde disco (JSON o binario según cómo se guardaron)
      */
     public static Map<Integer, Horario> cargarHorarios() {
-        Type type = new TypeToken<Map<Integer, Horario>>(){}.getType();
-        Map<Integer, Horario> horarios = cargarDatos(HORARIOS_FILE, type);
+        Map<Integer, Horario> horarios = cargarColeccion(Coleccion.HORARIOS, almacenamientoEnDisco);
         return horarios != null ? horarios : new HashMap<>();
     }
     
     /**
-     * Carga las facturas desde el archivo JSON
+     * Carga las facturas desde disco (JSON o binario según cómo se guardaron)
      */
     public static Map<Integer, Factura> cargarFacturas() {
-        Type type = new TypeToken<Map<Integer, Factura>>(){}.getType();
-        Map<Integer, Factura> facturas = cargarDatos(FACTURAS_FILE, type);
+        Map<Integer, Factura> facturas = cargarColeccion(Coleccion.FACTURAS, almacenamientoEnDisco);
         return facturas != null ? facturas : new HashMap<>();
     }
     
+    /**
+     * Carga todas las colecciones en paralelo, una por hilo virtual, e informa el
+     * tiempo de cada archivo. Debe llamarse después de cargarContadores(), que
+     * determina si las instantáneas están en JSON o en binario.
+     * Las colecciones particionadas solo cargan las particiones que indica el criterio.
+     * @param progreso recibe un aviso al terminar cada archivo
+     * @param pasosPrevios pasos ya completados antes (para el total del progreso)
+     * @param pasosTotales total de pasos de la carga completa
+     * @param particionInicial particiones mensuales que se cargan al iniciar
+     * @param indices recibe el índice ID → partición de cada colección particionada en disco
+     * @return el mapa de cada colección (vacío si el archivo no existe o no pudo leerse)
+     */
+    public static Map<Coleccion, Map<Integer, ?>> cargarColecciones(ProgresoCarga progreso,
+                                                                  int pasosPrevios, int pasosTotales,
+                                                                  Predicate<String> particionInicial,
+                                                                  Map<Coleccion, Map<Integer, String>> indices) {
+        Almacenamiento almacenamiento = almacenamientoEnDisco;
+        AtomicInteger completados = new AtomicInteger(pasosPrevios);
+        Map<Coleccion, Long> tiempos = new ConcurrentHashMap<>();
+        Map<Coleccion, Future<Map<Integer, Object>>> tareas = new EnumMap<>(Coleccion.class);
+        Map<Coleccion, Map<Integer, ?>> resultado = new EnumMap<>(Coleccion.class);
+        long inicio = System.nanoTime();
+        
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Coleccion coleccion : Coleccion.values()) {
+                tareas.put(coleccion, hilos.submit(() -> {
+                    long t0 = System.nanoTime();
+                    Map<Integer, String> indice = coleccion.isParticionada() ? cargarIndice(coleccion) : null;
+                    Map<Integer, Object> datos;
+                    if (indice != null) {
+                        indices.put(coleccion, indice);
+                        datos = cargarParticiones(coleccion, almacenamiento, indice, particionInicial);
+                    } else {
+                        datos = cargarColeccion(coleccion, almacenamiento);
+                    }
+                    tiempos.put(coleccion, System.nanoTime() - t0);
+                    progreso.avance(completados.incrementAndGet(), pasosTotales, coleccion.getNombre());
+                    return datos;
+                }));
+            }
+            for (Map.Entry<Coleccion, Future<Map<Integer, Object>>> tarea : tareas.entrySet()) {
+                Map<Integer, Object> datos;
+                try {
+                    datos = tarea.getValue().get();
+                } catch (ExecutionException e) {
+                    System.err.println("Error al cargar " + tarea.getKey().getNombre() + ": " + e.getCause());
+                    datos = null;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    datos = null;
+                }
+                resultado.put(tarea.getKey(), datos != null ? datos : new HashMap<>());
+            }
+        }
+        
+        StringBuilder resumen = new StringBuilder("Tiempos de carga:");
+        for (Coleccion coleccion : Coleccion.values()) {
+            Long nanos = tiempos.get(coleccion);
+            resumen.append(' ').append(coleccion.getNombre()).append('=')
+                   .append(nanos != null ? nanos / 1_000_000 + " ms" : "error");
+        }
+        resumen.append(" (total en paralelo: ").append((System.nanoTime() - inicio) / 1_000_000).append(" ms)");
+        System.out.println(resumen);
+        return resultado;
+    }
+    
     /**
      * Carga los contadores de IDs
      */
@@ -177,8 +677,19 @@ public class DataPersistence {
         counters.put("nextPacienteId", 103); // NUEVA LÍNEA
     }
     
+    almacenamientoEnDisco = Almacenamiento.porCodigo(counters.getOrDefault(CLAVE_ALMACENAMIENTO, 0));
     return counters;
 }
+    
+    /**
+     * Indica si los archivos fueron escritos con un formato anterior (sin versión = v1)
+     * o con otro almacenamiento (JSON/binario) que el configurado, y deben
+     * reescribirse completos en el formato actual
+     */
+    public static boolean requiereMigracion(Map<String, Integer> counters) {
+        return counters.getOrDefault(CLAVE_VERSION, 1) < FORMATO_VERSION
+                || Almacenamiento.porCodigo(counters.getOrDefault(CLAVE_ALMACENAMIENTO, 0)) != Configuracion.getAlmacenamiento();
+    }
 
     
     // ========== MÉTODOS AUXILIARES GENÉRICOS ==========
@@ -187,9 +698,25 @@ public class DataPersistence {
      * Método genérico para guardar datos en un archivo JSON
      */
     private static <T> boolean guardarDatos(String archivo, T datos) {
-        try (Writer writer = new FileWriter(archivo)) {
-            gson.toJson(datos, writer);
-            System.out.println("Datos guardados: " + archivo);
+        try {
+            return guardarBytes(archivo, serializar(gson, datos));
+        } catch (IOException e) {
+            System.err.println("Error al guardar " + archivo + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+    
+    /**
+     * Escribe el contenido ya codificado de un archivo de datos
+     * La escritura es atómica y conserva la versión anterior (ver {@link ArchivoSeguro})
+     */
+    private static boolean guardarBytes(String archivo, byte[] contenido) {
+        try {
+            ArchivoSeguro.escribir(Paths.get(archivo), contenido);
+            MarcasArchivos.registrar(Paths.get(archivo));
+            registrarBytesEscritos(contenido.length);
+            System.out.println("Datos guardados: " + archivo + " (" + contenido.length + " bytes)");
             return true;
         } catch (IOException e) {
             System.err.println("Error al guardar " + archivo + ": " + e.getMessage());
@@ -198,34 +725,80 @@ public class DataPersistence {
         }
     }
     
+    /**
+     * Carga el mapa completo de una colección desde el formato indicado
+     * @return el mapa, o null si no existe o no se pudo recuperar
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Map<Integer, T> cargarColeccion(Coleccion coleccion, Almacenamiento almacenamiento) {
+        String archivo = archivoDe(coleccion, almacenamiento);
+        if (almacenamiento == Almacenamiento.JSON) {
+            return cargarDatos(archivo, TypeToken.getParameterized(Map.class, Integer.class, coleccion.getTipo()).getType());
+        }
+        
+        Map<Integer, Object> datos = leerArchivo(archivo, contenido -> FormatoBinario.decodificar(coleccion, contenido));
+        return (Map<Integer, T>) (Map<Integer, ?>) datos;
+    }
+    
     /**
      * Método genérico para cargar datos desde un archivo JSON
+     * Si el archivo está dañado se recupera la generación anterior
      */
     private static <T> T cargarDatos(String archivo, Type type) {
-        File file = new File(archivo);
-        
-        if (!file.exists()) {
+        return leerArchivo(archivo, contenido -> deserializar(gson, contenido, type));
+    }
+    
+    /**
+     * Lee un archivo de datos (JSON o binario) y registra su marca para detectar
+     * cambios externos; si está dañado se recupera la generación anterior
+     */
+    private static <T> T leerArchivo(String archivo, ArchivoSeguro.Decodificador<T> decodificador) {
+        // La marca se toma antes de leer: un cambio posterior se detecta en la siguiente consulta
+        MarcasArchivos.registrar(Paths.get(archivo));
+        if (!ArchivoSeguro.existe(Paths.get(archivo))) {
             System.out.println("Archivo no encontrado: " + archivo + " (se creará al guardar)");
             return null;
         }
         
-        try (Reader reader = new FileReader(archivo)) {
-            T datos = gson.fromJson(reader, type);
+        T datos = ArchivoSeguro.leer(Paths.get(archivo), decodificador);
+        if (datos != null) {
             System.out.println("Datos cargados: " + archivo);
-            return datos;
-        } catch (IOException e) {
-            System.err.println("Error al cargar " + archivo + ": " + e.getMessage());
-            e.printStackTrace();
-            return null;
+        } else {
+            System.err.println("✗ No se pudo recuperar " + archivo + " ni su versión anterior");
+        }
+        return datos;
+    }
+    
+    /**
+     * Serializa en streaming directamente a bytes UTF-8
+     */
+    static byte[] serializar(Gson gson, Object datos) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+        try (Writer writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+            gson.toJson(datos, writer);
         }
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * Deserializa en streaming desde bytes UTF-8
+     */
+    static <T> T deserializar(Gson gson, byte[] contenido, Type type) {
+        Reader reader = new InputStreamReader(new ByteArrayInputStream(contenido), StandardCharsets.UTF_8);
+        return gson.fromJson(reader, type);
     }
     
     /**
      * Verifica si existen archivos de datos guardados
      */
     public static boolean existenDatosGuardados() {
-        return new File(CITAS_FILE).exists() || 
-               new File(PACIENTES_FILE).exists() ||
-               new File(ODONTOLOGOS_FILE).exists();
+        for (Almacenamiento almacenamiento : Almacenamiento.values()) {
+            for (Coleccion coleccion : new Coleccion[] {Coleccion.CITAS, Coleccion.PACIENTES, Coleccion.ODONTOLOGOS}) {
+                if (ArchivoSeguro.existe(Paths.get(archivoDe(coleccion, almacenamiento)))) {
+                    return true;
+                }
+            }
+        }
+        return cargarIndice(Coleccion.CITAS) != null || DataJournal.existeJournal();
     }
 }
@@ -0,0 +1,212 @@
+package util;
+
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Hilo de persistencia en segundo plano con escritura agrupada (group commit)
+ * Los lotes encolados durante el retardo configurado se fusionan y se escriben
+ * en una sola pasada, de modo que una ráfaga de guardados (por ejemplo crear una
+ * cita y su factura) produce una única escritura y el hilo de la interfaz no
+ * espera al disco. Si una escritura falla, el lote se conserva y se reintenta.
+ * El estado se protege con un ReentrantLock que nunca se mantiene durante una
+ * escritura en disco (un hilo virtual que espera el bloqueo no fija su portador).
+ */
+public class EscritorAsincrono {
+
+    private final ScheduledExecutorService hilo;
+    private final Predicate<LoteCambios> escritura;
+    private final long retardoMs;
+    private final int maxLote;
+
+    // Estado protegido por 'bloqueo'
+    private final ReentrantLock bloqueo = new ReentrantLock();
+    private LoteCambios pendiente;
+    private CompletableFuture<Boolean> resultadoPendiente;
+    private CompletableFuture<Boolean> resultadoEnCurso;
+    private Future<?> programado;
+    private boolean cerrado = false;
+
+    /**
+     * @param escritura función que escribe un lote en disco y devuelve si tuvo éxito
+     * @param retardoMs tiempo que se espera para agrupar guardados antes de escribir
+     * @param maxLote cantidad de guardados agrupados que fuerza la escritura inmediata
+     */
+    public EscritorAsincrono(Predicate<LoteCambios> escritura, long retardoMs, int maxLote) {
+        this.escritura = escritura;
+        this.retardoMs = Math.max(0, retardoMs);
+        this.maxLote = Math.max(1, maxLote);
+        this.hilo = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "persistencia-odontologia");
+            t.setDaemon(true);
+            return t;
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(this::cerrar, "cierre-persistencia"));
+    }
+
+    // ========== API PÚBLICA ==========
+
+    /**
+     * Encola un lote para escribirlo en segundo plano
+     * @return futuro que se completa cuando el lote (fusionado con otros) llega a disco
+     */
+    public CompletableFuture<Boolean> encolar(LoteCambios lote) {
+        bloqueo.lock();
+        try {
+            if (!cerrado) {
+                if (pendiente == null) {
+                    pendiente = lote;
+                    resultadoPendiente = new CompletableFuture<>();
+                } else {
+                    pendiente.fusionar(lote);
+                }
+
+                if (pendiente.getSolicitudes() >= maxLote) {
+                    programar(0);
+                } else if (programado == null) {
+                    programar(retardoMs);
+                }
+                return resultadoPendiente;
+            }
+        } finally {
+            bloqueo.unlock();
+        }
+        // Durante el cierre se escribe directamente en el hilo que llama, sin el bloqueo
+        return CompletableFuture.completedFuture(escritura.test(lote));
+    }
+
+    /**
+     * Escribe de inmediato lo que esté pendiente (flush)
+     * @return futuro que se completa cuando todo lo encolado hasta ahora está en disco
+     */
+    public CompletableFuture<Boolean> vaciar() {
+        bloqueo.lock();
+        try {
+            if (pendiente == null) {
+                return resultadoEnCurso != null ? resultadoEnCurso : CompletableFuture.completedFuture(true);
+            }
+            if (!cerrado) {
+                programar(0);
+            }
+            return resultadoPendiente;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * Espera a que todo lo encolado hasta ahora sea durable en disco
+     * @return true si todas las escrituras tuvieron éxito
+     */
+    public boolean esperarDurabilidad() {
+        try {
+            return vaciar().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            System.err.println("Error en la persistencia: " + e.getCause().getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Escribe lo pendiente y detiene el hilo; se invoca al cerrar la aplicación
+     */
+    public void cerrar() {
+        CompletableFuture<Boolean> ultimo;
+        bloqueo.lock();
+        try {
+            if (cerrado) {
+                return;
+            }
+            ultimo = vaciar();
+            cerrado = true;
+        } finally {
+            bloqueo.unlock();
+        }
+        try {
+            ultimo.get(30, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            System.err.println("No se pudieron guardar los últimos cambios: " + e.getMessage());
+        }
+        hilo.shutdown();
+        LoteCambios lote;
+        CompletableFuture<Boolean> resultado;
+        bloqueo.lock();
+        try {
+            lote = pendiente;
+            resultado = resultadoPendiente;
+            pendiente = null;
+            resultadoPendiente = null;
+        } finally {
+            bloqueo.unlock();
+        }
+        if (lote != null) {
+            // Un reintento fallido quedó pendiente: último intento en este hilo
+            resultado.complete(escritura.test(lote));
+        }
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    /**
+     * Se invoca con 'bloqueo' tomado
+     */
+    private void programar(long retardo) {
+        if (programado != null) {
+            programado.cancel(false);
+        }
+        programado = hilo.schedule(this::escribir, retardo, TimeUnit.MILLISECONDS);
+    }
+
+    private void escribir() {
+        LoteCambios lote;
+        CompletableFuture<Boolean> resultado;
+        bloqueo.lock();
+        try {
+            lote = pendiente;
+            resultado = resultadoPendiente;
+            pendiente = null;
+            resultadoPendiente = null;
+            programado = null;
+            resultadoEnCurso = resultado;
+        } finally {
+            bloqueo.unlock();
+        }
+        if (lote == null) {
+            return;
+        }
+
+        boolean exito;
+        try {
+            exito = escritura.test(lote);
+        } catch (RuntimeException e) {
+            System.err.println("Error inesperado al guardar: " + e.getMessage());
+            e.printStackTrace();
+            exito = false;
+        }
+
+        bloqueo.lock();
+        try {
+            resultadoEnCurso = null;
+            if (!exito) {
+                // Conservar los cambios: el lote fallido es anterior a lo encolado mientras tanto
+                if (pendiente != null) {
+                    lote.fusionar(pendiente);
+                }
+                pendiente = lote;
+                if (resultadoPendiente == null) {
+                    resultadoPendiente = new CompletableFuture<>();
+                }
+                if (!cerrado) {
+                    programar(Math.max(retardoMs, 1000));
+                }
+            }
+        } finally {
+            bloqueo.unlock();
+        }
+        resultado.complete(exito);
+    }
+}
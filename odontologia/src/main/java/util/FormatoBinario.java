@@ -0,0 +1,290 @@
+package util;
+
+import model.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Formato binario compacto para las instantáneas de una colección
+ *
+ * ESTRUCTURA (big-endian):
+ * - Encabezado: "ODB1" (int), versión (short), colección (byte), cantidad de registros (int)
+ * - Tabla de cadenas: cantidad (int) y por cada una longitud (int) + bytes UTF-8;
+ *   nombres, expedientes, especialidades y motivos se guardan una sola vez
+ * - Registros de ancho fijo según la colección:
+ *   Paciente   id, nombre*, telefono, expediente*                       16 bytes
+ *   Odontologo id, nombre*, telefono, especialidad*, colegiado           20 bytes
+ *   Cita       id, fecha, hora, motivo*, estado, pacienteId, odontologoId 23 bytes
+ *   Horario    id, fecha, hora, disponible, odontologoId                 15 bytes
+ *   Factura    id, monto, citaId, pacienteId                             20 bytes
+ *   (* índice en la tabla de cadenas)
+ *
+ * Las fechas se guardan como día de época (int) y las horas como minuto del
+ * día (short); los segundos no se conservan. Las entidades relacionadas se
+ * guardan por ID, igual que en el formato JSON v2.
+ */
+public class FormatoBinario {
+
+    private static final int MAGICO = 0x4F444231; // "ODB1"
+    private static final short VERSION = 1;
+
+    // Marcadores de valor ausente
+    private static final int SIN_CADENA = -1;
+    private static final int SIN_FECHA = Integer.MIN_VALUE;
+    private static final short SIN_HORA = -1;
+    private static final byte SIN_ESTADO = -1;
+    private static final int SIN_REFERENCIA = Integer.MIN_VALUE;
+
+    private FormatoBinario() {
+    }
+
+    // ========== ESCRITURA ==========
+
+    /**
+     * Codifica el mapa completo de una colección
+     */
+    public static byte[] codificar(Coleccion coleccion, Map<Integer, ?> datos) {
+        Map<String, Integer> cadenas = new LinkedHashMap<>();
+        ByteBuffer registros = ByteBuffer.allocate(datos.size() * tamanoRegistro(coleccion));
+
+        for (Object entidad : datos.values()) {
+            switch (coleccion) {
+                case PACIENTES -> {
+                    Paciente p = (Paciente) entidad;
+                    registros.putInt(p.getId());
+                    registros.putInt(indice(cadenas, p.getNombre()));
+                    registros.putInt(p.getTelefono());
+                    registros.putInt(indice(cadenas, p.getNumeroExpediente()));
+                }
+                case ODONTOLOGOS -> {
+                    Odontologo o = (Odontologo) entidad;
+                    registros.putInt(o.getId());
+                    registros.putInt(indice(cadenas, o.getNombre()));
+                    registros.putInt(o.getTelefono());
+                    registros.putInt(indice(cadenas, o.getEspecialidad()));
+                    registros.putInt(o.getNumeroColegiado());
+                }
+                case CITAS -> {
+                    Cita c = (Cita) entidad;
+                    registros.putInt(c.getId());
+                    registros.putInt(fecha(c.getFecha()));
+                    registros.putShort(hora(c.getHora()));
+                    registros.putInt(indice(cadenas, c.getMotivo()));
+                    registros.put(c.getEstado() != null ? (byte) c.getEstado().ordinal() : SIN_ESTADO);
+                    registros.putInt(c.getPaciente() != null ? c.getPaciente().getId() : SIN_REFERENCIA);
+                    registros.putInt(c.getOdontologo() != null ? c.getOdontologo().getId() : SIN_REFERENCIA);
+                }
+                case HORARIOS -> {
+                    Horario h = (Horario) entidad;
+                    registros.putInt(h.getId());
+                    registros.putInt(fecha(h.getFecha()));
+                    registros.putShort(hora(h.getHora()));
+                    registros.put((byte) (h.isDisponible() ? 1 : 0));
+                    registros.putInt(h.getOdontologo() != null ? h.getOdontologo().getId() : SIN_REFERENCIA);
+                }
+                case FACTURAS -> {
+                    Factura f = (Factura) entidad;
+                    registros.putInt(f.getId());
+                    registros.putDouble(f.getMonto());
+                    registros.putInt(f.getCita() != null ? f.getCita().getId() : SIN_REFERENCIA);
+                    registros.putInt(f.getPaciente() != null ? f.getPaciente().getId() : SIN_REFERENCIA);
+                }
+            }
+        }
+
+        List<byte[]> tabla = new ArrayList<>(cadenas.size());
+        int tamanoTabla = 4;
+        for (String cadena : cadenas.keySet()) {
+            byte[] bytes = cadena.getBytes(StandardCharsets.UTF_8);
+            tabla.add(bytes);
+            tamanoTabla += 4 + bytes.length;
+        }
+
+        ByteBuffer salida = ByteBuffer.allocate(11 + tamanoTabla + registros.position());
+        salida.putInt(MAGICO);
+        salida.putShort(VERSION);
+        salida.put((byte) coleccion.ordinal());
+        salida.putInt(datos.size());
+        salida.putInt(tabla.size());
+        for (byte[] bytes : tabla) {
+            salida.putInt(bytes.length);
+            salida.put(bytes);
+        }
+        salida.put(registros.array(), 0, registros.position());
+        return salida.array();
+    }
+
+    // ========== LECTURA ==========
+
+    /**
+     * Decodifica una instantánea binaria; las entidades relacionadas quedan como
+     * referencias provisionales con solo el ID (Database las enlaza)
+     * @throws IOException si el contenido no es una instantánea válida de la colección
+     */
+    public static Map<Integer, Object> decodificar(Coleccion coleccion, byte[] contenido) throws IOException {
+        ByteBuffer entrada = ByteBuffer.wrap(contenido);
+        try {
+            if (entrada.getInt() != MAGICO) {
+                throw new IOException("No es un archivo de datos binario");
+            }
+            short version = entrada.getShort();
+            if (version != VERSION) {
+                throw new IOException("Versión de formato binario no soportada: " + version);
+            }
+            if (entrada.get() != coleccion.ordinal()) {
+                throw new IOException("El archivo no corresponde a la colección " + coleccion.getNombre());
+            }
+            int cantidad = entrada.getInt();
+
+            String[] cadenas = new String[entrada.getInt()];
+            for (int i = 0; i < cadenas.length; i++) {
+                int longitud = entrada.getInt();
+                cadenas[i] = new String(contenido, entrada.position(), longitud, StandardCharsets.UTF_8);
+                entrada.position(entrada.position() + longitud);
+            }
+
+            if (entrada.remaining() != cantidad * tamanoRegistro(coleccion)) {
+                throw new IOException("Tamaño de registros inválido en " + coleccion.getNombre());
+            }
+
+            Map<Integer, Object> datos = new HashMap<>(Math.max(16, cantidad * 4 / 3 + 1));
+            for (int i = 0; i < cantidad; i++) {
+                Entidad entidad = leerRegistro(coleccion, entrada, cadenas);
+                datos.put(entidad.getId(), entidad);
+            }
+            return datos;
+        } catch (RuntimeException e) {
+            throw new IOException("Archivo binario dañado: " + e.getMessage(), e);
+        }
+    }
+
+    private static Entidad leerRegistro(Coleccion coleccion, ByteBuffer entrada, String[] cadenas) {
+        switch (coleccion) {
+            case PACIENTES -> {
+                Paciente p = new Paciente();
+                p.setId(entrada.getInt());
+                p.setNombre(cadena(cadenas, entrada.getInt()));
+                p.setTelefono(entrada.getInt());
+                p.setNumeroExpediente(cadena(cadenas, entrada.getInt()));
+                return p;
+            }
+            case ODONTOLOGOS -> {
+                Odontologo o = new Odontologo();
+                o.setId(entrada.getInt());
+                o.setNombre(cadena(cadenas, entrada.getInt()));
+                o.setTelefono(entrada.getInt());
+                o.setEspecialidad(cadena(cadenas, entrada.getInt()));
+                o.setNumeroColegiado(entrada.getInt());
+                return o;
+            }
+            case CITAS -> {
+                Cita c = new Cita();
+                c.setId(entrada.getInt());
+                c.setFecha(fecha(entrada.getInt()));
+                c.setHora(hora(entrada.getShort()));
+                c.setMotivo(cadena(cadenas, entrada.getInt()));
+                byte estado = entrada.get();
+                c.setEstado(estado != SIN_ESTADO ? EstadoCita.values()[estado] : null);
+                int pacienteId = entrada.getInt();
+                if (pacienteId != SIN_REFERENCIA) {
+                    c.setPaciente(paciente(pacienteId));
+                }
+                int odontologoId = entrada.getInt();
+                if (odontologoId != SIN_REFERENCIA) {
+                    c.setOdontologo(odontologo(odontologoId));
+                }
+                return c;
+            }
+            case HORARIOS -> {
+                Horario h = new Horario();
+                h.setId(entrada.getInt());
+                h.setFecha(fecha(entrada.getInt()));
+                h.setHora(hora(entrada.getShort()));
+                h.setDisponible(entrada.get() != 0);
+                int odontologoId = entrada.getInt();
+                if (odontologoId != SIN_REFERENCIA) {
+                    h.setOdontologo(odontologo(odontologoId));
+                }
+                return h;
+            }
+            case FACTURAS -> {
+                Factura f = new Factura();
+                f.setId(entrada.getInt());
+                f.setMonto(entrada.getDouble());
+                int citaId = entrada.getInt();
+                if (citaId != SIN_REFERENCIA) {
+                    f.setCita(cita(citaId));
+                }
+                int pacienteId = entrada.getInt();
+                if (pacienteId != SIN_REFERENCIA) {
+                    f.setPaciente(paciente(pacienteId));
+                }
+                return f;
+            }
+        }
+        throw new IllegalArgumentException("Colección desconocida: " + coleccion);
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private static int tamanoRegistro(Coleccion coleccion) {
+        return switch (coleccion) {
+            case PACIENTES -> 16;
+            case ODONTOLOGOS -> 20;
+            case CITAS -> 23;
+            case HORARIOS -> 15;
+            case FACTURAS -> 20;
+        };
+    }
+
+    private static int indice(Map<String, Integer> cadenas, String valor) {
+        if (valor == null) {
+            return SIN_CADENA;
+        }
+        return cadenas.computeIfAbsent(valor, v -> cadenas.size());
+    }
+
+    private static String cadena(String[] cadenas, int indice) {
+        return indice == SIN_CADENA ? null : cadenas[indice];
+    }
+
+    private static int fecha(LocalDate fecha) {
+        return fecha != null ? (int) fecha.toEpochDay() : SIN_FECHA;
+    }
+
+    private static LocalDate fecha(int diaEpoca) {
+        return diaEpoca != SIN_FECHA ? LocalDate.ofEpochDay(diaEpoca) : null;
+    }
+
+    private static short hora(LocalTime hora) {
+        return hora != null ? (short) (hora.getHour() * 60 + hora.getMinute()) : SIN_HORA;
+    }
+
+    private static LocalTime hora(short minutoDelDia) {
+        return minutoDelDia != SIN_HORA ? LocalTime.of(minutoDelDia / 60, minutoDelDia % 60) : null;
+    }
+
+    // Referencias provisionales: solo llevan el ID hasta que Database las enlaza
+
+    private static Paciente paciente(int id) {
+        Paciente p = new Paciente();
+        p.setId(id);
+        return p;
+    }
+
+    private static Cita cita(int id) {
+        Cita c = new Cita();
+        c.setId(id);
+        return c;
+    }
+
+    private static Odontologo odontologo(int id) {
+        Odontologo o = new Odontologo();
+        o.setId(id);
+        return o;
+    }
+}
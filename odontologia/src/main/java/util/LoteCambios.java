@@ -0,0 +1,230 @@
+package util;
+
+import model.Database;
+import model.Entidad;
+import model.TablaEntidades;
+import model.TablaParticionada;
+import java.util.*;
+
+/**
+ * Conjunto de cambios capturados de Database para ser escritos en disco
+ * Se captura en el hilo que llama a guardarDatos, con una copia de cada
+ * entidad tomada con la tabla bloqueada, y se serializa después en el hilo de
+ * persistencia: la escritura no compite con los controladores que siguen
+ * modificando las entidades, ni un registro mezcla dos estados de una misma.
+ * Varios lotes consecutivos se fusionan en uno solo antes de escribirse.
+ */
+public class LoteCambios {
+
+    /**
+     * Cambios de una colección: las entidades agregadas o modificadas, los IDs
+     * eliminados y, si hace falta reescribir el archivo completo, una copia del mapa
+     */
+    static class CambiosColeccion {
+        Map<Integer, Object> copia;
+        // Colecciones particionadas: copia de cada partición modificada y del índice
+        Map<String, Map<Integer, Object>> particiones;
+        Map<Integer, String> indice;
+        final Map<Integer, Object> modificados = new LinkedHashMap<>();
+        final Set<Integer> eliminados = new LinkedHashSet<>();
+
+        void fusionar(CambiosColeccion posterior) {
+            if (posterior.copia != null) {
+                copia = posterior.copia;
+            } else if (copia != null) {
+                copia.putAll(posterior.modificados);
+                copia.keySet().removeAll(posterior.eliminados);
+            }
+            if (posterior.particiones != null) {
+                if (particiones == null) {
+                    particiones = posterior.particiones;
+                } else {
+                    particiones.putAll(posterior.particiones);
+                }
+            }
+            if (posterior.indice != null) {
+                indice = posterior.indice;
+            }
+            for (Integer id : posterior.eliminados) {
+                modificados.remove(id);
+                eliminados.add(id);
+            }
+            for (Map.Entry<Integer, Object> entry : posterior.modificados.entrySet()) {
+                eliminados.remove(entry.getKey());
+                modificados.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private final Map<Coleccion, CambiosColeccion> colecciones = new EnumMap<>(Coleccion.class);
+    private Map<String, Integer> contadores;
+    private boolean completo;
+    private int solicitudes = 1;
+
+    private LoteCambios() {
+    }
+
+    /**
+     * Captura los cambios pendientes de Database y los marca como guardados
+     * @param conCopias incluir una copia de cada colección modificada (para reescribir su archivo)
+     * @param todas incluir todas las colecciones y contadores aunque no tengan cambios
+     */
+    public static LoteCambios capturar(Database db, boolean conCopias, boolean todas) {
+        LoteCambios lote = new LoteCambios();
+        lote.completo = todas;
+
+        for (Coleccion coleccion : Coleccion.values()) {
+            TablaEntidades<? extends Entidad> tabla = db.getTabla(coleccion);
+            // Leer los cambios y marcarlos como guardados es una sola operación: un
+            // cambio hecho por otro hilo entre ambos pasos no se pierde
+            CambiosColeccion cambios = tabla.exclusivo(() -> capturarTabla(tabla, conCopias, todas));
+            if (cambios != null) {
+                lote.colecciones.put(coleccion, cambios);
+            }
+        }
+
+        if (todas || db.hayContadoresModificados()) {
+            // Se limpia antes de leer: una reserva posterior vuelve a marcarlos
+            db.limpiarContadoresModificados();
+            lote.contadores = db.getContadores();
+        }
+        return lote;
+    }
+
+    /**
+     * Cambios pendientes de una tabla (la tabla queda marcada como guardada)
+     * Se llama con la tabla bloqueada: las entidades se copian aquí y el hilo de
+     * persistencia solo serializa las copias. Una entidad que cambia después
+     * vuelve a quedar marcada y se guarda con el próximo lote.
+     * @return los cambios, o null si la tabla no tiene ninguno y no se piden todas
+     */
+    private static CambiosColeccion capturarTabla(TablaEntidades<? extends Entidad> tabla,
+                                                  boolean conCopias, boolean todas) {
+        if (!todas && !tabla.tieneCambios()) {
+            return null;
+        }
+        CambiosColeccion cambios = new CambiosColeccion();
+        // Una sola copia por entidad aunque esté en los modificados y en la copia del archivo
+        Map<Integer, Object> copias = new HashMap<>();
+        for (Integer id : tabla.getModificados()) {
+            Entidad entidad = tabla.get(id);
+            if (entidad != null) {
+                cambios.modificados.put(id, copiar(copias, id, entidad));
+            }
+        }
+        cambios.eliminados.addAll(tabla.getEliminados());
+        if (tabla instanceof TablaParticionada<? extends Entidad> particionada) {
+            if (conCopias || todas) {
+                // Solo se reescriben las particiones modificadas (o todas las cargadas)
+                Set<String> particiones = todas ? particionada.getParticionesCargadas()
+                        : particionada.getParticionesModificadas();
+                cambios.particiones = new TreeMap<>();
+                particionada.copiarParticiones(particiones)
+                        .forEach((clave, copia) -> cambios.particiones.put(clave, copiarTodas(copias, copia)));
+                if (todas || particionada.isIndiceModificado()) {
+                    cambios.indice = new HashMap<>(particionada.getIndice());
+                }
+            }
+        } else if (conCopias || todas) {
+            cambios.copia = copiarTodas(copias, tabla);
+        }
+        tabla.limpiarCambios();
+        return cambios;
+    }
+
+    private static Map<Integer, Object> copiarTodas(Map<Integer, Object> copias, Map<Integer, ? extends Entidad> entidades) {
+        Map<Integer, Object> resultado = new LinkedHashMap<>(Math.max(16, entidades.size() * 4 / 3 + 1));
+        for (Map.Entry<Integer, ? extends Entidad> entry : entidades.entrySet()) {
+            resultado.put(entry.getKey(), copiar(copias, entry.getKey(), entry.getValue()));
+        }
+        return resultado;
+    }
+
+    private static Object copiar(Map<Integer, Object> copias, Integer id, Entidad entidad) {
+        return copias.computeIfAbsent(id, clave -> entidad.copiar());
+    }
+
+    /**
+     * Agrega a este lote los cambios de un lote posterior
+     */
+    public void fusionar(LoteCambios posterior) {
+        for (Map.Entry<Coleccion, CambiosColeccion> entry : posterior.colecciones.entrySet()) {
+            CambiosColeccion actual = colecciones.get(entry.getKey());
+            if (actual == null) {
+                colecciones.put(entry.getKey(), entry.getValue());
+            } else {
+                actual.fusionar(entry.getValue());
+            }
+        }
+        if (posterior.contadores != null) {
+            contadores = posterior.contadores;
+        }
+        completo |= posterior.completo;
+        solicitudes += posterior.solicitudes;
+    }
+
+    // ========== CONSULTAS ==========
+
+    public boolean estaVacio() {
+        return colecciones.isEmpty() && contadores == null;
+    }
+
+    /**
+     * @return true si el lote contiene todas las colecciones completas
+     */
+    public boolean isCompleto() {
+        return completo;
+    }
+
+    /**
+     * Cantidad de llamadas a guardarDatos agrupadas en este lote
+     */
+    public int getSolicitudes() {
+        return solicitudes;
+    }
+
+    public Set<Coleccion> getColecciones() {
+        return colecciones.keySet();
+    }
+
+    /**
+     * Copia completa de la colección, o null si solo se capturaron los cambios
+     */
+    public Map<Integer, Object> getCopia(Coleccion coleccion) {
+        CambiosColeccion cambios = colecciones.get(coleccion);
+        return cambios != null ? cambios.copia : null;
+    }
+
+    /**
+     * Copia de cada partición a reescribir (colecciones particionadas), o null
+     */
+    public Map<String, Map<Integer, Object>> getParticiones(Coleccion coleccion) {
+        CambiosColeccion cambios = colecciones.get(coleccion);
+        return cambios != null ? cambios.particiones : null;
+    }
+
+    /**
+     * Índice ID → partición a guardar (colecciones particionadas), o null si no cambió
+     */
+    public Map<Integer, String> getIndice(Coleccion coleccion) {
+        CambiosColeccion cambios = colecciones.get(coleccion);
+        return cambios != null ? cambios.indice : null;
+    }
+
+    public Map<Integer, Object> getModificados(Coleccion coleccion) {
+        CambiosColeccion cambios = colecciones.get(coleccion);
+        return cambios != null ? cambios.modificados : Map.of();
+    }
+
+    public Set<Integer> getEliminados(Coleccion coleccion) {
+        CambiosColeccion cambios = colecciones.get(coleccion);
+        return cambios != null ? cambios.eliminados : Set.of();
+    }
+
+    /**
+     * Contadores de IDs a guardar, o null si no cambiaron
+     */
+    public Map<String, Integer> getContadores() {
+        return contadores;
+    }
+}
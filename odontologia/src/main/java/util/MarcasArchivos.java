@@ -0,0 +1,116 @@
+package util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detecta cambios externos en los archivos de datos
+ *
+ * Cada vez que la aplicación lee o escribe un archivo registra su marca: fecha
+ * de modificación, tamaño e identificador del archivo en el sistema (cambia en
+ * cada reemplazo atómico). Si la marca actual difiere de la registrada, el
+ * archivo fue modificado por otro proceso. Comprobarlo solo consulta los
+ * atributos, sin leer el contenido.
+ */
+public class MarcasArchivos {
+
+    private record Marca(FileTime modificado, long tamano, Object clave) {
+    }
+
+    // Marca de un archivo que no existe
+    private static final Marca AUSENTE = new Marca(null, -1, null);
+    // Marca que no coincide con ningún archivo: se informa como modificado hasta releerlo
+    private static final Marca SIN_LEER = new Marca(null, -2, null);
+
+    private static final Map<Path, Marca> marcas = new ConcurrentHashMap<>();
+
+    private MarcasArchivos() {
+    }
+
+    /**
+     * Registra el estado actual del archivo como conocido por la aplicación
+     */
+    public static void registrar(Path archivo) {
+        Path ruta = normalizar(archivo);
+        marcas.put(ruta, marcaActual(ruta));
+    }
+
+    /**
+     * Marca el archivo como pendiente de releer: la aplicación lo escribió con
+     * contenido que aún no tiene en memoria (por ejemplo, al combinar sus cambios
+     * con los de otro proceso) y la próxima consulta lo informa como modificado
+     */
+    public static void marcarSinLeer(Path archivo) {
+        marcas.put(normalizar(archivo), SIN_LEER);
+    }
+
+    /**
+     * @return true si el archivo cambió fuera de la aplicación desde que se
+     *         registró, o si existe y la aplicación nunca lo leyó ni escribió
+     */
+    public static boolean cambioExterno(Path archivo) {
+        Path ruta = normalizar(archivo);
+        Marca registrada = marcas.get(ruta);
+        Marca actual = marcaActual(ruta);
+        return registrada == null ? actual != AUSENTE : !registrada.equals(actual);
+    }
+
+    /**
+     * Deja de vigilar el archivo (por ejemplo, al eliminarlo la propia aplicación)
+     */
+    public static void olvidar(Path archivo) {
+        marcas.remove(normalizar(archivo));
+    }
+
+    /**
+     * @return true si algún archivo vigilado cambió desde que se registró
+     */
+    public static boolean hayModificados() {
+        for (Map.Entry<Path, Marca> entry : marcas.entrySet()) {
+            if (!entry.getValue().equals(marcaActual(entry.getKey()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Devuelve los archivos que cambiaron y registra su estado actual,
+     * de modo que cada cambio se informa una sola vez
+     */
+    public static Set<Path> tomarModificados() {
+        Set<Path> modificados = new TreeSet<>();
+        for (Map.Entry<Path, Marca> entry : marcas.entrySet()) {
+            Marca actual = marcaActual(entry.getKey());
+            if (!entry.getValue().equals(actual)) {
+                modificados.add(entry.getKey());
+                entry.setValue(actual);
+            }
+        }
+        return modificados;
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private static Marca marcaActual(Path archivo) {
+        try {
+            BasicFileAttributes atributos = Files.readAttributes(archivo, BasicFileAttributes.class);
+            return new Marca(atributos.lastModifiedTime(), atributos.size(), atributos.fileKey());
+        } catch (NoSuchFileException e) {
+            return AUSENTE;
+        } catch (IOException e) {
+            System.err.println("No se pudo consultar " + archivo + ": " + e.getMessage());
+            return AUSENTE;
+        }
+    }
+
+    private static Path normalizar(Path archivo) {
+        return archivo.toAbsolutePath().normalize();
+    }
+}
@@ -0,0 +1,18 @@
+package util;
+
+/**
+ * Recibe el avance de la carga de datos al iniciar la aplicación
+ * Puede invocarse desde cualquier hilo (las cargas se hacen en paralelo)
+ */
+@FunctionalInterface
+public interface ProgresoCarga {
+
+    ProgresoCarga NINGUNO = (completados, total, descripcion) -> { };
+
+    /**
+     * @param completados pasos terminados hasta ahora
+     * @param total cantidad total de pasos
+     * @param descripcion paso que acaba de terminar
+     */
+    void avance(int completados, int total, String descripcion);
+}
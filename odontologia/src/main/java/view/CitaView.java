@@ -14,7 +14,9 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Vista para gestionar citas con interfaz gráfica (JPanel) CORREGIDA:
@@ -38,11 +40,14 @@ public class CitaView extends JPanel {
     // Componentes principales
     private JTable tablaCitas;
     private DefaultTableModel modeloTabla;
-    private JButton btnCrear, btnReprogramar, btnCancelar, btnConfirmar;
+    private JButton btnCrear, btnReprogramar, btnCancelar, btnConfirmar, btnEliminar;
     private JButton btnRegistrarLlegada, btnEvaluarAsistencia, btnActualizar;
     private JComboBox<String> cmbFiltroEstado;
+    private JCheckBox chkHistorial;
     private JTextField txtBuscarPaciente;
     private JButton btnAsignarMonto;
+    // Número de la última carga o búsqueda pedida; las respuestas de las anteriores se descartan
+    private int consultaFiltros = 0;
 
     public CitaView() {
         this.controller = new RecepcionController();
@@ -97,6 +102,12 @@ public class CitaView extends JPanel {
         });
         panelFiltros.add(txtBuscarPaciente);
 
+        // Por defecto se muestran las citas del mes actual en adelante; el
+        // historial de meses anteriores se lee de disco solo si se pide
+        chkHistorial = new JCheckBox("Incluir historial");
+        chkHistorial.addActionListener(e -> aplicarFiltros());
+        panelFiltros.add(chkHistorial);
+
         btnActualizar = new JButton("Actualizar");
         btnActualizar.addActionListener(e -> cargarDatos());
         panelFiltros.add(btnActualizar);
@@ -157,7 +168,7 @@ public class CitaView extends JPanel {
         panel.add(btnCancelar);
 
         // ⭐ NUEVO BOTÓN - ELIMINAR
-        JButton btnEliminar = new JButton("Eliminar");
+        btnEliminar = new JButton("Eliminar");
         btnEliminar.setBackground(new Color(220, 53, 69));
         btnEliminar.setForeground(Color.WHITE);
         btnEliminar.addActionListener(e -> eliminarCita());
@@ -167,9 +178,27 @@ public class CitaView extends JPanel {
     }
 
     private void cargarDatos() {
-        modeloTabla.setRowCount(0); // Limpiar tabla
+        // La lectura puede cargar meses desde disco: corre en segundo plano.
+        // Comparte el número de consulta con los filtros, así una búsqueda que
+        // termine después no pisa los datos recién cargados (ni al revés)
+        int consulta = ++consultaFiltros;
+        boolean historial = chkHistorial.isSelected();
+        TareaSegundoPlano.ejecutar(this, () -> obtenerCitas(historial), citas -> {
+            if (consulta == consultaFiltros) {
+                mostrarCitas(citas);
+            }
+        }, btnActualizar);
+    }
 
-        List<Cita> citas = controller.obtenerTodasLasCitas();
+    /**
+     * Citas del mes actual en adelante o, si se pidió, también el historial
+     */
+    private List<Cita> obtenerCitas(boolean historial) {
+        return historial ? controller.obtenerHistorialCitas() : controller.obtenerTodasLasCitas();
+    }
+
+    private void mostrarCitas(List<Cita> citas) {
+        modeloTabla.setRowCount(0); // Limpiar tabla
 
         DateTimeFormatter formatoFecha = DateTimeFormatter.ofPattern("dd/MM/yyyy");
         DateTimeFormatter formatoHora = DateTimeFormatter.ofPattern("HH:mm");
@@ -189,29 +218,52 @@ public class CitaView extends JPanel {
         }
     }
 
-    private void aplicarFiltros() {
-        modeloTabla.setRowCount(0);
+    /**
+     * Citas que cumplen el filtro de estado y pacientes que coinciden con la búsqueda
+     */
+    private record ResultadoFiltros(List<Cita> citas, Set<Integer> idsPacientes) {
+    }
 
-        List<Cita> citas = controller.obtenerTodasLasCitas();
-        //Filtracion del estado de busqueda (PENDIENTE, CANCELADA, CONFIRMADA)
+    private void aplicarFiltros() {
+        //Filtracion del estado de busqueda (PENDIENTE, CANCELADA, CONFIRMADA): se piden solo las citas de ese estado
         String filtroEstado = (String) cmbFiltroEstado.getSelectedItem();
-        String buscarPaciente = txtBuscarPaciente.getText().toLowerCase().trim();
+        String buscarPaciente = txtBuscarPaciente.getText().trim();
+        boolean historial = chkHistorial.isSelected();
+        int consulta = ++consultaFiltros;
+
+        // La consulta corre en segundo plano; si mientras tanto se pidió otra, su resultado se descarta
+        TareaSegundoPlano.ejecutar(this, () -> {
+            List<Cita> citas = filtroEstado.equals("Todos")
+                    ? obtenerCitas(historial)
+                    : historial
+                            ? controller.obtenerCitasPorEstado(EstadoCita.valueOf(filtroEstado))
+                            : controller.obtenerCitasVigentesPorEstado(EstadoCita.valueOf(filtroEstado));
+            // Pacientes que coinciden con la búsqueda, resueltos una sola vez con el índice de nombres
+            Set<Integer> idsPacientes = new HashSet<>();
+            if (!buscarPaciente.isEmpty()) {
+                for (Paciente p : db.buscarPacientesPorNombre(buscarPaciente, Integer.MAX_VALUE)) {
+                    idsPacientes.add(p.getId());
+                }
+            }
+            return new ResultadoFiltros(citas, idsPacientes);
+        }, resultado -> {
+            if (consulta == consultaFiltros) {
+                mostrarFiltradas(resultado.citas(), buscarPaciente, resultado.idsPacientes());
+            }
+        });
+    }
+
+    private void mostrarFiltradas(List<Cita> citas, String buscarPaciente, Set<Integer> idsPacientes) {
+        modeloTabla.setRowCount(0);
 
         DateTimeFormatter formatoFecha = DateTimeFormatter.ofPattern("dd/MM/yyyy");
         DateTimeFormatter formatoHora = DateTimeFormatter.ofPattern("HH:mm");
 
         for (Cita cita : citas) {
-            // Filtrar por estado (se compara por defecto por seguridad)
-            if (!filtroEstado.equals("Todos") && !cita.getEstado().toString().equals(filtroEstado)) {
-                continue;
-            }
-
             // Filtrar por nombre de paciente
             if (!buscarPaciente.isEmpty()) {
-                //Obtiene el nombre del paciente, en caso que este vacio entonces no retornara nada.
-                String nombrePaciente = cita.getPaciente() != null ? cita.getPaciente().getNombre().toLowerCase() : "";
-                //Si no esta el nombre entonces lo deja pasar sin retornar nada.
-                if (!nombrePaciente.contains(buscarPaciente)) {
+                //Si la cita no tiene paciente o no coincide, no se muestra
+                if (cita.getPaciente() == null || !idsPacientes.contains(cita.getPaciente().getId())) {
                     continue;
                 }
             }
@@ -243,7 +295,7 @@ public class CitaView extends JPanel {
         dialogo.add(new JLabel("Paciente:"), gbc);
         gbc.gridx = 1;
         JComboBox<String> cmbPaciente = new JComboBox<>();
-        for (Paciente p : db.getPacientes().values()) {
+        for (Paciente p : db.getInstantaneaPacientes()) {
             cmbPaciente.addItem(p.getId() + " - " + p.getNombre());
         }
         dialogo.add(cmbPaciente, gbc);
@@ -254,7 +306,7 @@ public class CitaView extends JPanel {
         dialogo.add(new JLabel("Odontólogo:"), gbc);
         gbc.gridx = 1;
         JComboBox<String> cmbOdontologo = new JComboBox<>();
-        for (Odontologo o : db.getOdontologos().values()) {
+        for (Odontologo o : db.getInstantaneaOdontologos()) {
             cmbOdontologo.addItem(o.getId() + " - " + o.getNombre());
         }
         dialogo.add(cmbOdontologo, gbc);
@@ -333,28 +385,34 @@ public class CitaView extends JPanel {
                     monto = 0.0;
                 }
 
-                // CREAR CITA CON MONTO
-                if (controller.crearCitaConMonto(idPaciente, idOdontologo, fecha, hora, motivo, monto)) {
-                    JOptionPane.showMessageDialog(dialogo,
-                            String.format(
-                                    "Cita creada exitosamente\n\n"
-                                    + "Factura generada automáticamente\n"
-                                    + "Monto: $%.2f",
-                                    monto
-                            ),
-                            "Éxito",
-                            JOptionPane.INFORMATION_MESSAGE);
-                    cargarDatos();
-                    dialogo.dispose();
-                } else {
-                    JOptionPane.showMessageDialog(dialogo,
-                            "No se pudo crear la cita.\nPosibles razones:\n"
-                            + "• El odontólogo ya tiene una cita a esa hora\n"
-                            + "• La fecha es pasada\n"
-                            + "• Datos inválidos",
-                            "Error",
-                            JOptionPane.ERROR_MESSAGE);
-                }
+                // CREAR CITA CON MONTO (en segundo plano)
+                double montoCita = monto;
+                TareaSegundoPlano.ejecutar(dialogo,
+                    () -> controller.crearCitaConMonto(idPaciente, idOdontologo, fecha, hora, motivo, montoCita),
+                    exito -> {
+                        if (exito) {
+                            JOptionPane.showMessageDialog(dialogo,
+                                    String.format(
+                                            "Cita creada exitosamente\n\n"
+                                            + "Factura generada automáticamente\n"
+                                            + "Monto: $%.2f",
+                                            montoCita
+                                    ),
+                                    "Éxito",
+                                    JOptionPane.INFORMATION_MESSAGE);
+                            cargarDatos();
+                            dialogo.dispose();
+                        } else {
+                            JOptionPane.showMessageDialog(dialogo,
+                                    "No se pudo crear la cita.\nPosibles razones:\n"
+                                    + "• El odontólogo ya tiene una cita a esa hora\n"
+                                    + "• La fecha es pasada\n"
+                                    + "• Datos inválidos",
+                                    "Error",
+                                    JOptionPane.ERROR_MESSAGE);
+                        }
+                    },
+                    btnGuardar);
             } catch (java.time.format.DateTimeParseException ex) {
                 JOptionPane.showMessageDialog(dialogo,
                         "Formato de fecha u hora inválido",
@@ -407,6 +465,9 @@ public class CitaView extends JPanel {
             return;
         }
 
+        // Versión de la cita con que se abre la edición
+        int version = cita.getVersion();
+
         JDialog dialogo = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), "Reprogramar Cita", true);
         dialogo.setLayout(new GridBagLayout());
         GridBagConstraints gbc = new GridBagConstraints();
@@ -438,18 +499,24 @@ public class CitaView extends JPanel {
                 LocalDate nuevaFecha = LocalDate.parse(txtFecha.getText(), DateTimeFormatter.ofPattern("dd/MM/yyyy"));
                 LocalTime nuevaHora = LocalTime.parse(txtHora.getText(), DateTimeFormatter.ofPattern("HH:mm"));
 
-                if (controller.reprogramarCita(idCita, nuevaFecha, nuevaHora)) {
-                    JOptionPane.showMessageDialog(dialogo, "Cita reprogramada exitosamente", "Éxito", JOptionPane.INFORMATION_MESSAGE);
-                    cargarDatos();
-                    dialogo.dispose();
-                } else {
-                    JOptionPane.showMessageDialog(dialogo,
-                            "No se pudo reprogramar la cita.\nPosibles razones:\n"
-                            + "• El odontólogo ya tiene una cita a esa hora\n"
-                            + "• La nueva fecha es pasada\n"
-                            + "• El horario no está disponible",
-                            "Error", JOptionPane.ERROR_MESSAGE);
-                }
+                TareaSegundoPlano.ejecutar(dialogo,
+                    () -> controller.reprogramarCita(idCita, nuevaFecha, nuevaHora, version),
+                    exito -> {
+                        if (exito) {
+                            JOptionPane.showMessageDialog(dialogo, "Cita reprogramada exitosamente", "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                            cargarDatos();
+                            dialogo.dispose();
+                        } else {
+                            JOptionPane.showMessageDialog(dialogo,
+                                    "No se pudo reprogramar la cita.\nPosibles razones:\n"
+                                    + "• El odontólogo ya tiene una cita a esa hora\n"
+                                    + "• La nueva fecha es pasada\n"
+                                    + "• El horario no está disponible\n"
+                                    + "• Otro usuario modificó la cita mientras la editaba",
+                                    "Error", JOptionPane.ERROR_MESSAGE);
+                        }
+                    },
+                    btnGuardar);
             } catch (DateTimeParseException ex) {
                 JOptionPane.showMessageDialog(dialogo, "Formato de fecha u hora inválido", "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -503,18 +570,23 @@ public class CitaView extends JPanel {
         }
 
         // Intentar confirmar
-        if (controller.confirmarCita(idCita)) {
-            JOptionPane.showMessageDialog(this,
-                    "Cita confirmada exitosamente.\n"
-                    ,
-                    "Éxito", JOptionPane.INFORMATION_MESSAGE);
-            cargarDatos();
-        } else {
-            JOptionPane.showMessageDialog(this,
-                    "No se pudo confirmar la cita.\n"
-                    + "Estado actual: " + cita.getEstado(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        TareaSegundoPlano.ejecutar(this,
+            () -> controller.confirmarCita(idCita),
+            exito -> {
+                if (exito) {
+                    JOptionPane.showMessageDialog(this,
+                            "Cita confirmada exitosamente.\n"
+                            ,
+                            "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                    cargarDatos();
+                } else {
+                    JOptionPane.showMessageDialog(this,
+                            "No se pudo confirmar la cita.\n"
+                            + "Estado actual: " + cita.getEstado(),
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            },
+            btnConfirmar);
     }
 
     private void cancelarCita() {
@@ -561,15 +633,20 @@ public class CitaView extends JPanel {
                 JOptionPane.QUESTION_MESSAGE);
 
         if (confirmacion == JOptionPane.YES_OPTION) {
-            if (controller.cancelarCita(idCita)) {
-                JOptionPane.showMessageDialog(this,
-                        "Cita cancelada exitosamente.\n"
-                        + "El horario ahora está disponible nuevamente.",
-                        "Éxito", JOptionPane.INFORMATION_MESSAGE);
-                cargarDatos();
-            } else {
-                JOptionPane.showMessageDialog(this, "No se pudo cancelar la cita", "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            TareaSegundoPlano.ejecutar(this,
+                () -> controller.cancelarCita(idCita),
+                exito -> {
+                    if (exito) {
+                        JOptionPane.showMessageDialog(this,
+                                "Cita cancelada exitosamente.\n"
+                                + "El horario ahora está disponible nuevamente.",
+                                "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                        cargarDatos();
+                    } else {
+                        JOptionPane.showMessageDialog(this, "No se pudo cancelar la cita", "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                },
+                btnCancelar);
         }
     }
 
@@ -658,30 +735,35 @@ public class CitaView extends JPanel {
         if (opcion == 0 && confirmCheck.isSelected()) {
             try {
                 // Usar el método de eliminación completa
-                if (controller.eliminarCitaCompletamente(idCita)) {
-                    JOptionPane.showMessageDialog(this,
-                            String.format(
-                                    " ELIMINACIÓN EXITOSA\n\n"
-                                    + "Cita #%d eliminada completamente:\n"
-                                    + "• Cita removida de la base de datos\n"
-                                    + "• Factura eliminada (si existía)\n"
-                                    + "• Horario liberado\n"
-                                    + "• Cambios guardados en disco\n\n"
-                                    + "La tabla se actualizará automáticamente",
-                                    idCita
-                            ),
-                            "Eliminación Exitosa",
-                            JOptionPane.INFORMATION_MESSAGE);
-
-                    // Recargar datos frescos desde disco
-                    cargarDatos();
-                } else {
-                    JOptionPane.showMessageDialog(this,
-                            " No se pudo eliminar la cita.\n"
-                            + "Puede que ya haya sido eliminada o haya un error en el sistema.",
-                            "Error de Eliminación",
-                            JOptionPane.ERROR_MESSAGE);
-                }
+                TareaSegundoPlano.ejecutar(this,
+                    () -> controller.eliminarCitaCompletamente(idCita),
+                    exito -> {
+                        if (exito) {
+                            JOptionPane.showMessageDialog(this,
+                                    String.format(
+                                            " ELIMINACIÓN EXITOSA\n\n"
+                                            + "Cita #%d eliminada completamente:\n"
+                                            + "• Cita removida de la base de datos\n"
+                                            + "• Factura eliminada (si existía)\n"
+                                            + "• Horario liberado\n"
+                                            + "• Cambios guardados en disco\n\n"
+                                            + "La tabla se actualizará automáticamente",
+                                            idCita
+                                    ),
+                                    "Eliminación Exitosa",
+                                    JOptionPane.INFORMATION_MESSAGE);
+
+                            // Recargar datos frescos desde disco
+                            cargarDatos();
+                        } else {
+                            JOptionPane.showMessageDialog(this,
+                                    " No se pudo eliminar la cita.\n"
+                                    + "Puede que ya haya sido eliminada o haya un error en el sistema.",
+                                    "Error de Eliminación",
+                                    JOptionPane.ERROR_MESSAGE);
+                        }
+                    },
+                    btnEliminar);
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this,
                         " Error inesperado al eliminar:\n" + ex.getMessage(),
@@ -764,26 +846,30 @@ public class CitaView extends JPanel {
                 }
 
                 // Actualizar monto en la factura
-                if (controller.actualizarMontoFactura(idCita, nuevoMonto)) {
-                    JOptionPane.showMessageDialog(this,
-                            String.format(
-                                    "Monto actualizado exitosamente\n\n"
-                                    + "Monto anterior: $%.2f\n"
-                                    + "Monto nuevo: $%.2f\n\n"
-                                    + "Factura guardada automáticamente",
-                                    Double.parseDouble(montoActual),
-                                    nuevoMonto
-                            ),
-                            "Éxito",
-                            JOptionPane.INFORMATION_MESSAGE);
-                    cargarDatos(); // Actualizar tabla
-                } else {
-                    JOptionPane.showMessageDialog(this,
-                            "No se pudo actualizar el monto.\n"
-                            + "Verifique que la factura exista.",
-                            "Error",
-                            JOptionPane.ERROR_MESSAGE);
-                }
+                TareaSegundoPlano.ejecutar(this,
+                    () -> controller.actualizarMontoFactura(idCita, nuevoMonto),
+                    exito -> {
+                        if (exito) {
+                            JOptionPane.showMessageDialog(this,
+                                    String.format(
+                                            "Monto actualizado exitosamente\n\n"
+                                            + "Monto anterior: $%.2f\n"
+                                            + "Monto nuevo: $%.2f\n\n"
+                                            + "Factura guardada automáticamente",
+                                            Double.parseDouble(montoActual),
+                                            nuevoMonto
+                                    ),
+                                    "Éxito",
+                                    JOptionPane.INFORMATION_MESSAGE);
+                            cargarDatos(); // Actualizar tabla
+                        } else {
+                            JOptionPane.showMessageDialog(this,
+                                    "No se pudo actualizar el monto.\n"
+                                    + "Verifique que la factura exista.",
+                                    "Error",
+                                    JOptionPane.ERROR_MESSAGE);
+                        }
+                    });
 
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(this,
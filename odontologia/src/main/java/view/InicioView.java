@@ -7,6 +7,10 @@ public class InicioView extends JFrame {
 
     private JButton btnIniciar;
     private JLabel lblImagen;
+    private JProgressBar barraCarga;
+    private JLabel lblEstadoCarga;
+    // Último avance mostrado (solo en el EDT): los avisos de los hilos de carga pueden llegar desordenados
+    private int completadosMostrados = 0;
 
     /*
     Crea el título
@@ -46,10 +50,62 @@ public class InicioView extends JFrame {
         btnIniciar.setFont(new Font("Segoe UI", Font.BOLD, 16));
         btnIniciar.setBorder(BorderFactory.createEmptyBorder());
 
+        // ===== PROGRESO DE CARGA =====
+        // El botón se habilita cuando terminan de cargarse los datos
+        btnIniciar.setEnabled(false);
+
+        barraCarga = new JProgressBar(0, 100);
+        barraCarga.setBounds(320, 410, 260, 14);
+        barraCarga.setStringPainted(false);
+
+        lblEstadoCarga = new JLabel("Cargando datos...", SwingConstants.CENTER);
+        lblEstadoCarga.setBounds(250, 428, 400, 20);
+        lblEstadoCarga.setForeground(Color.WHITE);
+        lblEstadoCarga.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+
         lblImagen.add(btnIniciar);
+        lblImagen.add(barraCarga);
+        lblImagen.add(lblEstadoCarga);
         add(lblImagen);
     }
 
+    // ========== PROGRESO DE CARGA ==========
+
+    /**
+     * Muestra el avance de la carga; puede llamarse desde cualquier hilo
+     * Un aviso con menos pasos completados que el ya mostrado se ignora, para
+     * que la barra no retroceda.
+     */
+    public void mostrarProgreso(int completados, int total, String descripcion) {
+        SwingUtilities.invokeLater(() -> {
+            if (completados < completadosMostrados) {
+                return;
+            }
+            completadosMostrados = completados;
+            barraCarga.setValue(total > 0 ? completados * 100 / total : 0);
+            lblEstadoCarga.setText("Cargando datos... " + descripcion + " (" + completados + "/" + total + ")");
+        });
+    }
+
+    /**
+     * Habilita el botón de inicio al terminar la carga (llamar en el EDT)
+     */
+    public void cargaTerminada() {
+        barraCarga.setValue(100);
+        lblEstadoCarga.setText("Datos cargados");
+        btnIniciar.setEnabled(true);
+    }
+
+    /**
+     * Informa que la carga falló (llamar en el EDT)
+     */
+    public void cargaFallida(Throwable error) {
+        lblEstadoCarga.setText("Error al cargar los datos");
+        JOptionPane.showMessageDialog(this,
+                "No se pudieron cargar los datos: " + error.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
     public JButton getBtnIniciar() {
         return btnIniciar;
     }
@@ -30,6 +30,8 @@ public class OdontologiaView extends JPanel {
     
     // Componentes principales
     private JButton btnAgregarNuevoOdontologo;
+    private JButton btnEliminar;
+    private JButton btnRefrescar;
     private JTable tablaOdontologos;
     private DefaultTableModel modeloTabla;
     private JLabel lblTotalOdontologos;
@@ -123,7 +125,7 @@ public class OdontologiaView extends JPanel {
         panelAccion.add(btnAgregarNuevoOdontologo);
         
         // Botón secundario: Eliminar
-        JButton btnEliminar = new JButton("Eliminar");
+        btnEliminar = new JButton("Eliminar");
         btnEliminar.setFont(new Font("Segoe UI", Font.BOLD, 11));
         btnEliminar.setBackground(new Color(231, 76, 60));
         btnEliminar.setForeground(Color.WHITE);
@@ -134,7 +136,7 @@ public class OdontologiaView extends JPanel {
         btnEliminar.addActionListener(e -> eliminarOdontologo());
         
         // Botón secundario: Refrescar
-        JButton btnRefrescar = new JButton("Refrescar Lista");
+        btnRefrescar = new JButton("Refrescar Lista");
         btnRefrescar.setFont(new Font("Segoe UI", Font.PLAIN, 11));
         btnRefrescar.setBackground(new Color(52, 152, 219));
         btnRefrescar.setForeground(Color.WHITE);
@@ -142,13 +144,16 @@ public class OdontologiaView extends JPanel {
         btnRefrescar.setBorderPainted(false);
         btnRefrescar.setCursor(new Cursor(Cursor.HAND_CURSOR));
         btnRefrescar.setPreferredSize(new Dimension(140, 35));
-        btnRefrescar.addActionListener(e -> {
-            cargarOdontologos();
-            JOptionPane.showMessageDialog(this,
-                "Lista de odontólogos actualizada correctamente",
-                "Lista Actualizada",
-                JOptionPane.INFORMATION_MESSAGE);
-        });
+        btnRefrescar.addActionListener(e -> TareaSegundoPlano.ejecutar(this,
+            controller::obtenerTodosLosOdontologos,
+            odontologos -> {
+                mostrarOdontologos(odontologos);
+                JOptionPane.showMessageDialog(this,
+                    "Lista de odontólogos actualizada correctamente",
+                    "Lista Actualizada",
+                    JOptionPane.INFORMATION_MESSAGE);
+            },
+            btnRefrescar));
         
         panelAccion.add(btnRefrescar);
         panelAccion.add(btnEliminar);
@@ -220,11 +225,17 @@ public class OdontologiaView extends JPanel {
                     int filaSeleccionada = tablaOdontologos.getSelectedRow();
                     if (filaSeleccionada != -1) {
                         int id = (int) modeloTabla.getValueAt(filaSeleccionada, 0);
-                        String nombre = (String) modeloTabla.getValueAt(filaSeleccionada, 1);
-                        String telefono = String.valueOf(modeloTabla.getValueAt(filaSeleccionada, 2));
-                        String numeroColegiado = String.valueOf(modeloTabla.getValueAt(filaSeleccionada, 3));
+                        // Datos actuales (no los de la tabla) junto con su versión
+                        Odontologo odontologo = controller.obtenerOdontologoPorId(id);
+                        if (odontologo == null) {
+                            cargarOdontologos();
+                            return;
+                        }
                         
-                        mostrarDialogoEditarOdontologo(id, nombre, telefono, numeroColegiado);
+                        mostrarDialogoEditarOdontologo(id, odontologo.getNombre(),
+                                String.valueOf(odontologo.getTelefono()),
+                                String.valueOf(odontologo.getNumeroColegiado()),
+                                odontologo.getVersion());
                     }
                 }
             }
@@ -414,27 +425,30 @@ public class OdontologiaView extends JPanel {
                 }
                 
                 // Intentar agregar el odontólogo
-                boolean exito = controller.agregarOdontologoNuevo(nombre, telefono, numeroColegiado);
-                
-                if (exito) {
-                    JOptionPane.showMessageDialog(dialogo,
-                        "Odontólogo registrado exitosamente\n\n" +
-                        "Nombre: " + nombre + "\n" +
-                        "Teléfono: " + telefono + "\n" +
-                        "Número de Colegiado: " + numeroColegiado,
-                        "Registro Exitoso",
-                        JOptionPane.INFORMATION_MESSAGE);
+                TareaSegundoPlano.ejecutar(dialogo,
+                    () -> controller.agregarOdontologoNuevo(nombre, telefono, numeroColegiado),
+                    exito -> {
+                        if (exito) {
+                            JOptionPane.showMessageDialog(dialogo,
+                                "Odontólogo registrado exitosamente\n\n" +
+                                "Nombre: " + nombre + "\n" +
+                                "Teléfono: " + telefono + "\n" +
+                                "Número de Colegiado: " + numeroColegiado,
+                                "Registro Exitoso",
+                                JOptionPane.INFORMATION_MESSAGE);
                     
-                    // Actualizar tabla y cerrar diálogo
-                    cargarOdontologos();
-                    dialogo.dispose();
-                } else {
-                    JOptionPane.showMessageDialog(dialogo,
-                        "Error: El número de colegiado " + numeroColegiado + " ya está registrado.\n" +
-                        "Por favor, verifique el número e intente nuevamente.",
-                        "Error de Duplicación",
-                        JOptionPane.ERROR_MESSAGE);
-                }
+                            // Actualizar tabla y cerrar diálogo
+                            cargarOdontologos();
+                            dialogo.dispose();
+                        } else {
+                            JOptionPane.showMessageDialog(dialogo,
+                                "Error: El número de colegiado " + numeroColegiado + " ya está registrado.\n" +
+                                "Por favor, verifique el número e intente nuevamente.",
+                                "Error de Duplicación",
+                                JOptionPane.ERROR_MESSAGE);
+                        }
+                    },
+                    btnGuardar);
                 
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(dialogo,
@@ -466,7 +480,7 @@ public class OdontologiaView extends JPanel {
      * Muestra el diálogo para editar un odontólogo existente
      */
     private void mostrarDialogoEditarOdontologo(int id, String nombreActual, 
-                                                String telefonoActual, String colegiadoActual) {
+                                                String telefonoActual, String colegiadoActual, int version) {
         JDialog dialogo = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), 
                                       "Editar Odontólogo", true);
         dialogo.setSize(550, 500);
@@ -610,28 +624,39 @@ public class OdontologiaView extends JPanel {
                 }
                 
                 // Intentar actualizar el odontólogo
-                boolean exito = controller.actualizarOdontologo(id, nombre, telefono, numeroColegiadoStr);
-                
-                if (exito) {
-                    JOptionPane.showMessageDialog(dialogo,
-                        "Odontólogo actualizado exitosamente\n\n" +
-                        "ID: " + id + "\n" +
-                        "Nombre: " + nombre + "\n" +
-                        "Teléfono: " + telefono + "\n" +
-                        "Número de Colegiado: " + numeroColegiado,
-                        "Actualización Exitosa",
-                        JOptionPane.INFORMATION_MESSAGE);
+                TareaSegundoPlano.ejecutar(dialogo,
+                    () -> controller.actualizarOdontologo(id, nombre, telefono, numeroColegiadoStr, version),
+                    exito -> {
+                        if (exito) {
+                            JOptionPane.showMessageDialog(dialogo,
+                                "Odontólogo actualizado exitosamente\n\n" +
+                                "ID: " + id + "\n" +
+                                "Nombre: " + nombre + "\n" +
+                                "Teléfono: " + telefono + "\n" +
+                                "Número de Colegiado: " + numeroColegiado,
+                                "Actualización Exitosa",
+                                JOptionPane.INFORMATION_MESSAGE);
                     
-                    // Actualizar tabla y cerrar diálogo
-                    cargarOdontologos();
-                    dialogo.dispose();
-                } else {
-                    JOptionPane.showMessageDialog(dialogo,
-                        "Error: El número de colegiado " + numeroColegiado + " ya está en uso por otro odontólogo.\n" +
-                        "Por favor, verifique el número e intente nuevamente.",
-                        "Error de Duplicación",
-                        JOptionPane.ERROR_MESSAGE);
-                }
+                            // Actualizar tabla y cerrar diálogo
+                            cargarOdontologos();
+                            dialogo.dispose();
+                        } else if (fueModificado(id, version)) {
+                            JOptionPane.showMessageDialog(dialogo,
+                                "Otro usuario modificó este odontólogo mientras lo editaba.\n" +
+                                "Vuelva a abrirlo para ver los datos actuales.",
+                                "Error de Concurrencia",
+                                JOptionPane.ERROR_MESSAGE);
+                            cargarOdontologos();
+                            dialogo.dispose();
+                        } else {
+                            JOptionPane.showMessageDialog(dialogo,
+                                "Error: El número de colegiado " + numeroColegiado + " ya está en uso por otro odontólogo.\n" +
+                                "Por favor, verifique el número e intente nuevamente.",
+                                "Error de Duplicación",
+                                JOptionPane.ERROR_MESSAGE);
+                        }
+                    },
+                    btnActualizar);
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(dialogo,
                     "️ El teléfono y el número de colegiado deben ser números válidos",
@@ -685,38 +710,55 @@ public class OdontologiaView extends JPanel {
             JOptionPane.WARNING_MESSAGE);
         
         if (confirmacion == JOptionPane.YES_OPTION) {
-            boolean exito = controller.eliminarOdontologo(id);
-            
-            if (exito) {
-                JOptionPane.showMessageDialog(this,
-                    " Odontólogo eliminado exitosamente\n\n" +
-                    "ID: " + id + "\n" +
-                    "Nombre: " + nombre,
-                    "Eliminación Exitosa",
-                    JOptionPane.INFORMATION_MESSAGE);
+            TareaSegundoPlano.ejecutar(this,
+                () -> controller.eliminarOdontologo(id),
+                exito -> {
+                    if (exito) {
+                        JOptionPane.showMessageDialog(this,
+                            " Odontólogo eliminado exitosamente\n\n" +
+                            "ID: " + id + "\n" +
+                            "Nombre: " + nombre,
+                            "Eliminación Exitosa",
+                            JOptionPane.INFORMATION_MESSAGE);
                 
-                cargarOdontologos();
-            } else {
-                JOptionPane.showMessageDialog(this,
-                    " No se pudo eliminar el odontólogo.\n\n" +
-                    "Posibles causas:\n" +
-                    "• El odontólogo tiene citas asignadas\n" +
-                    "• El odontólogo no existe en el sistema",
-                    "Error de Eliminación",
-                    JOptionPane.ERROR_MESSAGE);
-            }
+                        cargarOdontologos();
+                    } else {
+                        JOptionPane.showMessageDialog(this,
+                            " No se pudo eliminar el odontólogo.\n\n" +
+                            "Posibles causas:\n" +
+                            "• El odontólogo tiene citas asignadas\n" +
+                            "• El odontólogo no existe en el sistema",
+                            "Error de Eliminación",
+                            JOptionPane.ERROR_MESSAGE);
+                    }
+                },
+                btnEliminar);
         }
     }
     
+    /**
+     * @return true si el odontólogo se eliminó o cambió desde la versión indicada
+     */
+    private boolean fueModificado(int id, int version) {
+        Odontologo odontologo = controller.obtenerOdontologoPorId(id);
+        return odontologo == null || odontologo.getVersion() != version;
+    }
+    
     /**
      * Carga todos los odontólogos desde la base de datos en la tabla
+     * La lectura corre en segundo plano; la tabla se llena al terminar.
      */
     private void cargarOdontologos() {
+        TareaSegundoPlano.ejecutar(this, controller::obtenerTodosLosOdontologos, this::mostrarOdontologos,
+            btnRefrescar);
+    }
+    
+    /**
+     * Muestra los odontólogos en la tabla (en el hilo de eventos)
+     */
+    private void mostrarOdontologos(List<Odontologo> odontologos) {
         modeloTabla.setRowCount(0); // Limpiar tabla
         
-        // Obtener odontólogos desde el controlador
-        List<Odontologo> odontologos = controller.obtenerTodosLosOdontologos();
-        
         // Agregar cada odontólogo a la tabla
         for (Odontologo o : odontologos) {
             Object[] fila = {
@@ -45,6 +45,8 @@ public class PacienteView extends JPanel {
     
     // Componentes principales
     private JButton btnAgregarNuevoPaciente;
+    private JButton btnEliminar;
+    private JButton btnRefrescar;
     private JTable tablaPacientes;
     private DefaultTableModel modeloTabla;
     private JLabel lblTotalPacientes;
@@ -139,7 +141,7 @@ public class PacienteView extends JPanel {
         
         panelAccion.add(btnAgregarNuevoPaciente);
         
-                JButton btnEliminar = new JButton("Eliminar");
+                btnEliminar = new JButton("Eliminar");
         btnEliminar.setFont(new Font("Arial", Font.BOLD, 11));
         btnEliminar.setBackground(new Color(231, 76, 60));
         btnEliminar.setForeground(Color.WHITE);
@@ -148,7 +150,7 @@ public class PacienteView extends JPanel {
         btnEliminar.addActionListener(e -> eliminarPaciente());
         
         // Botón secundario: Refrescar
-        JButton btnRefrescar = new JButton("Refrescar Lista");
+        btnRefrescar = new JButton("Refrescar Lista");
         btnRefrescar.setFont(new Font("Segoe UI", Font.PLAIN, 10));
         btnRefrescar.setBackground(new Color(52, 152, 219));
         btnRefrescar.setForeground(Color.WHITE);
@@ -156,13 +158,16 @@ public class PacienteView extends JPanel {
         btnRefrescar.setBorderPainted(false);
         btnRefrescar.setCursor(new Cursor(Cursor.HAND_CURSOR));
         btnRefrescar.setPreferredSize(new Dimension(120, 30));
-        btnRefrescar.addActionListener(e -> {
-            cargarPacientes();
-            JOptionPane.showMessageDialog(this,
-                "Lista de pacientes actualizada",
-                "Lista Actualizada",
-                JOptionPane.INFORMATION_MESSAGE);
-        });
+        btnRefrescar.addActionListener(e -> TareaSegundoPlano.ejecutar(this,
+            controller::obtenerTodosLosPacientes,
+            pacientes -> {
+                mostrarPacientes(pacientes);
+                JOptionPane.showMessageDialog(this,
+                    "Lista de pacientes actualizada",
+                    "Lista Actualizada",
+                    JOptionPane.INFORMATION_MESSAGE);
+            },
+            btnRefrescar));
         panelAccion.add(btnRefrescar);
         panelAccion.add(btnEliminar);
         
@@ -398,11 +403,8 @@ public class PacienteView extends JPanel {
         btnGuardar.setCursor(new Cursor(Cursor.HAND_CURSOR));
         btnGuardar.setPreferredSize(new Dimension(200, 45));
         
-        btnGuardar.addActionListener(e -> {
-            if (validarYGuardarPaciente(txtNombre, txtTelefono, txtExpediente, dialogo)) {
-                dialogo.dispose();
-            }
-        });
+        btnGuardar.addActionListener(e -> 
+            validarYGuardarPaciente(txtNombre, txtTelefono, txtExpediente, dialogo, btnGuardar));
         
         // Botón: Cancelar
         JButton btnCancelar = new JButton("Cancelar");
@@ -436,28 +438,29 @@ public class PacienteView extends JPanel {
     
     /**
      * Valida los datos del formulario y guarda el paciente en la base de datos
+     * El guardado corre en segundo plano; si tiene éxito se cierra el diálogo.
      * 
      * @param txtNombre Campo de texto con el nombre
      * @param txtTelefono Campo de texto con el teléfono
      * @param txtExpediente Campo de texto con el número de expediente
      * @param dialogo Diálogo padre para cerrar si es exitoso
-     * @return true si se guardó exitosamente, false si hubo errores
+     * @param btnGuardar Botón que se deshabilita mientras se guarda
      */
-    private boolean validarYGuardarPaciente(JTextField txtNombre, JTextField txtTelefono, 
-                                            JTextField txtExpediente, JDialog dialogo) {
+    private void validarYGuardarPaciente(JTextField txtNombre, JTextField txtTelefono, 
+                                         JTextField txtExpediente, JDialog dialogo, JButton btnGuardar) {
         
         // Validar campo: Nombre
         String nombre = txtNombre.getText().trim();
         if (nombre.isEmpty()) {
             mostrarError("El nombre es obligatorio", 
                 "Por favor ingrese el nombre completo del paciente", txtNombre);
-            return false;
+            return;
         }
         
         if (nombre.length() < 3) {
             mostrarError("Nombre demasiado corto", 
                 "El nombre debe tener al menos 3 caracteres", txtNombre);
-            return false;
+            return;
         }
         
         // Validar campo: Teléfono
@@ -465,7 +468,7 @@ public class PacienteView extends JPanel {
         if (telefonoStr.isEmpty()) {
             mostrarError("El Telefono es obligatorio", 
                 "Por favor ingrese el numero de telefono", txtTelefono);
-            return false;
+            return;
         }
         
         int telefono;
@@ -477,7 +480,7 @@ public class PacienteView extends JPanel {
         } catch (NumberFormatException e) {
             mostrarError("Telefono Invalido", 
                 "El telefono debe ser un numero positivo valido\nEjemplo: 88881234", txtTelefono);
-            return false;
+            return;
         }
         
         // Validar campo: Número de Expediente
@@ -485,13 +488,13 @@ public class PacienteView extends JPanel {
         if (numeroExpediente.isEmpty()) {
             mostrarError("El numero de expediente es obligatorio", 
                 "Por favor ingrese un numero de expediente unico", txtExpediente);
-            return false;
+            return;
         }
         
         if (numeroExpediente.length() < 3) {
             mostrarError("Expediente demasiado corto", 
                 "El numero de expediente debe tener al menos 3 caracteres", txtExpediente);
-            return false;
+            return;
         }
         
         
@@ -501,36 +504,37 @@ public class PacienteView extends JPanel {
         // 2. Generación automática de ID
         // 3. Inserción en Database
         // 4. Persistencia en JSON mediante DataPersistence
-        boolean exito = controller.agregarPaciente(nombre, telefono, numeroExpediente);
-        
-        if (exito) {
-            // Actualizar interfaz
-            cargarPacientes();
-            
-            // Mostrar confirmación
-            JOptionPane.showMessageDialog(dialogo,
-                "Paciente registrado exitosamente!\n\n" +
-                "Datos guardados:\n" +
-                "   • Nombre: " + nombre + "\n" +
-                "   • Teléfono: " + telefono + "\n" +
-                "   • Expediente: " + numeroExpediente + "\n\n" +
-                "Los datos se han guardado en la base de datos\n" +
-                "   y están disponibles para crear citas.",
-                "Registro Exitoso",
-                JOptionPane.INFORMATION_MESSAGE);
-            
-            return true;
-            
-        } else {
-            // Error: Expediente duplicado
-            
-            mostrarError("Expediente duplicado", 
-                "Ya existe un paciente con el numero de expediente:\n" + 
-                numeroExpediente + "\n\nPor favor use un expediente diferente.", 
-                txtExpediente);
-            
-            return false;
-        }
+        TareaSegundoPlano.ejecutar(dialogo,
+            () -> controller.agregarPaciente(nombre, telefono, numeroExpediente),
+            exito -> {
+                if (exito) {
+                    // Actualizar interfaz
+                    cargarPacientes();
+                    
+                    // Mostrar confirmación
+                    JOptionPane.showMessageDialog(dialogo,
+                        "Paciente registrado exitosamente!\n\n" +
+                        "Datos guardados:\n" +
+                        "   • Nombre: " + nombre + "\n" +
+                        "   • Teléfono: " + telefono + "\n" +
+                        "   • Expediente: " + numeroExpediente + "\n\n" +
+                        "Los datos se han guardado en la base de datos\n" +
+                        "   y están disponibles para crear citas.",
+                        "Registro Exitoso",
+                        JOptionPane.INFORMATION_MESSAGE);
+                    
+                    dialogo.dispose();
+                    
+                } else {
+                    // Error: Expediente duplicado
+                    
+                    mostrarError("Expediente duplicado", 
+                        "Ya existe un paciente con el numero de expediente:\n" + 
+                        numeroExpediente + "\n\nPor favor use un expediente diferente.", 
+                        txtExpediente);
+                }
+            },
+            btnGuardar);
     }
     
     /**
@@ -571,20 +575,23 @@ public class PacienteView extends JPanel {
             JOptionPane.QUESTION_MESSAGE);
         
         if (confirmacion == JOptionPane.YES_OPTION) {
-            boolean exito = controller.eliminarPaciente(id);
-            
-            if (exito) {
-                JOptionPane.showMessageDialog(this,
-                    "Paciente eliminado",
-                    "Éxito",
-                    JOptionPane.INFORMATION_MESSAGE);
-                cargarPacientes();
-            } else {
-                JOptionPane.showMessageDialog(this,
-                    "No se puede eliminar. El paciente tiene citas registradas",
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
-            }
+            TareaSegundoPlano.ejecutar(this,
+                () -> controller.eliminarPaciente(id),
+                exito -> {
+                    if (exito) {
+                        JOptionPane.showMessageDialog(this,
+                            "Paciente eliminado",
+                            "Éxito",
+                            JOptionPane.INFORMATION_MESSAGE);
+                        cargarPacientes();
+                    } else {
+                        JOptionPane.showMessageDialog(this,
+                            "No se puede eliminar. El paciente tiene citas registradas",
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                    }
+                },
+                btnEliminar);
         }
     }
 
@@ -603,21 +610,31 @@ public class PacienteView extends JPanel {
             return;
         }
         
-        // Obtener datos del paciente
+        // Obtener datos del paciente (los actuales, no los de la tabla, junto con su versión)
         int id = (int) modeloTabla.getValueAt(filaSeleccionada, 0);
-        String nombreActual = (String) modeloTabla.getValueAt(filaSeleccionada, 1);
-        String telefonoActual = modeloTabla.getValueAt(filaSeleccionada, 2).toString();
-        String expedienteActual = (String) modeloTabla.getValueAt(filaSeleccionada, 3);
+        Paciente paciente = controller.obtenerPacientePorId(id);
+        
+        if (paciente == null) {
+            JOptionPane.showMessageDialog(this,
+                "El paciente ya no existe",
+                "Informacion",
+                JOptionPane.INFORMATION_MESSAGE);
+            cargarPacientes();
+            return;
+        }
+        
+        int version = paciente.getVersion();
         
         // Mostrar diálogo de edición
-        mostrarDialogoEditarPaciente(id, nombreActual, telefonoActual, expedienteActual);
+        mostrarDialogoEditarPaciente(id, paciente.getNombre(), String.valueOf(paciente.getTelefono()),
+                paciente.getNumeroExpediente(), version);
     }
     
     /**
      * Muestra el diálogo para editar un paciente existente
      */
     private void mostrarDialogoEditarPaciente(int id, String nombreActual, 
-                                              String telefonoActual, String expedienteActual) {
+                                              String telefonoActual, String expedienteActual, int version) {
         
         JDialog dialogo = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), 
             "Editar Paciente", true);
@@ -726,21 +743,32 @@ public class PacienteView extends JPanel {
             try {
                 int telefono = Integer.parseInt(telefonoStr);
                 
-                boolean exito = controller.actualizarPaciente(id, nombre, telefono, expediente);
-                
-                if (exito) {
-                    JOptionPane.showMessageDialog(dialogo,
-                        "Paciente actualizado",
-                        "Éxito",
-                        JOptionPane.INFORMATION_MESSAGE);
-                    cargarPacientes();
-                    dialogo.dispose();
-                } else {
-                    JOptionPane.showMessageDialog(dialogo,
-                        "Error: El expediente ya esta en uso",
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE);
-                }
+                TareaSegundoPlano.ejecutar(dialogo,
+                    () -> controller.actualizarPaciente(id, nombre, telefono, expediente, version),
+                    exito -> {
+                        if (exito) {
+                            JOptionPane.showMessageDialog(dialogo,
+                                "Paciente actualizado",
+                                "Éxito",
+                                JOptionPane.INFORMATION_MESSAGE);
+                            cargarPacientes();
+                            dialogo.dispose();
+                        } else if (fueModificado(id, version)) {
+                            JOptionPane.showMessageDialog(dialogo,
+                                "Otro usuario modifico este paciente mientras lo editaba.\n" +
+                                "Vuelva a abrirlo para ver los datos actuales.",
+                                "Error",
+                                JOptionPane.ERROR_MESSAGE);
+                            cargarPacientes();
+                            dialogo.dispose();
+                        } else {
+                            JOptionPane.showMessageDialog(dialogo,
+                                "Error: El expediente ya esta en uso",
+                                "Error",
+                                JOptionPane.ERROR_MESSAGE);
+                        }
+                    },
+                    btnActualizar);
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(dialogo,
                     "El telefono debe ser un numero valido",
@@ -768,15 +796,29 @@ public class PacienteView extends JPanel {
         dialogo.setVisible(true);
     }
     
+    /**
+     * @return true si el paciente se eliminó o cambió desde la versión indicada
+     */
+    private boolean fueModificado(int id, int version) {
+        Paciente paciente = controller.obtenerPacientePorId(id);
+        return paciente == null || paciente.getVersion() != version;
+    }
+    
     /**
      * Carga todos los pacientes desde la base de datos en la tabla
+     * La lectura corre en segundo plano; la tabla se llena al terminar.
      */
     private void cargarPacientes() {
-        modeloTabla.setRowCount(0); // Limpiar tabla
-        
-        // Obtener pacientes desde el controlador
         // El controlador llama a Database que recarga desde JSON si es necesario
-        List<Paciente> pacientes = controller.obtenerTodosLosPacientes();
+        TareaSegundoPlano.ejecutar(this, controller::obtenerTodosLosPacientes, this::mostrarPacientes,
+            btnRefrescar);
+    }
+    
+    /**
+     * Muestra los pacientes en la tabla (en el hilo de eventos)
+     */
+    private void mostrarPacientes(List<Paciente> pacientes) {
+        modeloTabla.setRowCount(0); // Limpiar tabla
         
         // Agregar cada paciente a la tabla
         for (Paciente p : pacientes) {
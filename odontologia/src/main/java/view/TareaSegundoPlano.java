@@ -0,0 +1,116 @@
+package view;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Ejecuta operaciones de los controladores fuera del hilo de eventos de Swing
+ * Las llamadas que terminan en disco (guardarDatos, recarga de archivos) corren
+ * en un hilo virtual y el resultado vuelve al hilo de eventos, así la ventana
+ * sigue respondiendo mientras crecen los datos. Mientras la operación está en
+ * curso, los botones indicados quedan deshabilitados (para no repetirla con un
+ * segundo clic) y el cursor muestra que se está trabajando. Si la operación
+ * lanza una excepción se informa con un JOptionPane de error.
+ * Debe invocarse desde el hilo de eventos.
+ */
+public final class TareaSegundoPlano {
+
+    // Operaciones en curso por componente; solo se accede desde el hilo de eventos
+    private static final Map<Component, Espera> enCurso = new WeakHashMap<>();
+
+    /**
+     * Cursor que tenía el componente antes de la primera operación en curso
+     */
+    private static final class Espera {
+        private final Cursor cursorAnterior;
+        private int operaciones;
+
+        private Espera(Cursor cursorAnterior) {
+            this.cursorAnterior = cursorAnterior;
+        }
+    }
+
+    private TareaSegundoPlano() {
+    }
+
+    /**
+     * @param padre componente sobre el que se muestran el cursor de espera y los errores
+     * @param operacion llamada al controlador; corre en segundo plano y no debe tocar la interfaz
+     * @param alTerminar recibe el resultado en el hilo de eventos
+     * @param controles botones que se deshabilitan mientras dura la operación
+     */
+    public static <T> void ejecutar(Component padre, Supplier<T> operacion, Consumer<T> alTerminar,
+                                    JComponent... controles) {
+        // Solo se rehabilitan los que estaban habilitados (otro podría haberlos deshabilitado)
+        boolean[] habilitados = new boolean[controles.length];
+        for (int i = 0; i < controles.length; i++) {
+            habilitados[i] = controles[i].isEnabled();
+            controles[i].setEnabled(false);
+        }
+        iniciarEspera(padre);
+
+        Thread.ofVirtual().name("tarea-interfaz").start(() -> {
+            T resultado = null;
+            Throwable error = null;
+            try {
+                resultado = operacion.get();
+            } catch (Throwable e) {
+                // También los Error (por ejemplo falta de memoria): los controles deben rehabilitarse
+                System.err.println("Error en operación en segundo plano: " + e);
+                error = e;
+            }
+
+            T valor = resultado;
+            Throwable fallo = error;
+            SwingUtilities.invokeLater(() -> {
+                for (int i = 0; i < controles.length; i++) {
+                    if (habilitados[i]) {
+                        controles[i].setEnabled(true);
+                    }
+                }
+                terminarEspera(padre);
+
+                if (fallo != null) {
+                    JOptionPane.showMessageDialog(padre,
+                            "No se pudo completar la operación:\n"
+                                    + (fallo.getMessage() != null ? fallo.getMessage() : fallo),
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                } else {
+                    alTerminar.accept(valor);
+                }
+            });
+        });
+    }
+
+    // ========== CURSOR DE ESPERA ==========
+
+    /**
+     * Muestra el cursor de espera; si ya hay otra operación en curso sobre el
+     * componente solo se cuenta (el cursor original ya está guardado)
+     */
+    private static void iniciarEspera(Component padre) {
+        Espera espera = enCurso.get(padre);
+        if (espera == null) {
+            espera = new Espera(padre.isCursorSet() ? padre.getCursor() : null);
+            enCurso.put(padre, espera);
+            padre.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        }
+        espera.operaciones++;
+    }
+
+    /**
+     * Restaura el cursor original cuando termina la última operación en curso
+     */
+    private static void terminarEspera(Component padre) {
+        Espera espera = enCurso.get(padre);
+        if (espera != null && --espera.operaciones == 0) {
+            enCurso.remove(padre);
+            padre.setCursor(espera.cursorAnterior);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Copia de los datos de prueba que genera Database, para que cada prueba
+ * empiece con los mismos archivos y el mismo contenido en memoria aunque la
+ * anterior haya modificado data/ (todas comparten la instancia única).
+ */
+public final class DatosPrueba {
+
+    private static final Path DATOS = Paths.get("data");
+    private static Path respaldo;
+
+    private DatosPrueba() {
+    }
+
+    /**
+     * Crea la base de datos (si hace falta) y guarda una copia de sus archivos
+     * (llamar en @BeforeAll)
+     */
+    public static Database respaldar() throws IOException {
+        Database db = Database.getInstance();
+        db.esperarGuardado();
+        respaldo = Files.createTempDirectory("datos-prueba");
+        copiar(DATOS, respaldo);
+        return db;
+    }
+
+    /**
+     * Devuelve data/ a la copia y vuelve a cargarla en memoria
+     * (llamar en @BeforeEach y @AfterEach)
+     */
+    public static void restaurar() throws IOException {
+        Database db = Database.getInstance();
+        db.esperarGuardado();
+        borrar(DATOS);
+        copiar(respaldo, DATOS);
+        db.recargarDesdeArchivos();
+    }
+
+    /**
+     * Borra la copia (llamar en @AfterAll, después de la última restauración)
+     */
+    public static void descartar() throws IOException {
+        borrar(respaldo);
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private static void copiar(Path origen, Path destino) throws IOException {
+        try (Stream<Path> archivos = Files.walk(origen)) {
+            for (Path archivo : archivos.toList()) {
+                Path copia = destino.resolve(origen.relativize(archivo).toString());
+                if (Files.isDirectory(archivo)) {
+                    Files.createDirectories(copia);
+                } else {
+                    Files.copy(archivo, copia, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+            }
+        }
+    }
+
+    private static void borrar(Path directorio) throws IOException {
+        if (!Files.exists(directorio)) {
+            return;
+        }
+        List<Path> archivos;
+        try (Stream<Path> recorrido = Files.walk(directorio)) {
+            archivos = recorrido.sorted(Comparator.reverseOrder()).toList();
+        }
+        try {
+            archivos.forEach(archivo -> {
+                try {
+                    Files.delete(archivo);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Búsqueda por nombre: acentos, prefijos, errores de tipeo y orden de los resultados
+ */
+class IndiceNombresTest {
+
+    private final IndiceNombres<Paciente> indice = new IndiceNombres<>();
+
+    @Test
+    void ignoraAcentosYMayusculas() {
+        Paciente perez = agregar(1, "Juan Pérez");
+        agregar(2, "Ana Gómez");
+
+        assertEquals(List.of(perez), indice.buscar("Perez", 10));
+        assertEquals(List.of(perez), indice.buscar("PÉREZ", 10));
+        assertEquals(List.of(perez), indice.buscar("juan perez", 10));
+        assertEquals(List.of("juan", "perez"), IndiceNombres.palabrasDe("  JUAN-Pérez "));
+    }
+
+    @Test
+    void encuentraPorPrefijoMientrasSeEscribe() {
+        Paciente maria = agregar(1, "María González");
+        Paciente marta = agregar(2, "Marta Ruiz");
+        agregar(3, "Ana Gómez");
+
+        assertEquals(List.of(maria, marta), indice.buscar("mar", 10));
+        // Cada palabra buscada debe coincidir con alguna palabra del nombre
+        assertEquals(List.of(maria), indice.buscar("mar gon", 10));
+        assertTrue(indice.buscar("mar gom", 10).isEmpty());
+    }
+
+    @Test
+    void toleraUnaInversionDeLetrasVecinas() {
+        Paciente perez = agregar(1, "Juan Pérez");
+        Paciente gonzalez = agregar(2, "María González");
+
+        assertEquals(List.of(perez), indice.buscar("Preez", 10));
+        assertEquals(List.of(gonzalez), indice.buscar("gonzlaez", 10));
+        // Dos inversiones ya son dos errores
+        assertTrue(indice.buscar("rpeze", 10).isEmpty());
+    }
+
+    @Test
+    void toleraUnaLetraDeMasDeMenosODistinta() {
+        Paciente perez = agregar(1, "Juan Pérez");
+
+        assertEquals(List.of(perez), indice.buscar("perezz", 10));
+        assertEquals(List.of(perez), indice.buscar("prez", 10));
+        assertEquals(List.of(perez), indice.buscar("peres", 10));
+    }
+
+    @Test
+    void noAproximaPalabrasDeMenosDeCuatroLetras() {
+        agregar(1, "Ana Gómez");
+
+        // "ama" está a un error de "ana" pero es muy corta para aproximarla
+        assertTrue(indice.buscar("ama", 10).isEmpty());
+        assertEquals(1, indice.buscar("anna", 10).size());
+    }
+
+    @Test
+    void ordenaExactaPrefijoYAproximadaYLuegoPorNombreEId() {
+        Paciente aproximada = agregar(1, "Maria Sosa");
+        Paciente prefijo = agregar(2, "Marion Vega");
+        Paciente exactaGomez = agregar(5, "Mario Gómez");
+        Paciente exactaAlba = agregar(4, "Mario Alba");
+        Paciente exactaGomezMenorId = agregar(3, "Mario Gómez");
+
+        assertEquals(List.of(exactaAlba, exactaGomezMenorId, exactaGomez, prefijo, aproximada),
+                indice.buscar("mario", 10));
+        // El límite conserva los mejores, en el mismo orden
+        assertEquals(List.of(exactaAlba, exactaGomezMenorId), indice.buscar("mario", 2));
+    }
+
+    @Test
+    void textoVacioDevuelveTodasOrdenadasPorNombre() {
+        Paciente ruiz = agregar(1, "Zoe Ruiz");
+        Paciente alba = agregar(2, "Ana Alba");
+
+        assertEquals(List.of(alba, ruiz), indice.buscar("", 10));
+    }
+
+    @Test
+    void cambiarOQuitarElNombreActualizaElIndice() {
+        Paciente paciente = agregar(1, "Juan Pérez");
+
+        paciente.setNombre("Juan Gómez");
+        indice.actualizar(paciente);
+        assertTrue(indice.buscar("perez", 10).isEmpty());
+        assertEquals(List.of(paciente), indice.buscar("gomez", 10));
+
+        indice.eliminar(paciente);
+        assertTrue(indice.buscar("juan", 10).isEmpty());
+        // La palabra salió del vocabulario y de sus variantes
+        assertTrue(indice.buscar("gomes", 10).isEmpty());
+    }
+
+    private Paciente agregar(int id, String nombre) {
+        Paciente paciente = new Paciente();
+        paciente.setId(id);
+        paciente.setNombre(nombre);
+        indice.agregar(paciente);
+        return paciente;
+    }
+}
@@ -0,0 +1,160 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Búsqueda por teléfono y por sus últimos dígitos, y el mapa ID → teléfono
+ * con direccionamiento abierto que usa el índice
+ */
+class IndiceTelefonosTest {
+
+    // Capacidad inicial del mapa ID → teléfono (16 casillas)
+    private static final int MASCARA = 15;
+
+    // ========== MAPA ID → TELÉFONO ==========
+
+    @Test
+    void eliminarDentroDeUnGrupoQueDaLaVueltaConservaLasDemasEntradas() {
+        // Tres IDs que quieren la última casilla y uno que quiere la primera: el
+        // grupo ocupa 15, 0, 1 y 2, dando la vuelta al final del arreglo
+        List<Integer> alFinal = idsEnCasilla(MASCARA, 3);
+        int alPrincipio = idsEnCasilla(0, 1).get(0);
+        IndiceTelefonos.TelefonosPorId mapa = new IndiceTelefonos.TelefonosPorId();
+        mapa.put(alFinal.get(0), 100);
+        mapa.put(alFinal.get(1), 101);
+        mapa.put(alFinal.get(2), 102);
+        mapa.put(alPrincipio, 200);
+
+        // Al quitar la primera, las siguientes se corren hacia atrás cruzando el final
+        mapa.remove(alFinal.get(0));
+        assertEquals(0, mapa.get(alFinal.get(0)));
+        assertEquals(101, mapa.get(alFinal.get(1)));
+        assertEquals(102, mapa.get(alFinal.get(2)));
+        assertEquals(200, mapa.get(alPrincipio));
+
+        // Quitar una del medio del grupo (ya corrido) tampoco corta la búsqueda de las otras
+        mapa.remove(alFinal.get(2));
+        assertEquals(101, mapa.get(alFinal.get(1)));
+        assertEquals(0, mapa.get(alFinal.get(2)));
+        assertEquals(200, mapa.get(alPrincipio));
+
+        mapa.remove(alFinal.get(1));
+        mapa.remove(alPrincipio);
+        assertEquals(0, mapa.get(alFinal.get(1)));
+        assertEquals(0, mapa.get(alPrincipio));
+    }
+
+    @Test
+    void eliminarUnIdAusenteNoCambiaElMapa() {
+        IndiceTelefonos.TelefonosPorId mapa = new IndiceTelefonos.TelefonosPorId();
+        mapa.put(1, 5550001);
+        mapa.remove(2);
+        assertEquals(5550001, mapa.get(1));
+    }
+
+    @Test
+    void alCrecerConservaTodasLasEntradas() {
+        IndiceTelefonos.TelefonosPorId mapa = new IndiceTelefonos.TelefonosPorId();
+        for (int id = 1; id <= 1000; id++) {
+            mapa.put(id, 5550000 + id);
+        }
+        for (int id = 1; id <= 1000; id += 2) {
+            mapa.remove(id);
+        }
+        for (int id = 2; id <= 1000; id += 4) {
+            mapa.put(id, 7770000 + id);
+        }
+        for (int id = 1; id <= 1000; id++) {
+            int esperado = id % 2 == 1 ? 0 : id % 4 == 2 ? 7770000 + id : 5550000 + id;
+            assertEquals(esperado, mapa.get(id), "id " + id);
+        }
+    }
+
+    // ========== ÍNDICE ==========
+
+    @Test
+    void unFinalQueEmpiezaConCeroNoCoincideConUnTelefonoMasCorto() {
+        IndiceTelefonos<Paciente> indice = new IndiceTelefonos<>();
+        Paciente corto = paciente(1, 123);
+        Paciente largo = paciente(2, 10123);
+        indice.agregar(corto);
+        indice.agregar(largo);
+
+        // "0123" pide un cuarto dígito 0: 123 solo lo tiene en el relleno
+        assertEquals(List.of(largo), indice.terminadosEn("0123", 10));
+        assertEquals(2, indice.terminadosEn("123", 10).size());
+        assertEquals(List.of(corto), indice.get(123));
+    }
+
+    @Test
+    void buscaPorFinalIgnorandoLoQueNoEsDigito() {
+        IndiceTelefonos<Paciente> indice = new IndiceTelefonos<>();
+        Paciente paciente = paciente(1, 5550123);
+        Paciente otro = paciente(2, 5550124);
+        indice.agregar(paciente);
+        indice.agregar(otro);
+
+        assertEquals(List.of(paciente), indice.terminadosEn("(555) 012-3", 10));
+        assertEquals(List.of(otro), indice.terminadosEn("-4", 10));
+        assertTrue(indice.terminadosEn("abc", 10).isEmpty());
+    }
+
+    @Test
+    void respetaElLimiteDeResultados() {
+        IndiceTelefonos<Paciente> indice = new IndiceTelefonos<>();
+        for (int id = 1; id <= 5; id++) {
+            indice.agregar(paciente(id, 5550000 + id * 10));
+        }
+        assertEquals(3, indice.terminadosEn("0", 3).size());
+    }
+
+    @Test
+    void cambiarOQuitarElTelefonoActualizaElIndice() {
+        IndiceTelefonos<Paciente> indice = new IndiceTelefonos<>();
+        Paciente paciente = paciente(1, 5550123);
+        indice.agregar(paciente);
+
+        paciente.setTelefono(5559876);
+        indice.actualizar(paciente);
+        assertTrue(indice.get(5550123).isEmpty());
+        assertEquals(List.of(paciente), indice.get(5559876));
+
+        // Un teléfono sin cargar (0) no se indexa
+        paciente.setTelefono(0);
+        indice.actualizar(paciente);
+        assertEquals(0, indice.size());
+
+        paciente.setTelefono(5551111);
+        indice.actualizar(paciente);
+        indice.eliminar(paciente);
+        assertEquals(0, indice.size());
+        assertTrue(indice.get(5551111).isEmpty());
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    /**
+     * Los primeros IDs positivos cuya casilla ideal es la indicada
+     */
+    private static List<Integer> idsEnCasilla(int casilla, int cantidad) {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1; ids.size() < cantidad; id++) {
+            if (IndiceTelefonos.TelefonosPorId.casilla(id, MASCARA) == casilla) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private static Paciente paciente(int id, int telefono) {
+        Paciente paciente = new Paciente();
+        paciente.setId(id);
+        paciente.setTelefono(telefono);
+        return paciente;
+    }
+}
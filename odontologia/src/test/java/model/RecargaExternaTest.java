@@ -0,0 +1,141 @@
+package model;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import controller.OdontologiaController;
+import controller.PacienteController;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import util.ArchivoSeguro;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Control de versiones frente a cambios hechos por otro proceso en los archivos
+ * (se ejecuta en target/datos-prueba, con los datos de prueba que genera Database;
+ * cada prueba parte de la misma copia, sin importar el orden en que se ejecuten)
+ */
+class RecargaExternaTest {
+
+    private static final Path PACIENTES = Paths.get("data/pacientes.json");
+    private static final Path ODONTOLOGOS = Paths.get("data/odontologos.json");
+
+    @BeforeAll
+    static void respaldarDatos() throws Exception {
+        DatosPrueba.respaldar();
+    }
+
+    @BeforeEach
+    @AfterEach
+    void restaurarDatos() throws Exception {
+        DatosPrueba.restaurar();
+    }
+
+    @AfterAll
+    static void descartarRespaldo() throws Exception {
+        DatosPrueba.descartar();
+    }
+
+    @Test
+    void edicionIniciadaAntesDeUnaRecargaExternaEsRechazada() throws Exception {
+        Database db = Database.getInstance();
+        PacienteController controller = new PacienteController();
+
+        // Se abre la edición: el diálogo recuerda la versión leída
+        Paciente editado = db.getInstantaneaPacientes().get(0);
+        int versionLeida = editado.getVersion();
+
+        // Otro proceso modifica el mismo paciente en disco
+        cambiarEnDisco(PACIENTES, editado.getId(), "Cambio externo");
+        assertTrue(db.recargarCambiosExternos());
+
+        // Guardar la edición no debe pisar el cambio externo
+        assertFalse(controller.actualizarPaciente(editado.getId(), "Cambio local", editado.getTelefono(),
+                editado.getNumeroExpediente(), versionLeida));
+        assertEquals("Cambio externo", db.getPacientes().get(editado.getId()).getNombre());
+    }
+
+    @Test
+    void edicionConUnCambioExternoSinRecargarEsRechazada() throws Exception {
+        Database db = Database.getInstance();
+        PacienteController controller = new PacienteController();
+        Paciente editado = db.getInstantaneaPacientes().get(0);
+        int versionLeida = editado.getVersion();
+
+        // Nadie recargó: la actualización misma debe ver el cambio del otro proceso
+        cambiarEnDisco(PACIENTES, editado.getId(), "Cambio externo");
+
+        assertFalse(controller.actualizarPaciente(editado.getId(), "Cambio local", editado.getTelefono(),
+                editado.getNumeroExpediente(), versionLeida));
+        assertEquals("Cambio externo", db.getPacientes().get(editado.getId()).getNombre());
+    }
+
+    @Test
+    void edicionDeOdontologoConUnCambioExternoSinRecargarEsRechazada() throws Exception {
+        Database db = Database.getInstance();
+        OdontologiaController controller = new OdontologiaController();
+        Odontologo editado = db.getOdontologos().values().iterator().next();
+        int versionLeida = editado.getVersion();
+
+        cambiarEnDisco(ODONTOLOGOS, editado.getId(), "Cambio externo");
+
+        assertFalse(controller.actualizarOdontologo(editado.getId(), "Cambio local", editado.getTelefono(),
+                editado.getEspecialidad(), editado.getNumeroColegiado(), versionLeida));
+        assertEquals("Cambio externo", db.getOdontologos().get(editado.getId()).getNombre());
+    }
+
+    @Test
+    void guardarSobreUnArchivoCambiadoPorOtroProcesoConservaAmbosCambios() throws Exception {
+        Database db = Database.getInstance();
+        Paciente externo = db.getInstantaneaPacientes().get(0);
+        Paciente local = db.getInstantaneaPacientes().get(1);
+
+        cambiarEnDisco(PACIENTES, externo.getId(), "Cambio externo");
+        local.setNombre("Cambio local");
+        db.esperarGuardado();
+
+        // El archivo tiene los dos cambios y queda pendiente de releer
+        JsonObject enDisco = JsonParser.parseString(Files.readString(PACIENTES)).getAsJsonObject();
+        assertEquals("Cambio externo", enDisco.getAsJsonObject(String.valueOf(externo.getId())).get("nombre").getAsString());
+        assertEquals("Cambio local", enDisco.getAsJsonObject(String.valueOf(local.getId())).get("nombre").getAsString());
+        assertTrue(db.recargarCambiosExternos());
+        assertEquals("Cambio externo", db.getPacientes().get(externo.getId()).getNombre());
+        assertEquals("Cambio local", db.getPacientes().get(local.getId()).getNombre());
+    }
+
+    @Test
+    void recargarSinCambiosConservaLaVersion() {
+        Database db = Database.getInstance();
+        PacienteController controller = new PacienteController();
+        Paciente paciente = db.getInstantaneaPacientes().get(0);
+        int versionLeida = paciente.getVersion();
+
+        db.recargarDesdeArchivos();
+
+        Paciente recargado = db.getPacientes().get(paciente.getId());
+        assertNotSame(paciente, recargado);
+        assertEquals(versionLeida, recargado.getVersion());
+        assertTrue(controller.actualizarPaciente(paciente.getId(), paciente.getNombre() + " (editado)",
+                paciente.getTelefono(), paciente.getNumeroExpediente(), versionLeida));
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    /**
+     * Cambia el nombre de una entidad directamente en el archivo, como lo haría otro proceso
+     */
+    private static void cambiarEnDisco(Path archivo, int id, String nombre) throws Exception {
+        JsonObject datos = JsonParser.parseString(Files.readString(archivo)).getAsJsonObject();
+        datos.getAsJsonObject(String.valueOf(id)).addProperty("nombre", nombre);
+        ArchivoSeguro.escribir(archivo, new Gson().toJson(datos).getBytes(StandardCharsets.UTF_8));
+    }
+}
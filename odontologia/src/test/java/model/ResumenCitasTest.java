@@ -0,0 +1,123 @@
+package model;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import util.Coleccion;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Conteos y consultas de citas de meses anteriores respondidos con el resumen
+ * guardado de cada mes, sin leer de disco los meses que no hacen falta
+ */
+class ResumenCitasTest {
+
+    private static final LocalDate HACE_DOS_MESES = YearMonth.now().minusMonths(2).atDay(10);
+    private static final String MES_ANTERIOR = YearMonth.from(HACE_DOS_MESES).toString();
+
+    private Database db;
+    private Paciente paciente;
+    private Odontologo odontologo;
+
+    @BeforeAll
+    static void respaldarDatos() throws Exception {
+        DatosPrueba.respaldar();
+    }
+
+    @BeforeEach
+    void crearCitaAntigua() throws Exception {
+        DatosPrueba.restaurar();
+        db = Database.getInstance();
+
+        // Un paciente nuevo con una sola cita, en un mes que no se carga al iniciar
+        paciente = new Paciente(db.generarProximoIdPaciente(), "Paciente del historial", 5557777, "EXP-HISTORIAL");
+        db.getPacientes().put(paciente.getId(), paciente);
+        odontologo = db.getInstantaneaOdontologos().get(0);
+        Cita cita = new Cita(db.generarProximoIdCita(), HACE_DOS_MESES, LocalTime.of(10, 0), "Control",
+                EstadoCita.FINALIZADO, paciente, odontologo);
+        db.getCitas().put(cita.getId(), cita);
+        db.recargarDesdeArchivos();
+        assertTrue(sinCargar(MES_ANTERIOR));
+    }
+
+    @AfterEach
+    void restaurarDatos() throws Exception {
+        DatosPrueba.restaurar();
+    }
+
+    @AfterAll
+    static void descartarRespaldo() throws Exception {
+        DatosPrueba.descartar();
+    }
+
+    @Test
+    void contarYComprobarCitasNoLeeLosMesesAnteriores() {
+        int finalizadas = db.getCitasPorEstado(EstadoCita.FINALIZADO).size();
+        db.recargarDesdeArchivos();
+
+        assertEquals(finalizadas, db.contarCitasPorEstado(EstadoCita.FINALIZADO));
+        assertTrue(db.pacienteTieneCitas(paciente.getId()));
+        assertTrue(db.odontologoTieneCitas(odontologo.getId()));
+        assertTrue(sinCargar(MES_ANTERIOR));
+    }
+
+    @Test
+    void lasConsultasSoloLeenLosMesesQueLasResponden() {
+        Paciente sinCitas = new Paciente(db.generarProximoIdPaciente(), "Sin citas", 5558888, "EXP-SIN-CITAS");
+        db.getPacientes().put(sinCitas.getId(), sinCitas);
+
+        assertTrue(db.getCitasPorPaciente(sinCitas.getId()).isEmpty());
+        assertTrue(db.getCitasPorEstado(EstadoCita.CANCELADA, HACE_DOS_MESES).stream()
+                .noneMatch(cita -> cita.getPaciente().getId() == paciente.getId()));
+        assertTrue(sinCargar(MES_ANTERIOR));
+
+        assertEquals(1, db.getCitasPorPaciente(paciente.getId()).size());
+        assertFalse(sinCargar(MES_ANTERIOR));
+    }
+
+    @Test
+    void elResumenSigueLosCambiosGuardadosDelMes() {
+        Cita cita = db.getCitasPorPaciente(paciente.getId()).get(0);
+        int canceladas = db.contarCitasPorEstado(EstadoCita.CANCELADA);
+
+        cita.setEstado(EstadoCita.CANCELADA);
+        db.esperarGuardado();
+        db.recargarDesdeArchivos();
+
+        assertTrue(sinCargar(MES_ANTERIOR));
+        assertEquals(canceladas + 1, db.contarCitasPorEstado(EstadoCita.CANCELADA));
+        assertTrue(sinCargar(MES_ANTERIOR));
+    }
+
+    @Test
+    void sinResumenSeLeenLosMesesParaResponder() throws Exception {
+        Files.delete(Paths.get("data/citas/resumen.json"));
+        db.recargarDesdeArchivos();
+
+        assertTrue(db.pacienteTieneCitas(paciente.getId()));
+        assertFalse(sinCargar(MES_ANTERIOR));
+    }
+
+    @Test
+    void laVistaPorDefectoNoIncluyeElHistorial() {
+        assertTrue(db.getCitasVigentes().stream().noneMatch(cita -> cita.getPaciente().getId() == paciente.getId()));
+        assertTrue(sinCargar(MES_ANTERIOR));
+
+        db.cargarHistorialCitas();
+        assertTrue(db.getInstantaneaCitas().stream().anyMatch(cita -> cita.getPaciente().getId() == paciente.getId()));
+        assertTrue(db.getCitasVigentes().stream().noneMatch(cita -> cita.getPaciente().getId() == paciente.getId()));
+    }
+
+    private boolean sinCargar(String particion) {
+        return ((TablaParticionada<?>) db.getTabla(Coleccion.CITAS)).getParticionesSinCargar().contains(particion);
+    }
+}
@@ -0,0 +1,139 @@
+package util;
+
+import model.Database;
+import model.DatosPrueba;
+import model.Paciente;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Recuperación del journal tras un corte: cola incompleta o dañada, anexos
+ * posteriores al truncado y compactación interrumpida antes de borrarlo
+ */
+class DataJournalTest {
+
+    private static final Path JOURNAL = Paths.get("data/journal.log");
+
+    private Database db;
+
+    @BeforeAll
+    static void respaldarDatos() throws Exception {
+        DatosPrueba.respaldar();
+    }
+
+    @BeforeEach
+    void restaurarDatos() throws Exception {
+        DatosPrueba.restaurar();
+        db = Database.getInstance();
+    }
+
+    @AfterEach
+    void descartarCambios() throws Exception {
+        // Lo que quedó en memoria se guarda y luego se pisa con la copia
+        DatosPrueba.restaurar();
+    }
+
+    @AfterAll
+    static void descartarRespaldo() throws Exception {
+        DatosPrueba.descartar();
+    }
+
+    @Test
+    void unRegistroFinalIncompletoSeDescartaYElJournalSeTrunca() throws Exception {
+        Paciente paciente = primerPaciente();
+        registrarNombre(paciente, "Desde el journal");
+        long valido = Files.size(JOURNAL);
+        // Corte a mitad de la escritura del siguiente registro: sin salto de línea
+        String registro = ultimaLinea();
+        anexar(registro.substring(0, registro.length() / 2));
+
+        paciente.setNombre("Sin guardar");
+        assertEquals(1, DataJournal.reproducir(db));
+
+        assertEquals("Desde el journal", db.getPacientes().get(paciente.getId()).getNombre());
+        assertEquals(valido, Files.size(JOURNAL));
+    }
+
+    @Test
+    void unRegistroFinalConChecksumInvalidoSeDescartaYElJournalSeTrunca() throws Exception {
+        Paciente paciente = primerPaciente();
+        registrarNombre(paciente, "Primero");
+        long valido = Files.size(JOURNAL);
+        // Línea completa cuyo contenido no coincide con su CRC
+        anexar(ultimaLinea().replace("Primero", "Segundo") + "\n");
+
+        assertEquals(1, DataJournal.reproducir(db));
+
+        assertEquals("Primero", db.getPacientes().get(paciente.getId()).getNombre());
+        assertEquals(valido, Files.size(JOURNAL));
+    }
+
+    @Test
+    void losRegistrosAnexadosDespuesDelTruncadoSeReproducen() throws Exception {
+        Paciente paciente = primerPaciente();
+        registrarNombre(paciente, "Antes del corte");
+        anexar("0badc0de {\"c\":\"pacientes\"");
+        assertEquals(1, DataJournal.reproducir(db));
+
+        // El siguiente registro empieza en una línea propia, no pegado a la cola descartada
+        registrarNombre(db.getPacientes().get(paciente.getId()), "Después del corte");
+        paciente = db.getPacientes().get(paciente.getId());
+        paciente.setNombre("Sin guardar");
+
+        assertEquals(2, DataJournal.reproducir(db));
+        assertEquals("Después del corte", db.getPacientes().get(paciente.getId()).getNombre());
+    }
+
+    @Test
+    void unaCompactacionInterrumpidaNoReviveRegistrosEliminados() throws Exception {
+        Paciente nuevo = new Paciente(db.generarProximoIdPaciente(), "Paciente temporal", 5559999, "EXP-TEMPORAL");
+        db.getPacientes().put(nuevo.getId(), nuevo);
+        assertTrue(DataJournal.registrarLote(LoteCambios.capturar(db, false, false)));
+
+        // La compactación incluye la baja, que no estaba en el journal; se corta
+        // después de escribir las instantáneas y antes de borrar el journal
+        db.getPacientes().remove(nuevo.getId());
+        assertTrue(DataJournal.escribirInstantaneas(LoteCambios.capturar(db, true, true)));
+        assertTrue(Files.exists(JOURNAL));
+
+        // Al reiniciar se leen las instantáneas y se reproduce el journal completo
+        db.recargarDesdeArchivos();
+
+        assertNull(db.getPacientes().get(nuevo.getId()));
+        assertFalse(Files.exists(JOURNAL));
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private Paciente primerPaciente() {
+        return db.getInstantaneaPacientes().get(0);
+    }
+
+    /**
+     * Cambia el nombre y anexa solo ese cambio al journal
+     */
+    private void registrarNombre(Paciente paciente, String nombre) {
+        paciente.setNombre(nombre);
+        assertTrue(DataJournal.registrarLote(LoteCambios.capturar(db, false, false)));
+    }
+
+    private static String ultimaLinea() throws Exception {
+        String[] lineas = Files.readString(JOURNAL, StandardCharsets.UTF_8).split("\n");
+        return lineas[lineas.length - 1];
+    }
+
+    private static void anexar(String texto) throws Exception {
+        Files.writeString(JOURNAL, texto, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,213 @@
+package util;
+
+import model.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ida y vuelta de cada colección por el formato binario, valores ausentes y
+ * rechazo de contenido truncado o dañado
+ */
+class FormatoBinarioTest {
+
+    private static final LocalDate FECHA = LocalDate.of(2026, 10, 18);
+    private static final LocalTime HORA = LocalTime.of(9, 45);
+
+    // ========== IDA Y VUELTA ==========
+
+    @Test
+    void pacientesIdaYVuelta() throws IOException {
+        Map<Integer, Object> datos = Map.of(
+                1, new Paciente(1, "Juan Pérez", 5550123, "EXP-001"),
+                2, new Paciente(2, "Ana Gómez", 5550124, "EXP-002"));
+
+        Map<Integer, Object> leidos = idaYVuelta(Coleccion.PACIENTES, datos);
+
+        assertEquals(2, leidos.size());
+        Paciente p = (Paciente) leidos.get(1);
+        assertEquals("Juan Pérez", p.getNombre());
+        assertEquals(5550123, p.getTelefono());
+        assertEquals("EXP-001", p.getNumeroExpediente());
+        assertEquals("EXP-002", ((Paciente) leidos.get(2)).getNumeroExpediente());
+    }
+
+    @Test
+    void odontologosIdaYVueltaConCadenasRepetidas() throws IOException {
+        Map<Integer, Object> datos = new LinkedHashMap<>();
+        datos.put(1, new Odontologo(1, "Luis Ruiz", 5551000, "Ortodoncia", 1234));
+        datos.put(2, new Odontologo(2, "Eva Díaz", 5552000, "Ortodoncia", 5678));
+
+        Map<Integer, Object> leidos = idaYVuelta(Coleccion.ODONTOLOGOS, datos);
+
+        Odontologo o = (Odontologo) leidos.get(2);
+        assertEquals("Eva Díaz", o.getNombre());
+        assertEquals(5552000, o.getTelefono());
+        assertEquals("Ortodoncia", o.getEspecialidad());
+        assertEquals(5678, o.getNumeroColegiado());
+        // La especialidad repetida se guarda una sola vez en la tabla de cadenas
+        int unaVez = FormatoBinario.codificar(Coleccion.ODONTOLOGOS, Map.of(1, datos.get(1))).length;
+        int dosVeces = FormatoBinario.codificar(Coleccion.ODONTOLOGOS, datos).length;
+        assertEquals(unaVez + 20 + 4 + "Eva Díaz".getBytes(StandardCharsets.UTF_8).length, dosVeces);
+    }
+
+    @Test
+    void citasIdaYVueltaConReferenciasPorId() throws IOException {
+        Paciente paciente = new Paciente(7, "Juan Pérez", 5550123, "EXP-007");
+        Odontologo odontologo = new Odontologo(3, "Luis Ruiz", 5551000, "General", 1234);
+        Cita cita = new Cita(10, FECHA, HORA, "Limpieza", EstadoCita.CONFIRMADA, paciente, odontologo);
+
+        Cita leida = (Cita) idaYVuelta(Coleccion.CITAS, Map.of(10, cita)).get(10);
+
+        assertEquals(FECHA, leida.getFecha());
+        assertEquals(HORA, leida.getHora());
+        assertEquals("Limpieza", leida.getMotivo());
+        assertEquals(EstadoCita.CONFIRMADA, leida.getEstado());
+        // Referencias provisionales: solo el ID, Database las enlaza al cargar
+        assertEquals(7, leida.getPaciente().getId());
+        assertNull(leida.getPaciente().getNombre());
+        assertEquals(3, leida.getOdontologo().getId());
+    }
+
+    @Test
+    void horariosYFacturasIdaYVuelta() throws IOException {
+        Odontologo odontologo = new Odontologo(3, "Luis Ruiz", 5551000, "General", 1234);
+        Horario horario = new Horario(4, FECHA, HORA, odontologo);
+        horario.setDisponible(true);
+        Cita cita = new Cita(10, FECHA, HORA, "Limpieza", EstadoCita.PENDIENTE,
+                new Paciente(7, "Juan Pérez", 5550123, "EXP-007"), odontologo);
+        Factura factura = new Factura(5, 1250.75, cita);
+
+        Horario horarioLeido = (Horario) idaYVuelta(Coleccion.HORARIOS, Map.of(4, horario)).get(4);
+        Factura facturaLeida = (Factura) idaYVuelta(Coleccion.FACTURAS, Map.of(5, factura)).get(5);
+
+        assertEquals(FECHA, horarioLeido.getFecha());
+        assertEquals(HORA, horarioLeido.getHora());
+        assertTrue(horarioLeido.isDisponible());
+        assertEquals(3, horarioLeido.getOdontologo().getId());
+        assertEquals(1250.75, facturaLeida.getMonto());
+        assertEquals(10, facturaLeida.getCita().getId());
+        assertEquals(7, facturaLeida.getPaciente().getId());
+    }
+
+    @Test
+    void losSegundosDeLaHoraNoSeConservan() throws IOException {
+        Cita cita = new Cita(1, FECHA, LocalTime.of(9, 45, 30), "Control", EstadoCita.PENDIENTE, null, null);
+
+        assertEquals(HORA, ((Cita) idaYVuelta(Coleccion.CITAS, Map.of(1, cita)).get(1)).getHora());
+    }
+
+    @Test
+    void coleccionVaciaIdaYVuelta() throws IOException {
+        assertTrue(idaYVuelta(Coleccion.FACTURAS, Map.of()).isEmpty());
+    }
+
+    // ========== VALORES AUSENTES ==========
+
+    @Test
+    void citaSinFechaHoraEstadoNiReferencias() throws IOException {
+        Cita leida = (Cita) idaYVuelta(Coleccion.CITAS, Map.of(1, new Cita(1, null, null, null, null, null, null))).get(1);
+
+        assertEquals(1, leida.getId());
+        assertNull(leida.getFecha());
+        assertNull(leida.getHora());
+        assertNull(leida.getMotivo());
+        assertNull(leida.getEstado());
+        assertNull(leida.getPaciente());
+        assertNull(leida.getOdontologo());
+    }
+
+    @Test
+    void horarioYFacturaSinReferencias() throws IOException {
+        Horario horario = new Horario(4, null, null, null);
+        Factura factura = new Factura();
+        factura.setId(5);
+
+        Horario horarioLeido = (Horario) idaYVuelta(Coleccion.HORARIOS, Map.of(4, horario)).get(4);
+        Factura facturaLeida = (Factura) idaYVuelta(Coleccion.FACTURAS, Map.of(5, factura)).get(5);
+
+        assertNull(horarioLeido.getFecha());
+        assertNull(horarioLeido.getHora());
+        assertNull(horarioLeido.getOdontologo());
+        assertNull(facturaLeida.getCita());
+        assertNull(facturaLeida.getPaciente());
+    }
+
+    @Test
+    void pacienteSinNombreNiExpediente() throws IOException {
+        Paciente leido = (Paciente) idaYVuelta(Coleccion.PACIENTES, Map.of(1, new Paciente(1, null, 0, null))).get(1);
+
+        assertNull(leido.getNombre());
+        assertNull(leido.getNumeroExpediente());
+        assertEquals(0, leido.getTelefono());
+    }
+
+    // ========== CONTENIDO INVÁLIDO ==========
+
+    @Test
+    void rechazaContenidoTruncadoEnCualquierPunto() {
+        byte[] completo = FormatoBinario.codificar(Coleccion.CITAS, Map.of(
+                1, new Cita(1, FECHA, HORA, "Limpieza", EstadoCita.PENDIENTE, null, null),
+                2, new Cita(2, FECHA, HORA, "Control", EstadoCita.PENDIENTE, null, null)));
+
+        for (int largo = 0; largo < completo.length; largo++) {
+            byte[] truncado = Arrays.copyOf(completo, largo);
+            assertThrows(IOException.class, () -> FormatoBinario.decodificar(Coleccion.CITAS, truncado));
+        }
+    }
+
+    @Test
+    void rechazaBytesSobrantes() {
+        byte[] completo = FormatoBinario.codificar(Coleccion.PACIENTES, Map.of(1, new Paciente(1, "Ana", 1, "E")));
+        byte[] conSobrante = Arrays.copyOf(completo, completo.length + 1);
+
+        assertThrows(IOException.class, () -> FormatoBinario.decodificar(Coleccion.PACIENTES, conSobrante));
+    }
+
+    @Test
+    void rechazaOtroFormatoOtraVersionUOtraColeccion() {
+        byte[] pacientes = FormatoBinario.codificar(Coleccion.PACIENTES, Map.of(1, new Paciente(1, "Ana", 1, "E")));
+
+        byte[] json = "{\"1\":{}}".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> FormatoBinario.decodificar(Coleccion.PACIENTES, json));
+
+        byte[] otraVersion = pacientes.clone();
+        ByteBuffer.wrap(otraVersion).putShort(4, (short) 99);
+        assertThrows(IOException.class, () -> FormatoBinario.decodificar(Coleccion.PACIENTES, otraVersion));
+
+        assertThrows(IOException.class, () -> FormatoBinario.decodificar(Coleccion.ODONTOLOGOS, pacientes));
+    }
+
+    @Test
+    void rechazaIndicesDeCadenaYEstadosFueraDeRango() {
+        // Encabezado (11) + tabla con una cadena "L" (4 + 4 + 1) + registro de cita (23)
+        byte[] cita = FormatoBinario.codificar(Coleccion.CITAS,
+                Map.of(1, new Cita(1, FECHA, HORA, "L", EstadoCita.PENDIENTE, null, null)));
+        int registro = 11 + 9;
+
+        byte[] motivoInvalido = cita.clone();
+        ByteBuffer.wrap(motivoInvalido).putInt(registro + 10, 5);
+        assertThrows(IOException.class, () -> FormatoBinario.decodificar(Coleccion.CITAS, motivoInvalido));
+
+        byte[] estadoInvalido = cita.clone();
+        estadoInvalido[registro + 14] = 100;
+        assertThrows(IOException.class, () -> FormatoBinario.decodificar(Coleccion.CITAS, estadoInvalido));
+
+        byte[] largoDeCadenaInvalido = cita.clone();
+        ByteBuffer.wrap(largoDeCadenaInvalido).putInt(15, 1_000_000);
+        assertThrows(IOException.class, () -> FormatoBinario.decodificar(Coleccion.CITAS, largoDeCadenaInvalido));
+    }
+
+    private static Map<Integer, Object> idaYVuelta(Coleccion coleccion, Map<Integer, ?> datos) throws IOException {
+        return FormatoBinario.decodificar(coleccion, FormatoBinario.codificar(coleccion, datos));
+    }
+}
@@ -0,0 +1,92 @@
+package util;
+
+import model.Cita;
+import model.Database;
+import model.DatosPrueba;
+import model.Paciente;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El lote guarda el estado de las entidades al capturarlo, no el que tengan
+ * cuando el hilo de persistencia llega a escribirlo
+ */
+class LoteCambiosTest {
+
+    private Database db;
+
+    @BeforeAll
+    static void respaldarDatos() throws Exception {
+        DatosPrueba.respaldar();
+    }
+
+    @BeforeEach
+    @AfterEach
+    void restaurarDatos() throws Exception {
+        DatosPrueba.restaurar();
+        db = Database.getInstance();
+    }
+
+    @AfterAll
+    static void descartarRespaldo() throws Exception {
+        DatosPrueba.descartar();
+    }
+
+    @Test
+    void losCambiosPosterioresALaCapturaNoEntranEnElLote() {
+        Paciente paciente = db.getInstantaneaPacientes().get(0);
+        paciente.setNombre("Al capturar");
+
+        LoteCambios lote = LoteCambios.capturar(db, true, false);
+        paciente.setNombre("Después de capturar");
+        paciente.setTelefono(5550000);
+
+        Paciente modificado = (Paciente) lote.getModificados(Coleccion.PACIENTES).get(paciente.getId());
+        Paciente enCopia = (Paciente) lote.getCopia(Coleccion.PACIENTES).get(paciente.getId());
+        assertNotSame(paciente, modificado);
+        assertEquals("Al capturar", modificado.getNombre());
+        assertSame(modificado, enCopia);
+        // El cambio posterior queda pendiente para el próximo lote
+        assertTrue(LoteCambios.capturar(db, false, false).getModificados(Coleccion.PACIENTES).containsKey(paciente.getId()));
+    }
+
+    @Test
+    void lasParticionesSeCopianAlCapturar() {
+        Cita cita = db.getInstantaneaCitas().get(0);
+        String motivo = cita.getMotivo();
+
+        LoteCambios lote = LoteCambios.capturar(db, true, true);
+        cita.setMotivo(motivo + " (cambiado)");
+
+        for (Map<Integer, Object> particion : lote.getParticiones(Coleccion.CITAS).values()) {
+            Cita copia = (Cita) particion.get(cita.getId());
+            if (copia != null) {
+                assertNotSame(cita, copia);
+                assertEquals(motivo, copia.getMotivo());
+                return;
+            }
+        }
+        fail("La cita no está en ninguna partición del lote");
+    }
+
+    @Test
+    void modificarUnaCopiaNoMarcaLaTabla() {
+        Paciente paciente = db.getInstantaneaPacientes().get(0);
+        String nombre = paciente.getNombre();
+        assertFalse(db.getTabla(Coleccion.PACIENTES).tieneCambios());
+
+        Paciente copia = (Paciente) paciente.copiar();
+        copia.setNombre("Solo en la copia");
+
+        assertFalse(db.getTabla(Coleccion.PACIENTES).tieneCambios());
+        assertEquals(nombre, paciente.getNombre());
+        assertEquals(paciente.getId(), copia.getId());
+    }
+}